@@ -22,19 +22,33 @@ import org.junit.jupiter.api.extension.ExtensionContext;
 
 import de.carne.test.swt.DisableIfThreadNotSWTCapable;
 import de.carne.test.swt.platform.PlatformHelper;
+import de.carne.test.swt.platform.SWTCapability;
 
 /**
  * {@linkplain ExecutionCondition} that makes sure that a test is only executed if SWT code is expected to work on the
  * current thread.
+ * <p>
+ * The condition is evaluated via {@linkplain PlatformHelper#probeCurrentThreadSWTCapability()} and reports the probe's
+ * reason and latency. If the system property {@code de.carne.test.swt.condition.FAIL_IF_NOT_SWT_CAPABLE} is set to
+ * {@code true}, tests fail instead of being skipped if SWT code cannot be executed.
+ * </p>
  *
  * @see DisableIfThreadNotSWTCapable
  */
 public class DisableIfThreadNotSWTCapableCondition implements ExecutionCondition {
 
+	private static final String PROPERTY_FAIL_IF_NOT_SWT_CAPABLE = DisableIfThreadNotSWTCapableCondition.class
+			.getPackage().getName() + ".FAIL_IF_NOT_SWT_CAPABLE";
+
 	@Override
 	public ConditionEvaluationResult evaluateExecutionCondition(ExtensionContext context) {
-		return (PlatformHelper.isCurrentThreadSWTCapable() ? ConditionEvaluationResult.enabled("Test enabled")
-				: ConditionEvaluationResult.disabled("Test disabled (due to missing SWT support)"));
+		SWTCapability capability = PlatformHelper.probeCurrentThreadSWTCapability();
+
+		if (!capability.isCapable() && Boolean.getBoolean(PROPERTY_FAIL_IF_NOT_SWT_CAPABLE)) {
+			throw new IllegalStateException("Test failed (due to missing SWT support): " + capability);
+		}
+		return (capability.isCapable() ? ConditionEvaluationResult.enabled("Test enabled (" + capability + ")")
+				: ConditionEvaluationResult.disabled("Test disabled (due to missing SWT support): " + capability));
 	}
 
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.extension;
+
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Defines the lifecycle scope of the {@linkplain org.eclipse.swt.widgets.Display} provided by
+ * {@linkplain SWTDisplayParameterResolver}.
+ * <p>
+ * A method level annotation takes precedence over a class level annotation. If no annotation is present,
+ * {@linkplain Scope#CLASS} is used.
+ * </p>
+ */
+@Documented
+@Inherited
+@Retention(RUNTIME)
+@Target({ TYPE, METHOD })
+public @interface SWTDisplayLifecycle {
+
+	/**
+	 * The available lifecycle scopes.
+	 */
+	enum Scope {
+
+		/**
+		 * The {@linkplain org.eclipse.swt.widgets.Display} is created for and disposed after every single test method.
+		 */
+		METHOD,
+
+		/**
+		 * The {@linkplain org.eclipse.swt.widgets.Display} is shared by all test methods of a test class and disposed
+		 * after the test class has been executed.
+		 */
+		CLASS,
+
+		/**
+		 * The {@linkplain org.eclipse.swt.widgets.Display} is shared by all test classes of the launcher session and
+		 * disposed at the end of the session.
+		 */
+		SESSION
+
+	}
+
+	/**
+	 * The lifecycle scope to use.
+	 *
+	 * @return the lifecycle scope to use.
+	 */
+	Scope value();
+
+}
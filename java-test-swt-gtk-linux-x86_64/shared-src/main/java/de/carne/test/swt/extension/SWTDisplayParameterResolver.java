@@ -16,25 +16,42 @@
  */
 package de.carne.test.swt.extension;
 
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Optional;
+import java.util.Set;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.widgets.Display;
-import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.eclipse.swt.widgets.Shell;
+import org.junit.jupiter.api.extension.AfterEachCallback;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.ExtensionContext.Namespace;
 import org.junit.jupiter.api.extension.ExtensionContext.Store;
+import org.junit.jupiter.api.extension.ExtensionContext.Store.CloseableResource;
 import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
+import org.junit.platform.commons.support.AnnotationSupport;
 
-import de.carne.util.Check;
+import de.carne.util.logging.Log;
 
 /**
  * {@linkplain ParameterResolver} that takes care of creation and disposal of the SWT {@linkplain Display} needed during
  * test execution.
+ * <p>
+ * The lifecycle of the provided {@linkplain Display} is controlled via the {@linkplain SWTDisplayLifecycle} annotation
+ * (default: {@linkplain SWTDisplayLifecycle.Scope#CLASS}). A {@linkplain Display} shared by multiple tests is cleaned
+ * up after each test (by disposing all remaining shells and dispatching all pending events). This includes a
+ * {@linkplain Display} resolved outside of a test method (e.g. in a {@code @BeforeAll} method or a constructor). As a
+ * {@linkplain Display} is bound to the thread it has been created by, it is only provided to tests running on this
+ * very thread. If the current thread already owns a {@linkplain Display}, this one is provided and left untouched
+ * at the end of the scope.
+ * </p>
  */
-public class SWTDisplayParameterResolver implements ParameterResolver, AfterAllCallback {
+public class SWTDisplayParameterResolver implements ParameterResolver, AfterEachCallback {
+
+	private static final Log LOG = new Log();
 
 	private static final Namespace EXTENSION_NAMESPACE = Namespace.create(SWTDisplayParameterResolver.class);
 	private static final String DISPLAY_KEY = "Display";
@@ -46,30 +63,132 @@ public class SWTDisplayParameterResolver implements ParameterResolver, AfterAllC
 
 	@Override
 	public @Nullable Object resolveParameter(ParameterContext parameterContext, ExtensionContext extensionContext) {
-		Optional<ExtensionContext> optionalParentExtensionContext = extensionContext.getParent();
+		SWTDisplayLifecycle.Scope scope = lifecycleScope(extensionContext);
+		Store store = scopeContext(extensionContext, scope).getStore(EXTENSION_NAMESPACE);
+		DisplayResource displayResource = store.getOrComputeIfAbsent(DISPLAY_KEY, key -> new DisplayResource(scope),
+				DisplayResource.class);
 
-		if (!optionalParentExtensionContext.isPresent()) {
-			throw new ParameterResolutionException("Parent extension context missing");
+		if (displayResource.isDisposed()) {
+			// The previous user disposed the shared display; hence start over
+			displayResource = new DisplayResource(scope);
+			store.put(DISPLAY_KEY, displayResource);
 		}
 
-		Store store = optionalParentExtensionContext.get().getStore(EXTENSION_NAMESPACE);
-		Object displayObject = store.get(DISPLAY_KEY);
+		return displayResource.get();
+	}
+
+	@Override
+	public void afterEach(ExtensionContext context) {
+		// The shared displays are stored in the ancestors of the test method's context (the store lookup includes the
+		// parent stores; hence a display may be found on multiple levels)
+		Set<DisplayResource> displayResources = Collections.newSetFromMap(new IdentityHashMap<>());
+		Optional<ExtensionContext> optionalContext = Optional.of(context);
+
+		while (optionalContext.isPresent()) {
+			ExtensionContext checkedContext = optionalContext.get();
+			DisplayResource displayResource = checkedContext.getStore(EXTENSION_NAMESPACE).get(DISPLAY_KEY,
+					DisplayResource.class);
 
-		if (displayObject == null) {
-			displayObject = new Display();
-			store.put(DISPLAY_KEY, displayObject);
+			if (displayResource != null && displayResource.scope() != SWTDisplayLifecycle.Scope.METHOD
+					&& displayResources.add(displayResource)) {
+				displayResource.cleanup();
+			}
+			optionalContext = checkedContext.getParent();
 		}
-		return Check.isInstanceOf(displayObject, Display.class);
 	}
 
-	@Override
-	public void afterAll(ExtensionContext context) {
-		Store store = context.getStore(EXTENSION_NAMESPACE);
-		Object displayObject = store.get(DISPLAY_KEY);
+	private static SWTDisplayLifecycle.Scope lifecycleScope(ExtensionContext extensionContext) {
+		Optional<SWTDisplayLifecycle> lifecycle = AnnotationSupport.findAnnotation(extensionContext.getTestMethod(),
+				SWTDisplayLifecycle.class);
+
+		if (!lifecycle.isPresent()) {
+			lifecycle = AnnotationSupport.findAnnotation(extensionContext.getTestClass(), SWTDisplayLifecycle.class);
+		}
+		return lifecycle.map(SWTDisplayLifecycle::value).orElse(SWTDisplayLifecycle.Scope.CLASS);
+	}
+
+	private static ExtensionContext scopeContext(ExtensionContext extensionContext, SWTDisplayLifecycle.Scope scope) {
+		ExtensionContext scopeContext = extensionContext;
+
+		if (scope == SWTDisplayLifecycle.Scope.SESSION) {
+			scopeContext = extensionContext.getRoot();
+		} else if (scope == SWTDisplayLifecycle.Scope.CLASS) {
+			while (scopeContext.getTestMethod().isPresent()) {
+				Optional<ExtensionContext> optionalParentContext = scopeContext.getParent();
+
+				if (!optionalParentContext.isPresent()) {
+					throw new ParameterResolutionException("Parent extension context missing");
+				}
+				scopeContext = optionalParentContext.get();
+			}
+		}
+		return scopeContext;
+	}
+
+	private static final class DisplayResource implements CloseableResource {
 
-		if (displayObject != null) {
-			Check.isInstanceOf(displayObject, Display.class).dispose();
+		private final SWTDisplayLifecycle.Scope scope;
+		private final Display display;
+		private final boolean owned;
+
+		DisplayResource(SWTDisplayLifecycle.Scope scope) {
+			Display currentDisplay = Display.getCurrent();
+
+			this.scope = scope;
+			if (currentDisplay != null) {
+				this.display = currentDisplay;
+				this.owned = false;
+			} else {
+				this.display = new Display();
+				this.owned = true;
+			}
+			LOG.debug("Using display {0} for scope {1} (owned: {2})", this.display, this.scope, this.owned);
+		}
+
+		SWTDisplayLifecycle.Scope scope() {
+			return this.scope;
 		}
+
+		boolean isDisposed() {
+			return this.display.isDisposed();
+		}
+
+		Display get() {
+			Thread displayThread = this.display.getThread();
+			Thread currentThread = Thread.currentThread();
+
+			if (displayThread != currentThread) {
+				throw new ParameterResolutionException("Display of scope " + this.scope + " is bound to thread '"
+						+ displayThread.getName() + "' and cannot be used by thread '" + currentThread.getName() + "'");
+			}
+			return this.display;
+		}
+
+		void cleanup() {
+			if (!this.display.isDisposed() && this.display.getThread() == Thread.currentThread()) {
+				for (Shell shell : this.display.getShells()) {
+					shell.dispose();
+				}
+				while (this.display.readAndDispatch()) {
+					// Dispatch all pending events
+				}
+			}
+		}
+
+		@Override
+		public void close() {
+			if (this.owned && !this.display.isDisposed()) {
+				Thread displayThread = this.display.getThread();
+
+				if (displayThread == Thread.currentThread()) {
+					this.display.dispose();
+				} else {
+					LOG.warning("Unable to dispose display of scope {0} (bound to thread ''{1}'')", this.scope,
+							displayThread.getName());
+				}
+			}
+		}
+
 	}
 
 }
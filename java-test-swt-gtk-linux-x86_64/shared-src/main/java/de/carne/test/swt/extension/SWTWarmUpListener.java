@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.extension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.SWTError;
+import org.junit.platform.launcher.LauncherSession;
+import org.junit.platform.launcher.LauncherSessionListener;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestPlan;
+
+import de.carne.test.swt.platform.PlatformHelper;
+import de.carne.test.swt.tester.SWTTest;
+import de.carne.util.Exceptions;
+import de.carne.util.logging.Log;
+
+/**
+ * {@linkplain LauncherSessionListener} performing the SWT warm-up (native library loading, display provisioning as
+ * well as dialog mock class generation) once per VM, before the first test is executed.
+ * <p>
+ * The warm-up tasks are started in parallel as soon as the launcher session is opened and are awaited (in the role of
+ * a {@linkplain TestExecutionListener}) before test execution starts. This way the warm-up overlaps with test
+ * discovery and is not charged to the first test executed. The time spent for the warm-up is logged separately.
+ * Setting the system property {@code de.carne.test.swt.extension.WARM_UP} to {@code false} disables the warm-up.
+ * </p>
+ * <p>
+ * The listener is registered automatically via the {@linkplain java.util.ServiceLoader} mechanism.
+ * </p>
+ */
+public class SWTWarmUpListener implements LauncherSessionListener, TestExecutionListener {
+
+	private static final Log LOG = new Log();
+
+	private static final String PROPERTY_WARM_UP = SWTWarmUpListener.class.getPackage().getName() + ".WARM_UP";
+
+	private static final long WARM_UP_TIMEOUT = 60000;
+
+	private static final AtomicReference<@Nullable CompletableFuture<Void>> WARM_UP = new AtomicReference<>();
+
+	@Override
+	public void launcherSessionOpened(LauncherSession session) {
+		if (Boolean.parseBoolean(System.getProperty(PROPERTY_WARM_UP, Boolean.TRUE.toString()))) {
+			WARM_UP.updateAndGet(warmUp -> (warmUp != null ? warmUp : startWarmUp()));
+		}
+	}
+
+	@Override
+	public void testPlanExecutionStarted(TestPlan testPlan) {
+		CompletableFuture<Void> warmUp = WARM_UP.get();
+
+		if (warmUp != null && !warmUp.isDone()) {
+			long start = System.nanoTime();
+
+			try {
+				warmUp.get(WARM_UP_TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException | TimeoutException e) {
+				LOG.warning(e, "SWT warm-up not completed");
+			}
+
+			long elapsed = System.nanoTime() - start;
+
+			LOG.info("Test execution waited {0} ms for SWT warm-up", elapsed / 1000000);
+		}
+	}
+
+	private static CompletableFuture<Void> startWarmUp() {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, SWTWarmUpListener.class.getSimpleName());
+
+			thread.setDaemon(true);
+			return thread;
+		});
+		List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+		try {
+			tasks.add(CompletableFuture.runAsync(() -> runWarmUpTask("platform", PlatformHelper::warmUp), executor));
+			tasks.add(CompletableFuture.runAsync(() -> runWarmUpTask("dialog mocks", SWTTest::warmUp), executor));
+		} finally {
+			executor.shutdown();
+		}
+		return CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[tasks.size()])).thenRun(() -> {
+			long elapsed = System.nanoTime() - start;
+
+			LOG.info("SWT warm-up finished (took {0} ms)", elapsed / 1000000);
+		});
+	}
+
+	private static void runWarmUpTask(String name, Runnable task) {
+		long start = System.nanoTime();
+
+		try {
+			task.run();
+
+			long elapsed = System.nanoTime() - start;
+
+			LOG.info("SWT warm-up of {0} finished (took {1} ms)", name, elapsed / 1000000);
+		} catch (RuntimeException | LinkageError | SWTError e) {
+			// Failures will show up again during test execution; hence simply report them here
+			LOG.warning(e, "SWT warm-up of {0} failed: {1}", name, Exceptions.getMessage(e));
+		}
+	}
+
+}
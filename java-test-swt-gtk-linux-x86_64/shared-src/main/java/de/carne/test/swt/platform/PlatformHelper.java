@@ -18,6 +18,7 @@ package de.carne.test.swt.platform;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Display;
@@ -74,6 +75,64 @@ public abstract class PlatformHelper {
 		return false;
 	}
 
+	/**
+	 * Probes whether SWT code can be executed by the current thread.
+	 * <p>
+	 * In contrast to {@linkplain #isCurrentThreadSWTCapable()} the probe result also provides the reason for the
+	 * result as well as the time spent for probing. Platforms performing an expensive probe (e.g. connecting to the
+	 * display server) cache the probe result.
+	 * </p>
+	 *
+	 * @return the probe result.
+	 */
+	public static SWTCapability probeCurrentThreadSWTCapability() {
+		return INSTANCE_HOLDER.get().internalProbeCurrentThreadSWTCapability();
+	}
+
+	/**
+	 * Probes whether SWT code can be executed by the current thread.
+	 * <p>
+	 * The default implementation measures and reports the result of {@linkplain #internalIsCurrentThreadSWTCapable()}.
+	 * </p>
+	 *
+	 * @return the probe result.
+	 * @see #probeCurrentThreadSWTCapability()
+	 */
+	protected SWTCapability internalProbeCurrentThreadSWTCapability() {
+		long start = System.nanoTime();
+		boolean capable = internalIsCurrentThreadSWTCapable();
+		Duration latency = Duration.ofNanos(System.nanoTime() - start);
+
+		return new SWTCapability(capable, (capable ? "Platform check passed" : "Platform check failed"), latency);
+	}
+
+	/**
+	 * Performs the platform's one-time initialization upfront.
+	 * <p>
+	 * This function is intended to be invoked once per VM before any test creates a {@linkplain Display} (see
+	 * {@linkplain de.carne.test.swt.extension.SWTWarmUpListener}). It may be invoked by any thread.
+	 * </p>
+	 */
+	public static void warmUp() {
+		INSTANCE_HOLDER.get().internalWarmUp();
+	}
+
+	/**
+	 * Performs the platform's one-time initialization upfront.
+	 * <p>
+	 * The default implementation loads the SWT native libraries.
+	 * </p>
+	 *
+	 * @see #warmUp()
+	 */
+	protected void internalWarmUp() {
+		try {
+			Class.forName("org.eclipse.swt.internal.C");
+		} catch (ClassNotFoundException e) {
+			throw Exceptions.toRuntime(e);
+		}
+	}
+
 	/**
 	 * Checks whether a native platform dialog is currently open.
 	 *
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.util.Exceptions;
+import de.carne.util.Strings;
+import de.carne.util.logging.Log;
+
+/**
+ * Keeps a long-lived helper process running and exchanges requests and responses with it via a framed stdin/stdout
+ * protocol.
+ * <p>
+ * Each request is sent to the helper's stdin as a header line {@code <id> <length>\n} followed by {@code <length>}
+ * payload bytes. The helper answers every request by writing a frame of the same format (carrying the request's id)
+ * to its stdout. Responses may be sent in any order, which allows concurrent callers to be multiplexed onto a single
+ * helper process. The helper's stderr is inherited.
+ * </p>
+ * <p>
+ * If the helper process dies (or answers with an invalid frame), all pending requests fail and the helper is restarted
+ * automatically on the next request. The same applies if several consecutive requests time out.
+ * </p>
+ */
+public final class ProcessDaemon implements Closeable {
+
+	private static final Log LOG = new Log();
+
+	private static final int MAX_HEADER_LENGTH = 64;
+
+	private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+	private static final int MAX_CONSECUTIVE_TIMEOUTS = 3;
+
+	private final List<String> command;
+	private long timeoutMillis = 5000;
+	private final AtomicLong nextRequestId = new AtomicLong();
+	private @Nullable Helper helper = null;
+	private int restartCount = 0;
+	private boolean closed = false;
+
+	/**
+	 * Constructs a new {@linkplain ProcessDaemon} instance.
+	 * <p>
+	 * The helper process is started lazily on the first request.
+	 * </p>
+	 *
+	 * @param command the command line of the helper process.
+	 */
+	public ProcessDaemon(String... command) {
+		this.command = Collections.unmodifiableList(Arrays.asList(command.clone()));
+	}
+
+	/**
+	 * Sets the timeout (in milliseconds) to wait for a response in {@linkplain #call(byte[])}.
+	 *
+	 * @param timeout the timeout to use.
+	 * @return the updated {@linkplain ProcessDaemon} instance.
+	 */
+	public ProcessDaemon withTimeout(long timeout) {
+		this.timeoutMillis = timeout;
+		return this;
+	}
+
+	/**
+	 * Sends a request to the helper process.
+	 * <p>
+	 * The helper process is (re-)started if it is not yet running or if it has died.
+	 * </p>
+	 *
+	 * @param request the request payload to send.
+	 * @return the {@linkplain CompletableFuture} providing the helper's response payload.
+	 */
+	public CompletableFuture<byte[]> send(byte[] request) {
+		return send(this.nextRequestId.incrementAndGet(), request);
+	}
+
+	private CompletableFuture<byte[]> send(long requestId, byte[] request) {
+		CompletableFuture<byte[]> response = new CompletableFuture<>();
+
+		try {
+			runningHelper().submit(requestId, request, response);
+		} catch (IOException e) {
+			response.completeExceptionally(e);
+		}
+		return response;
+	}
+
+	/**
+	 * Sends a request to the helper process and waits for the response.
+	 *
+	 * @param request the request payload to send.
+	 * @return the helper's response payload.
+	 * @throws IOException if the request fails or times out.
+	 * @see #withTimeout(long)
+	 */
+	public byte[] call(byte[] request) throws IOException {
+		long requestId = this.nextRequestId.incrementAndGet();
+		CompletableFuture<byte[]> response = send(requestId, request);
+		byte[] responseBytes;
+
+		try {
+			responseBytes = response.get(this.timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			Helper checkedHelper = currentHelper();
+
+			if (checkedHelper != null) {
+				checkedHelper.timedOut(requestId);
+			}
+			throw new IOException("Request " + requestId + " to '" + this + "' timed out", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+
+			throw (cause instanceof IOException ? (IOException) cause
+					: new IOException(Exceptions.getMessage(cause), cause));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(Exceptions.getMessage(e), e);
+		}
+		return responseBytes;
+	}
+
+	/**
+	 * Sends a text request to the helper process and waits for the response.
+	 *
+	 * @param request the request text to send (UTF-8 encoded).
+	 * @return the helper's response text (UTF-8 decoded).
+	 * @throws IOException if the request fails or times out.
+	 * @see #call(byte[])
+	 */
+	public String call(String request) throws IOException {
+		return new String(call(request.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Gets the number of times the helper process has been restarted after it died or became unresponsive.
+	 *
+	 * @return the number of times the helper process has been restarted after it died or became unresponsive.
+	 */
+	public synchronized int restartCount() {
+		return this.restartCount;
+	}
+
+	private synchronized @Nullable Helper currentHelper() {
+		return this.helper;
+	}
+
+	private synchronized Helper runningHelper() throws IOException {
+		if (this.closed) {
+			throw new IOException("Daemon '" + this + "' has been closed");
+		}
+
+		Helper checkedHelper = this.helper;
+
+		if (checkedHelper == null || !checkedHelper.isHelperAlive()) {
+			if (checkedHelper != null) {
+				LOG.warning("Restarting helper process ''{0}''...", this);
+
+				checkedHelper.terminate();
+				this.restartCount++;
+			} else {
+				LOG.debug("Starting helper process ''{0}''...", this);
+			}
+
+			ProcessBuilder processBuilder = new ProcessBuilder(this.command)
+					.redirectError(ProcessBuilder.Redirect.INHERIT);
+
+			checkedHelper = new Helper(processBuilder.start());
+			checkedHelper.start();
+			this.helper = checkedHelper;
+		}
+		return checkedHelper;
+	}
+
+	@Override
+	public void close() {
+		Helper checkedHelper;
+
+		synchronized (this) {
+			this.closed = true;
+			checkedHelper = this.helper;
+			this.helper = null;
+		}
+		if (checkedHelper != null) {
+			LOG.debug("Stopping helper process ''{0}''...", this);
+
+			checkedHelper.terminate();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return Strings.join(this.command, " ");
+	}
+
+	private final class Helper extends Thread {
+
+		private final Process process;
+		private final OutputStream requestStream;
+		private final Map<Long, CompletableFuture<byte[]>> pendingResponses = new ConcurrentHashMap<>();
+		private final AtomicInteger consecutiveTimeouts = new AtomicInteger();
+		private volatile boolean alive = true;
+
+		Helper(Process process) {
+			super(ProcessDaemon.class.getSimpleName() + " [" + ProcessDaemon.this + "]");
+			this.process = process;
+			this.requestStream = new BufferedOutputStream(process.getOutputStream());
+			setDaemon(true);
+		}
+
+		boolean isHelperAlive() {
+			return this.alive && this.process.isAlive();
+		}
+
+		void submit(long requestId, byte[] request, CompletableFuture<byte[]> response) throws IOException {
+			this.pendingResponses.put(requestId, response);
+			try {
+				synchronized (this.requestStream) {
+					byte[] header = (requestId + " " + request.length + "\n").getBytes(StandardCharsets.US_ASCII);
+
+					this.requestStream.write(header);
+					this.requestStream.write(request);
+					this.requestStream.flush();
+				}
+			} catch (IOException e) {
+				this.pendingResponses.remove(requestId);
+				this.alive = false;
+				throw e;
+			}
+			// Make sure the request does not get lost in case the helper died while we were submitting
+			if (!this.alive) {
+				failPendingResponses();
+			}
+		}
+
+		void timedOut(long requestId) {
+			this.pendingResponses.remove(requestId);
+			if (this.consecutiveTimeouts.incrementAndGet() >= MAX_CONSECUTIVE_TIMEOUTS && this.alive) {
+				LOG.warning("Helper process ''{0}'' is not responding", ProcessDaemon.this);
+
+				// Causes the helper to be restarted on the next request
+				this.alive = false;
+			}
+		}
+
+		@Override
+		public void run() {
+			try (InputStream responseStream = new BufferedInputStream(this.process.getInputStream())) {
+				while (true) {
+					String header = readHeader(responseStream);
+
+					if (header == null) {
+						break;
+					}
+
+					long responseId;
+					int responseLength;
+
+					try {
+						int separatorIndex = header.indexOf(' ');
+
+						responseId = Long.parseLong(header.substring(0, separatorIndex));
+						responseLength = Integer.parseInt(header.substring(separatorIndex + 1));
+					} catch (IndexOutOfBoundsException | NumberFormatException e) {
+						throw new IOException("Invalid response header: " + header, e);
+					}
+					if (responseLength < 0 || responseLength > MAX_FRAME_LENGTH) {
+						throw new IOException("Invalid response length: " + header);
+					}
+
+					byte[] response = responseStream.readNBytes(responseLength);
+
+					if (response.length < responseLength) {
+						throw new EOFException("Incomplete response " + responseId);
+					}
+
+					CompletableFuture<byte[]> pendingResponse = this.pendingResponses.remove(responseId);
+
+					this.consecutiveTimeouts.set(0);
+					if (pendingResponse != null) {
+						pendingResponse.complete(response);
+					} else {
+						LOG.debug("Dropping response {0} of helper process ''{1}''", responseId, ProcessDaemon.this);
+					}
+				}
+			} catch (IOException e) {
+				LOG.warning(e, "Helper process ''{0}'' failed", ProcessDaemon.this);
+			} finally {
+				this.alive = false;
+				failPendingResponses();
+			}
+		}
+
+		private @Nullable String readHeader(InputStream responseStream) throws IOException {
+			ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+			int b;
+
+			while ((b = responseStream.read()) >= 0 && b != '\n') {
+				if (headerBytes.size() >= MAX_HEADER_LENGTH) {
+					throw new IOException("Response header too long");
+				}
+				headerBytes.write(b);
+			}
+			if (b < 0 && headerBytes.size() > 0) {
+				throw new EOFException("Incomplete response header");
+			}
+			return (b >= 0 ? headerBytes.toString(StandardCharsets.US_ASCII).trim() : null);
+		}
+
+		private void failPendingResponses() {
+			List<Long> pendingIds = new ArrayList<>(this.pendingResponses.keySet());
+
+			for (Long pendingId : pendingIds) {
+				CompletableFuture<byte[]> pendingResponse = this.pendingResponses.remove(pendingId);
+
+				if (pendingResponse != null) {
+					pendingResponse.completeExceptionally(
+							new IOException("Helper process '" + ProcessDaemon.this + "' terminated"));
+				}
+			}
+		}
+
+		void terminate() {
+			this.alive = false;
+			try {
+				this.requestStream.close();
+				if (!this.process.waitFor(1, TimeUnit.SECONDS)) {
+					destroy(ProcessRunner.DEFAULT_DESTROY_GRACE_PERIOD);
+				}
+			} catch (IOException e) {
+				LOG.debug(e, "Failed to close helper process input");
+
+				destroy(ProcessRunner.DEFAULT_DESTROY_GRACE_PERIOD);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				destroy(0);
+			}
+			failPendingResponses();
+		}
+
+		private void destroy(long gracePeriodMillis) {
+			ProcessRunner.destroyProcessTree(this.process.toHandle(), gracePeriodMillis);
+		}
+
+	}
+
+}
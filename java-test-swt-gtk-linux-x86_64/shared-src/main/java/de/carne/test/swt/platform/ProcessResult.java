@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Result of a single {@linkplain ProcessRunner} execution.
+ */
+public final class ProcessResult {
+
+	private final String command;
+	private final ProcessRunner.Status status;
+	private final Optional<IOException> statusException;
+	private final int exitValue;
+	private final String output;
+	private final boolean outputTruncated;
+	private final Duration wallTime;
+	private final Optional<Duration> cpuTime;
+	private final OptionalLong peakRss;
+
+	ProcessResult(String command) {
+		this(command, ProcessRunner.Status.NOT_YET_RUN, Optional.empty(), -1, "", false, Duration.ZERO,
+				Optional.empty(), OptionalLong.empty());
+	}
+
+	@SuppressWarnings("squid:S107")
+	ProcessResult(String command, ProcessRunner.Status status, Optional<IOException> statusException, int exitValue,
+			String output, boolean outputTruncated, Duration wallTime, Optional<Duration> cpuTime,
+			OptionalLong peakRss) {
+		this.command = command;
+		this.status = status;
+		this.statusException = statusException;
+		this.exitValue = exitValue;
+		this.output = output;
+		this.outputTruncated = outputTruncated;
+		this.wallTime = wallTime;
+		this.cpuTime = cpuTime;
+		this.peakRss = peakRss;
+	}
+
+	/**
+	 * Gets the command line this result has been created for.
+	 *
+	 * @return the command line this result has been created for.
+	 */
+	public String command() {
+		return this.command;
+	}
+
+	/**
+	 * Gets the execution status.
+	 *
+	 * @return the execution status.
+	 */
+	public ProcessRunner.Status status() {
+		return this.status;
+	}
+
+	/**
+	 * Gets the optional {@linkplain IOException} caught during execution.
+	 *
+	 * @return the optional {@linkplain IOException} caught during execution.
+	 */
+	public Optional<IOException> statusException() {
+		return this.statusException;
+	}
+
+	/**
+	 * Gets the process exit value.
+	 *
+	 * @return the process exit value ({@code -1} if the process did not exit normally).
+	 */
+	public int exitValue() {
+		return this.exitValue;
+	}
+
+	/**
+	 * Gets the captured process output.
+	 *
+	 * @return the captured process output.
+	 * @see ProcessRunner#withCaptureOutput(boolean)
+	 */
+	public String output() {
+		return this.output;
+	}
+
+	/**
+	 * Checks whether the captured process output has been truncated (because it exceeded the output limit).
+	 *
+	 * @return {@code true} if the captured process output has been truncated.
+	 * @see ProcessRunner#withOutputLimit(int)
+	 */
+	public boolean isOutputTruncated() {
+		return this.outputTruncated;
+	}
+
+	/**
+	 * Gets the wall clock time spent for execution (including process start and output draining).
+	 *
+	 * @return the wall clock time spent for execution.
+	 */
+	public Duration wallTime() {
+		return this.wallTime;
+	}
+
+	/**
+	 * Gets the CPU time consumed by the process and its descendants.
+	 * <p>
+	 * The CPU time is sampled while the process is running and therefore may be lower than the actual CPU time
+	 * (especially for short running processes). It is not available on platforms not supporting
+	 * {@linkplain ProcessHandle.Info#totalCpuDuration()}.
+	 * </p>
+	 *
+	 * @return the CPU time consumed by the process and its descendants.
+	 */
+	public Optional<Duration> cpuTime() {
+		return this.cpuTime;
+	}
+
+	/**
+	 * Gets the peak resident set size (in bytes) of the process or its largest descendant.
+	 * <p>
+	 * The peak resident set size is only available on platforms providing {@code /proc/<pid>/status}.
+	 * </p>
+	 *
+	 * @return the peak resident set size (in bytes) of the process or its largest descendant.
+	 */
+	public OptionalLong peakRss() {
+		return this.peakRss;
+	}
+
+	/**
+	 * Checks the execution status and throws an I/O exception in case an error occurred or if the process' exit
+	 * status is not 0.
+	 *
+	 * @throws IOException if an error occurred during execution or if the process' exit status is not 0.
+	 */
+	public void checkStatus() throws IOException {
+		if (this.status != ProcessRunner.Status.RUN_COMPLETED || this.exitValue != 0) {
+			if (this.statusException.isPresent()) {
+				throw this.statusException.get();
+			}
+			throw new IOException("Command '" + this.command + "' failed (status: " + this.status + "; exit value: "
+					+ this.exitValue + ")");
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		buffer.append(this.command).append(" (status: ").append(this.status).append("; exit value: ")
+				.append(this.exitValue).append("; wall time: ").append(this.wallTime.toMillis()).append(" ms");
+		this.cpuTime.ifPresent(time -> buffer.append("; cpu time: ").append(time.toMillis()).append(" ms"));
+		this.peakRss.ifPresent(rss -> buffer.append("; peak rss: ").append(rss / 1024).append(" kB"));
+		buffer.append(")");
+		return buffer.toString();
+	}
+
+}
@@ -16,9 +16,35 @@
  */
 package de.carne.test.swt.platform;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
 
 import de.carne.util.Exceptions;
 import de.carne.util.Strings;
@@ -68,13 +94,36 @@ public final class ProcessRunner {
 
 	}
 
-	private ProcessBuilder builder;
+	/**
+	 * The default limit (in bytes) for captured output.
+	 */
+	public static final int DEFAULT_OUTPUT_LIMIT = 64 * 1024;
+
+	/**
+	 * The default grace period (in milliseconds) granted to a process tree for terminating after a timeout.
+	 */
+	public static final long DEFAULT_DESTROY_GRACE_PERIOD = 500;
+
+	private static final int DRAIN_BUFFER_SIZE = 8 * 1024;
+
+	private static final long USAGE_SAMPLE_INTERVAL = 100;
+
+	private static final long OUTPUT_CLOSE_TIMEOUT = 1000;
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private static final Executor ASYNC_EXECUTOR = Executors.newCachedThreadPool(ProcessRunner::newExecutorThread);
+
+	private final List<String> command;
 	private long timeoutMillis = 1000;
+	private long destroyGracePeriodMillis = DEFAULT_DESTROY_GRACE_PERIOD;
 	private boolean captureOutput = false;
-	private Status status = Status.NOT_YET_RUN;
-	private Optional<IOException> statusException = Optional.empty();
-	private int exitValue = -1;
-	private String output = "";
+	private int outputLimit = DEFAULT_OUTPUT_LIMIT;
+	private @Nullable Path outputSpillFile = null;
+	private @Nullable Consumer<String> outputLineConsumer = null;
+	private Charset outputCharset = StandardCharsets.UTF_8;
+	private final Map<String, String> environment = new HashMap<>();
+	private ProcessResult result;
 
 	/**
 	 * Constructs a new {@linkplain ProcessRunner} instance.
@@ -82,11 +131,15 @@ public final class ProcessRunner {
 	 * @param command the command line to run.
 	 */
 	public ProcessRunner(String... command) {
-		this.builder = new ProcessBuilder(command).redirectErrorStream(true);
+		this.command = Collections.unmodifiableList(Arrays.asList(command.clone()));
+		this.result = new ProcessResult(toString());
 	}
 
 	/**
 	 * Sets the timeout (in milliseconds) to wait for process completion.
+	 * <p>
+	 * The timeout applies to the whole run, including the draining of the process output.
+	 * </p>
 	 *
 	 * @param timeout the timeout to use.
 	 * @return the updated {@linkplain ProcessRunner} instance.
@@ -96,8 +149,29 @@ public final class ProcessRunner {
 		return this;
 	}
 
+	/**
+	 * Sets the grace period (in milliseconds) granted to the process tree for terminating, after the timeout has been
+	 * reached.
+	 * <p>
+	 * When the process times out, the process and all of its descendants are asked to terminate. Processes still
+	 * running after the grace period are destroyed forcibly. The same applies to descendants still holding the process
+	 * output open after the process has exited.
+	 * </p>
+	 *
+	 * @param gracePeriod the grace period to use.
+	 * @return the updated {@linkplain ProcessRunner} instance.
+	 */
+	public ProcessRunner withDestroyGracePeriod(long gracePeriod) {
+		this.destroyGracePeriodMillis = gracePeriod;
+		return this;
+	}
+
 	/**
 	 * Sets the capture-output option for process execution.
+	 * <p>
+	 * Captured output is kept in a ring buffer, which is limited to the last {@linkplain #withOutputLimit(int)} bytes
+	 * of the output.
+	 * </p>
 	 *
 	 * @param capture whether to capture the running's process output ({@code true}) or not ({@code false}).
 	 * @return the updated {@linkplain ProcessRunner} instance.
@@ -107,56 +181,396 @@ public final class ProcessRunner {
 		return this;
 	}
 
+	/**
+	 * Sets the maximum number of output bytes to capture.
+	 *
+	 * @param limit the maximum number of output bytes to capture.
+	 * @return the updated {@linkplain ProcessRunner} instance.
+	 * @see #withCaptureOutput(boolean)
+	 */
+	public ProcessRunner withOutputLimit(int limit) {
+		if (limit <= 0) {
+			throw new IllegalArgumentException("Invalid output limit: " + limit);
+		}
+		this.outputLimit = limit;
+		return this;
+	}
+
+	/**
+	 * Sets the file to spill the complete process output to.
+	 * <p>
+	 * In contrast to the captured output (see {@linkplain #withCaptureOutput(boolean)}) the spill file receives the
+	 * complete and unlimited process output. An already existing file is overwritten.
+	 * </p>
+	 *
+	 * @param spillFile the file to spill the process output to (may be {@code null} to disable spilling).
+	 * @return the updated {@linkplain ProcessRunner} instance.
+	 */
+	public ProcessRunner withOutputSpill(@Nullable Path spillFile) {
+		this.outputSpillFile = spillFile;
+		return this;
+	}
+
+	/**
+	 * Sets the consumer to invoke for every line of process output.
+	 * <p>
+	 * The consumer is invoked by the thread draining the process output. Lines exceeding the output limit are
+	 * submitted in chunks.
+	 * </p>
+	 *
+	 * @param lineConsumer the consumer to invoke for every line of output (may be {@code null} to disable line
+	 * processing).
+	 * @return the updated {@linkplain ProcessRunner} instance.
+	 */
+	public ProcessRunner withOutputLineConsumer(@Nullable Consumer<String> lineConsumer) {
+		this.outputLineConsumer = lineConsumer;
+		return this;
+	}
+
+	/**
+	 * Sets the {@linkplain Charset} to use for decoding the process output (defaults to UTF-8).
+	 *
+	 * @param charset the {@linkplain Charset} to use.
+	 * @return the updated {@linkplain ProcessRunner} instance.
+	 */
+	public ProcessRunner withOutputCharset(Charset charset) {
+		this.outputCharset = charset;
+		return this;
+	}
+
+	/**
+	 * Sets an environment variable for the process (in addition to the ones inherited from the VM).
+	 *
+	 * @param name the name of the environment variable to set.
+	 * @param value the value to set.
+	 * @return the updated {@linkplain ProcessRunner} instance.
+	 */
+	public ProcessRunner withEnvironment(String name, String value) {
+		this.environment.put(name, value);
+		return this;
+	}
+
+	/**
+	 * Creates a {@linkplain ProcessDaemon} keeping this runner's command running as a long-lived helper process.
+	 * <p>
+	 * The command must implement the framed request/response protocol described in {@linkplain ProcessDaemon}. The
+	 * runner's timeout is used as the response timeout.
+	 * </p>
+	 *
+	 * @return the created {@linkplain ProcessDaemon} instance.
+	 */
+	public ProcessDaemon toDaemon() {
+		return new ProcessDaemon(this.command.toArray(new String[this.command.size()])).withTimeout(this.timeoutMillis);
+	}
+
 	/**
 	 * Runs the command and waits until either the process completes or an error occurs.
+	 * <p>
+	 * If the process output is of interest (see {@linkplain #withCaptureOutput(boolean)},
+	 * {@linkplain #withOutputSpill(Path)} and {@linkplain #withOutputLineConsumer(Consumer)}), it is drained
+	 * concurrently by a separate thread. Otherwise it is discarded.
+	 * </p>
 	 *
 	 * @return the new status of this {@linkplain ProcessRunner} instance.
 	 */
 	public Status run() {
-		LOG.debug("Running ''{0}''...", this);
+		ProcessResult runResult = execute();
+
+		this.result = runResult;
+		return runResult.status();
+	}
+
+	/**
+	 * Starts the command asynchronously using a shared pool of daemon threads.
+	 * <p>
+	 * The returned {@linkplain CompletableFuture} completes as soon as the process completes or an error occurs.
+	 * Process output is streamed to the configured line consumer (see
+	 * {@linkplain #withOutputLineConsumer(Consumer)}) while the process is running. The status accessors of this
+	 * {@linkplain ProcessRunner} instance are not updated by an asynchronous run. The runner's configuration must not
+	 * be modified until the returned {@linkplain CompletableFuture} has been completed.
+	 * </p>
+	 *
+	 * @return the {@linkplain CompletableFuture} providing the {@linkplain ProcessResult}.
+	 */
+	public CompletableFuture<ProcessResult> start() {
+		return start(ASYNC_EXECUTOR);
+	}
+
+	/**
+	 * Starts the command asynchronously using the submitted {@linkplain Executor}.
+	 *
+	 * @param executor the {@linkplain Executor} to use for waiting on the process.
+	 * @return the {@linkplain CompletableFuture} providing the {@linkplain ProcessResult}.
+	 * @see #start()
+	 */
+	public CompletableFuture<ProcessResult> start(Executor executor) {
+		return CompletableFuture.supplyAsync(this::execute, executor);
+	}
+
+	/**
+	 * Runs multiple commands concurrently while limiting the number of simultaneously running processes.
+	 * <p>
+	 * The results are provided in the order of the submitted runners. Each runner must be distinct.
+	 * </p>
+	 *
+	 * @param runners the {@linkplain ProcessRunner} instances to run.
+	 * @param concurrency the maximum number of processes to run at the same time.
+	 * @return the {@linkplain CompletableFuture} providing the collected {@linkplain ProcessResult}s.
+	 */
+	public static CompletableFuture<List<ProcessResult>> startAll(List<ProcessRunner> runners, int concurrency) {
+		if (concurrency <= 0) {
+			throw new IllegalArgumentException("Invalid concurrency: " + concurrency);
+		}
 
-		this.statusException = Optional.empty();
-		this.exitValue = -1;
-		this.output = "";
+		CompletableFuture<List<ProcessResult>> batchResult;
 
+		if (runners.isEmpty()) {
+			batchResult = CompletableFuture.completedFuture(Collections.emptyList());
+		} else {
+			ExecutorService batchExecutor = Executors.newFixedThreadPool(Math.min(concurrency, runners.size()),
+					ProcessRunner::newExecutorThread);
+			List<CompletableFuture<ProcessResult>> results = new ArrayList<>(runners.size());
+
+			try {
+				for (ProcessRunner runner : runners) {
+					results.add(runner.start(batchExecutor));
+				}
+			} finally {
+				// Already submitted runs are still executed
+				batchExecutor.shutdown();
+			}
+			batchResult = CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()]))
+					.thenApply(ignored -> results.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+		}
+		return batchResult;
+	}
+
+	private static Thread newExecutorThread(Runnable runnable) {
+		String threadName = ProcessRunner.class.getSimpleName() + "-" + THREAD_COUNT.incrementAndGet();
+		Thread thread = new Thread(runnable, threadName);
+
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private ProcessResult execute() {
+		String command = toString();
+
+		LOG.debug("Running ''{0}''...", command);
+
+		long start = System.nanoTime();
+		Status status = Status.NOT_YET_RUN;
+		Optional<IOException> statusException = Optional.empty();
+		int exitValue = -1;
+		String output = "";
+		boolean outputTruncated = false;
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.timeoutMillis);
+		boolean drainOutput = this.captureOutput || this.outputSpillFile != null || this.outputLineConsumer != null;
 		Process process = null;
+		ProcessUsage usage = null;
 
 		try {
-			process = this.builder.start();
+			process = newProcessBuilder(drainOutput).start();
 		} catch (IOException e) {
 			LOG.warning(e, "Process start failed");
 
-			this.status = Status.START_FAILED;
-			this.statusException = Optional.of(e);
+			status = Status.START_FAILED;
+			statusException = Optional.of(e);
 		}
 		if (process != null) {
+			OutputDrain outputDrain = (drainOutput ? new OutputDrain(process.getInputStream()) : null);
+
+			usage = new ProcessUsage(process.toHandle());
+
 			try {
-				if (this.captureOutput) {
-					this.output = new String(process.getInputStream().readAllBytes());
+				if (outputDrain != null) {
+					outputDrain.start();
 				}
-				if (process.waitFor(this.timeoutMillis, TimeUnit.MILLISECONDS)) {
-					this.exitValue = process.exitValue();
-					this.status = Status.RUN_COMPLETED;
+				if (waitFor(process, deadline, usage)) {
+					exitValue = process.exitValue();
+					if (outputDrain == null || outputDrain.await(remainingMillis(deadline))) {
+						status = Status.RUN_COMPLETED;
+					} else {
+						// The output is still held open by a descendant process which has been started by the process
+						LOG.warning("Process output not closed in time");
+
+						status = Status.RUN_TIMED_OUT;
+						destroyProcesses(usage.descendants(), this.destroyGracePeriodMillis);
+						awaitOutputClosed(process, outputDrain);
+					}
 				} else {
 					LOG.warning("Process timed out");
 
-					this.status = Status.RUN_TIMED_OUT;
-					process.destroyForcibly();
+					status = Status.RUN_TIMED_OUT;
+					destroyProcessTree(process.toHandle(), this.destroyGracePeriodMillis);
+					awaitOutputClosed(process, outputDrain);
 				}
-			} catch (IOException e) {
-				LOG.warning(e, "Process run failed");
-
-				this.status = Status.RUN_FAILED;
-				this.statusException = Optional.of(e);
 			} catch (InterruptedException e) {
 				LOG.warning(e, "Process run interrupted");
 
 				Thread.currentThread().interrupt();
-				this.status = Status.RUN_INTERRUPTED;
-				this.statusException = Optional.of(new IOException(Exceptions.getMessage(e), e));
+				status = Status.RUN_INTERRUPTED;
+				statusException = Optional.of(new IOException(Exceptions.getMessage(e), e));
+				destroyProcessTree(process.toHandle(), 0);
+				awaitOutputClosed(process, outputDrain);
+			}
+			if (outputDrain != null) {
+				if (this.captureOutput) {
+					output = outputDrain.output();
+					outputTruncated = outputDrain.isOutputTruncated();
+				}
+
+				IOException drainException = outputDrain.drainException();
+
+				if (drainException != null && status == Status.RUN_COMPLETED) {
+					LOG.warning(drainException, "Process run failed");
+
+					status = Status.RUN_FAILED;
+					statusException = Optional.of(drainException);
+				}
+			}
+		}
+
+		Duration wallTime = Duration.ofNanos(System.nanoTime() - start);
+		ProcessResult runResult = new ProcessResult(command, status, statusException, exitValue, output,
+				outputTruncated, wallTime, (usage != null ? usage.cpuTime() : Optional.empty()),
+				(usage != null ? usage.peakRss() : OptionalLong.empty()));
+
+		LOG.info("Finished ''{0}''", runResult);
+
+		return runResult;
+	}
+
+	private static boolean waitFor(Process process, long deadline, ProcessUsage usage) throws InterruptedException {
+		boolean exited;
+
+		do {
+			usage.sample();
+			exited = process.waitFor(Math.min(remainingMillis(deadline), USAGE_SAMPLE_INTERVAL), TimeUnit.MILLISECONDS);
+		} while (!exited && remainingMillis(deadline) > 0);
+		return exited;
+	}
+
+	private static void awaitOutputClosed(Process process, @Nullable OutputDrain outputDrain) {
+		if (outputDrain != null) {
+			// Make sure the output written before the process has been destroyed is collected (even if interrupted)
+			boolean interrupted = Thread.interrupted();
+
+			try {
+				if (!outputDrain.await(OUTPUT_CLOSE_TIMEOUT)) {
+					LOG.warning("Process output not closed after destroying process; closing it");
+
+					// Still held open by an unreachable process; release our end of the pipe (the daemon drain thread
+					// ends as soon as the remaining writers are gone)
+					closeOutput(process);
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} finally {
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
 			}
 		}
-		return this.status;
+	}
+
+	private static void closeOutput(Process process) {
+		try {
+			process.getInputStream().close();
+		} catch (IOException e) {
+			LOG.warning(e, "Failed to close process output");
+		}
+	}
+
+	/**
+	 * Destroys a process and all of its descendants.
+	 * <p>
+	 * The process itself is asked to terminate first, giving it the chance to clean up its descendants on its own
+	 * (and keeping shells from reporting the termination of their children). Afterwards the remaining descendants are
+	 * asked to terminate. Processes still running after the grace period are destroyed forcibly. The descendants are
+	 * determined up front, as they are re-parented (and therefore become unreachable) as soon as their parent has
+	 * terminated.
+	 * </p>
+	 *
+	 * @param process the process to destroy.
+	 * @param gracePeriodMillis the grace period (in milliseconds) to wait before destroying processes forcibly.
+	 */
+	static void destroyProcessTree(ProcessHandle process, long gracePeriodMillis) {
+		List<ProcessHandle> processTree = new ArrayList<>();
+
+		processTree.add(process);
+		process.descendants().forEach(processTree::add);
+		if (gracePeriodMillis > 0) {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(gracePeriodMillis);
+
+			if (terminate(Collections.singletonList(process), deadline)) {
+				terminate(processTree.subList(1, processTree.size()), deadline);
+			}
+		}
+		destroyForcibly(processTree);
+	}
+
+	private static void destroyProcesses(List<ProcessHandle> processes, long gracePeriodMillis) {
+		if (gracePeriodMillis > 0) {
+			terminate(processes, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(gracePeriodMillis));
+		}
+		destroyForcibly(processes);
+	}
+
+	private static void destroyForcibly(List<ProcessHandle> processes) {
+		for (ProcessHandle process : processes) {
+			if (process.isAlive()) {
+				LOG.warning("Forcibly destroying process {0}", process.pid());
+
+				process.destroyForcibly();
+			}
+		}
+	}
+
+	private static boolean terminate(List<ProcessHandle> processes, long deadline) {
+		List<CompletableFuture<ProcessHandle>> exits = new ArrayList<>(processes.size());
+
+		for (ProcessHandle process : processes) {
+			if (process.supportsNormalTermination()) {
+				process.destroy();
+			}
+			exits.add(process.onExit());
+		}
+
+		boolean terminated = false;
+
+		try {
+			CompletableFuture<?>[] exitsArray = exits.toArray(new CompletableFuture<?>[exits.size()]);
+
+			CompletableFuture.allOf(exitsArray).get(remainingMillis(deadline), TimeUnit.MILLISECONDS);
+			terminated = true;
+		} catch (TimeoutException | ExecutionException e) {
+			LOG.debug(e, "Processes not terminated within grace period");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return terminated;
+	}
+
+	private ProcessBuilder newProcessBuilder(boolean drainOutput) {
+		ProcessBuilder processBuilder = new ProcessBuilder(this.command).redirectErrorStream(true);
+
+		processBuilder.environment().putAll(this.environment);
+		processBuilder.redirectOutput(drainOutput ? ProcessBuilder.Redirect.PIPE : ProcessBuilder.Redirect.DISCARD);
+		return processBuilder;
+	}
+
+	private static long remainingMillis(long deadline) {
+		return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+	}
+
+	/**
+	 * Gets the {@linkplain ProcessResult} of the last {@linkplain #run()} invocation.
+	 *
+	 * @return the {@linkplain ProcessResult} of the last {@linkplain #run()} invocation.
+	 */
+	public ProcessResult result() {
+		return this.result;
 	}
 
 	/**
@@ -166,13 +580,7 @@ public final class ProcessRunner {
 	 * @throws IOException if an error occurred during
 	 */
 	public void checkStatus() throws IOException {
-		if (this.status != Status.RUN_COMPLETED || this.exitValue != 0) {
-			if (this.statusException.isPresent()) {
-				throw this.statusException.get();
-			}
-			throw new IOException(
-					"Command '" + this + "' failed (status: " + this.status + "; exit value: " + this.exitValue + ")");
-		}
+		this.result.checkStatus();
 	}
 
 	/**
@@ -181,7 +589,7 @@ public final class ProcessRunner {
 	 * @return the optional {@linkplain IOException} caught during the last {@linkplain #run()} invocation.
 	 */
 	public Optional<IOException> statusException() {
-		return this.statusException;
+		return this.result.statusException();
 	}
 
 	/**
@@ -190,7 +598,7 @@ public final class ProcessRunner {
 	 * @return the process exit value of the last {@linkplain #run()} invocation.
 	 */
 	public int exitValue() {
-		return this.exitValue;
+		return this.result.exitValue();
 	}
 
 	/**
@@ -200,12 +608,139 @@ public final class ProcessRunner {
 	 * @see #withCaptureOutput(boolean)
 	 */
 	public String output() {
-		return this.output;
+		return this.result.output();
+	}
+
+	/**
+	 * Checks whether the process output captured during the last {@linkplain #run()} invocation has been truncated
+	 * (because it exceeded the output limit).
+	 *
+	 * @return {@code true} if the captured process output has been truncated.
+	 * @see #withOutputLimit(int)
+	 */
+	public boolean isOutputTruncated() {
+		return this.result.isOutputTruncated();
 	}
 
 	@Override
 	public String toString() {
-		return Strings.join(this.builder.command(), " ");
+		return Strings.join(this.command, " ");
+	}
+
+	private final class OutputDrain extends Thread {
+
+		private final InputStream outputStream;
+		private final int limit;
+		private final @Nullable Path spillFile;
+		private final @Nullable Consumer<String> lineConsumer;
+		private final Charset charset;
+		private final byte[] ring;
+		private int ringStart = 0;
+		private int ringLength = 0;
+		private long totalLength = 0;
+		private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+		private @Nullable IOException drainException = null;
+
+		OutputDrain(InputStream outputStream) {
+			super(ProcessRunner.class.getSimpleName() + " [" + ProcessRunner.this + "]");
+			this.outputStream = outputStream;
+			this.limit = ProcessRunner.this.outputLimit;
+			this.spillFile = ProcessRunner.this.outputSpillFile;
+			this.lineConsumer = ProcessRunner.this.outputLineConsumer;
+			this.charset = ProcessRunner.this.outputCharset;
+			this.ring = new byte[ProcessRunner.this.captureOutput ? this.limit : 0];
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			Path checkedSpillFile = this.spillFile;
+
+			try (InputStream input = this.outputStream;
+					OutputStream spill = (checkedSpillFile != null ? Files.newOutputStream(checkedSpillFile)
+							: OutputStream.nullOutputStream())) {
+				byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+				int read;
+
+				while ((read = input.read(buffer)) >= 0) {
+					spill.write(buffer, 0, read);
+					append(buffer, read);
+				}
+				flushLine();
+			} catch (IOException e) {
+				setDrainException(e);
+			}
+		}
+
+		private void append(byte[] buffer, int length) {
+			synchronized (this) {
+				int ringCapacity = this.ring.length;
+
+				if (ringCapacity > 0) {
+					for (int bufferIndex = Math.max(0, length - ringCapacity); bufferIndex < length; bufferIndex++) {
+						this.ring[(this.ringStart + this.ringLength) % ringCapacity] = buffer[bufferIndex];
+						if (this.ringLength < ringCapacity) {
+							this.ringLength++;
+						} else {
+							this.ringStart = (this.ringStart + 1) % ringCapacity;
+						}
+					}
+				}
+				this.totalLength += length;
+			}
+			if (this.lineConsumer != null) {
+				for (int bufferIndex = 0; bufferIndex < length; bufferIndex++) {
+					byte b = buffer[bufferIndex];
+
+					if (b == '\n') {
+						flushLine();
+					} else {
+						this.lineBuffer.write(b);
+						if (this.lineBuffer.size() >= this.limit) {
+							flushLine();
+						}
+					}
+				}
+			}
+		}
+
+		private void flushLine() {
+			Consumer<String> checkedLineConsumer = this.lineConsumer;
+
+			if (checkedLineConsumer != null && this.lineBuffer.size() > 0) {
+				String line = new String(this.lineBuffer.toByteArray(), this.charset);
+
+				this.lineBuffer.reset();
+				checkedLineConsumer.accept(line.endsWith("\r") ? line.substring(0, line.length() - 1) : line);
+			}
+		}
+
+		boolean await(long timeoutMillis) throws InterruptedException {
+			join(Math.max(1, timeoutMillis));
+			return !isAlive();
+		}
+
+		synchronized String output() {
+			byte[] bytes = new byte[this.ringLength];
+
+			for (int ringIndex = 0; ringIndex < this.ringLength; ringIndex++) {
+				bytes[ringIndex] = this.ring[(this.ringStart + ringIndex) % this.ring.length];
+			}
+			return new String(bytes, this.charset);
+		}
+
+		synchronized boolean isOutputTruncated() {
+			return this.totalLength > this.ringLength;
+		}
+
+		private synchronized void setDrainException(IOException e) {
+			this.drainException = e;
+		}
+
+		synchronized @Nullable IOException drainException() {
+			return this.drainException;
+		}
+
 	}
 
 }
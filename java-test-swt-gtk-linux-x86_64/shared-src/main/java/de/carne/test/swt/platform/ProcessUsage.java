@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Samples the resource usage of a process tree.
+ * <p>
+ * CPU time is taken from {@linkplain ProcessHandle.Info} and accumulated over all processes seen in the tree. The
+ * peak resident set size is read from {@code /proc/<pid>/status} (where available) and reports the largest peak of
+ * all processes seen in the tree. As the information vanishes as soon as a process has exited, the results reflect
+ * the last sample taken for every process.
+ * </p>
+ * <p>
+ * The descendants seen while sampling are recorded, so they can be reached even after they have been re-parented
+ * (e.g. because their parent has exited).
+ * </p>
+ */
+final class ProcessUsage {
+
+	private static final Path PROC_DIR = Paths.get("/proc");
+
+	private static final boolean PROC_STATUS_AVAILABLE = Files.isReadable(PROC_DIR.resolve("self").resolve("status"));
+
+	private static final String PEAK_RSS_KEY = "VmHWM:";
+
+	private final ProcessHandle process;
+	private final Map<Long, Duration> cpuTimes = new HashMap<>();
+	private final Map<Long, ProcessHandle> descendants = new LinkedHashMap<>();
+	private long peakRss = -1;
+
+	ProcessUsage(ProcessHandle process) {
+		this.process = process;
+	}
+
+	void sample() {
+		sample(this.process);
+		this.process.descendants().forEach(descendant -> {
+			this.descendants.putIfAbsent(descendant.pid(), descendant);
+			sample(descendant);
+		});
+	}
+
+	private void sample(ProcessHandle handle) {
+		handle.info().totalCpuDuration().ifPresent(cpuTime -> this.cpuTimes.merge(handle.pid(), cpuTime,
+				(cpuTime1, cpuTime2) -> (cpuTime1.compareTo(cpuTime2) >= 0 ? cpuTime1 : cpuTime2)));
+		if (PROC_STATUS_AVAILABLE) {
+			this.peakRss = Math.max(this.peakRss, readPeakRss(handle.pid()));
+		}
+	}
+
+	private static long readPeakRss(long pid) {
+		long peakRss = -1;
+
+		try {
+			for (String line : Files.readAllLines(PROC_DIR.resolve(Long.toString(pid)).resolve("status"),
+					StandardCharsets.US_ASCII)) {
+				if (line.startsWith(PEAK_RSS_KEY)) {
+					// Format: "VmHWM:	    1234 kB"
+					String value = line.substring(PEAK_RSS_KEY.length()).trim();
+					int unitIndex = value.indexOf(' ');
+
+					peakRss = Long.parseLong(unitIndex >= 0 ? value.substring(0, unitIndex) : value) * 1024;
+					break;
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			// Process already gone or status not parsable; simply skip this sample
+		}
+		return peakRss;
+	}
+
+	Optional<Duration> cpuTime() {
+		return this.cpuTimes.values().stream().reduce(Duration::plus);
+	}
+
+	OptionalLong peakRss() {
+		return (this.peakRss >= 0 ? OptionalLong.of(this.peakRss) : OptionalLong.empty());
+	}
+
+	List<ProcessHandle> descendants() {
+		return new ArrayList<>(this.descendants.values());
+	}
+
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform;
+
+import java.time.Duration;
+
+/**
+ * Result of an SWT capability probe (see {@linkplain PlatformHelper#probeCurrentThreadSWTCapability()}).
+ */
+public final class SWTCapability {
+
+	private final boolean capable;
+	private final String reason;
+	private final Duration latency;
+
+	/**
+	 * Constructs a new {@linkplain SWTCapability} instance.
+	 *
+	 * @param capable whether SWT code can be executed.
+	 * @param reason the reason for the probe result.
+	 * @param latency the time spent for probing.
+	 */
+	public SWTCapability(boolean capable, String reason, Duration latency) {
+		this.capable = capable;
+		this.reason = reason;
+		this.latency = latency;
+	}
+
+	/**
+	 * Checks whether SWT code can be executed.
+	 *
+	 * @return {@code true} if SWT code can be executed.
+	 */
+	public boolean isCapable() {
+		return this.capable;
+	}
+
+	/**
+	 * Gets the reason for the probe result.
+	 *
+	 * @return the reason for the probe result.
+	 */
+	public String reason() {
+		return this.reason;
+	}
+
+	/**
+	 * Gets the time spent for probing.
+	 *
+	 * @return the time spent for probing.
+	 */
+	public Duration latency() {
+		return this.latency;
+	}
+
+	@Override
+	public String toString() {
+		return (this.capable ? "SWT capable: " : "Not SWT capable: ") + this.reason + " (probe took "
+				+ this.latency.toMillis() + " ms)";
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+
+import de.carne.util.logging.Log;
+
+/**
+ * Utility class providing in-process screen capture support.
+ * <p>
+ * The screen content is captured via SWT on the display thread. The (comparably expensive) image encoding is
+ * performed in the background.
+ * </p>
+ */
+public final class ScreenCapture {
+
+	private static final Log LOG = new Log();
+
+	private static final ExecutorService ENCODER = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, ScreenCapture.class.getSimpleName() + " encoder");
+
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private ScreenCapture() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * Captures a screen area.
+	 * <p>
+	 * This function must be invoked on the display thread.
+	 * </p>
+	 *
+	 * @param display the {@linkplain Display} to capture.
+	 * @param area the screen area to capture (will be clipped to the display bounds).
+	 * @return the captured image data.
+	 */
+	public static ImageData capture(Display display, Rectangle area) {
+		long start = System.nanoTime();
+		Rectangle clippedArea = area.intersection(display.getBounds());
+
+		if (clippedArea.isEmpty()) {
+			throw new IllegalArgumentException("Empty capture area: " + area);
+		}
+
+		GC gc = new GC(display);
+		Image image = new Image(display, clippedArea.width, clippedArea.height);
+		ImageData imageData;
+
+		try {
+			gc.copyArea(image, clippedArea.x, clippedArea.y);
+			imageData = image.getImageData();
+		} finally {
+			image.dispose();
+			gc.dispose();
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		LOG.debug("Captured screen area {0} (took {1} ms)", clippedArea, elapsed / 1000000);
+
+		return imageData;
+	}
+
+	/**
+	 * Encodes image data in PNG format.
+	 * <p>
+	 * The actual encoding is performed in the background.
+	 * </p>
+	 *
+	 * @param imageData the image data to encode.
+	 * @return the {@linkplain CompletableFuture} providing the encoded image.
+	 */
+	public static CompletableFuture<byte[]> encodePng(ImageData imageData) {
+		return CompletableFuture.supplyAsync(() -> {
+			long start = System.nanoTime();
+			ImageLoader imageLoader = new ImageLoader();
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+			imageLoader.data = new ImageData[] { imageData };
+			imageLoader.save(buffer, SWT.IMAGE_PNG);
+
+			long elapsed = System.nanoTime() - start;
+
+			LOG.debug("Encoded screenshot (took {0} ms)", elapsed / 1000000);
+
+			return buffer.toByteArray();
+		}, ENCODER);
+	}
+
+}
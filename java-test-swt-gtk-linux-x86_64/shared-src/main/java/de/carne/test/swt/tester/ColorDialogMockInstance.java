@@ -16,34 +16,39 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.function.Supplier;
-
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.widgets.ColorDialog;
-import org.mockito.MockedConstruction;
-import org.mockito.Mockito;
 
 import de.carne.test.mock.ScopedMockInstance;
 import de.carne.util.logging.Log;
 
-final class ColorDialogMockInstance extends ScopedMockInstance<MockedConstruction<ColorDialog>, DialogMock<RGB>> {
+final class ColorDialogMockInstance extends ScopedMockInstance<DialogInterceptor.Scope, DialogMock<RGB>> {
 
 	private static final Log LOG = new Log();
 
-	ColorDialogMockInstance() {
-		super(ColorDialogMockInstance::initialize, new DialogMock<>());
+	ColorDialogMockInstance(DialogTelemetry telemetry) {
+		super(instance -> initialize(instance, telemetry), new DialogMock<>());
+	}
+
+	private static DialogInterceptor.Scope initialize(DialogMock<RGB> instance, DialogTelemetry telemetry) {
+		return DialogInterceptor.activate(ColorDialog.class, instance, telemetry, ColorDialogMockInstance::capture,
+				ColorDialogMockInstance::open, null);
 	}
 
-	private static MockedConstruction<ColorDialog> initialize(DialogMock<RGB> instance) {
-		return Mockito.mockConstruction(ColorDialog.class, Mockito.withSettings(),
-				(mock, context) -> Mockito.when(mock.open()).then(iom -> {
-					Supplier<RGB> resultSupplier = instance.pollResult();
-					RGB result = (resultSupplier != null ? resultSupplier.get() : null);
+	private static DialogInvocation capture(ColorDialog dialog) {
+		return new DialogInvocation(ColorDialog.class, dialog.getStyle(), dialog.getText());
+	}
+
+	@Nullable
+	private static RGB open(DialogMock<RGB> instance) {
+		instance.simulateLatency("ColorDialog");
+
+		RGB result = instance.pollResult();
 
-					LOG.info("ColorDialog.open() = {0}", result);
+		LOG.info("ColorDialog.open() = {0}", result);
 
-					return result;
-				}));
+		return result;
 	}
 
 }
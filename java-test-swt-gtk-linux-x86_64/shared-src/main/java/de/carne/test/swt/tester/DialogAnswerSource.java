@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Source of dialog results read lazily from a line based answer file (see
+ * {@linkplain DialogMock#offerResults(DialogAnswerSource)}).
+ * <p>
+ * Each non-empty line of the answer file not starting with {@value #COMMENT_PREFIX} defines one answer. The answer file
+ * is memory mapped and shared by all answer sources of the same file (opening a modified answer file maps it anew).
+ * The answers are read and parsed one at a time on demand. Hence memory usage stays constant regardless of the answer
+ * file size.
+ * </p>
+ * <p>
+ * Answer sources are immutable with respect to their configuration. Each configuration call creates a new answer source
+ * with its own read position. This way the same answer file can be processed by multiple dialog mocks independently
+ * (e.g. by distributing the answers among parallel workers via {@linkplain #shard(int, int)}).
+ * </p>
+ *
+ * @param <T> the actual answer type.
+ */
+public final class DialogAnswerSource<T> {
+
+	/**
+	 * Answer file lines starting with this prefix are ignored.
+	 */
+	public static final String COMMENT_PREFIX = "#";
+
+	private static final Map<Path, MappedFile> MAPPED_FILES = new ConcurrentHashMap<>();
+
+	private final ByteBuffer buffer;
+	private final Function<String, ? extends T> parser;
+	private final int column;
+	private final char separator;
+	private final int shardIndex;
+	private final int shardCount;
+	private int position = 0;
+	private int lineIndex = 0;
+
+	private DialogAnswerSource(ByteBuffer buffer, Function<String, ? extends T> parser, int column, char separator,
+			int shardIndex, int shardCount) {
+		this.buffer = buffer;
+		this.parser = parser;
+		this.column = column;
+		this.separator = separator;
+		this.shardIndex = shardIndex;
+		this.shardCount = shardCount;
+	}
+
+	/**
+	 * Opens an answer file providing the answers as plain strings.
+	 *
+	 * @param file the answer file to open.
+	 * @return the opened answer source.
+	 * @throws IOException if an I/O error occurs while mapping the answer file.
+	 */
+	public static DialogAnswerSource<String> open(Path file) throws IOException {
+		return open(file, Function.identity());
+	}
+
+	/**
+	 * Opens an answer file.
+	 *
+	 * @param <T> the actual answer type.
+	 * @param file the answer file to open.
+	 * @param parser the function to use for converting the answer strings to the actual answer type (e.g. a JSON
+	 * parser for answer files in JSON lines format).
+	 * @return the opened answer source.
+	 * @throws IOException if an I/O error occurs while mapping the answer file.
+	 */
+	public static <T> DialogAnswerSource<T> open(Path file, Function<String, ? extends T> parser) throws IOException {
+		Path mappedFilePath = file.toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(mappedFilePath, BasicFileAttributes.class);
+		MappedFile mappedFile;
+
+		try {
+			// Re-map the answer file, if it has been modified since it has been mapped (e.g. truncated)
+			mappedFile = MAPPED_FILES.compute(mappedFilePath, (path, cached) -> (cached != null
+					&& cached.matches(attributes) ? cached : mapFile(path, attributes)));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		return new DialogAnswerSource<>(mappedFile.buffer(), parser, -1, ',', 0, 1);
+	}
+
+	private static MappedFile mapFile(Path file, BasicFileAttributes attributes) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Answer file exceeds maximum size: " + file);
+			}
+			return new MappedFile(attributes, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Derives an answer source providing only a single column of each answer line.
+	 * <p>
+	 * The answer lines are interpreted as CSV records (columns separated by ',' and optionally enclosed in double
+	 * quotes).
+	 * </p>
+	 *
+	 * @param index the index of the column to provide.
+	 * @return the derived answer source.
+	 */
+	public DialogAnswerSource<T> column(int index) {
+		return column(index, ',');
+	}
+
+	/**
+	 * Derives an answer source providing only a single column of each answer line.
+	 *
+	 * @param index the index of the column to provide.
+	 * @param columnSeparator the column separator to use.
+	 * @return the derived answer source.
+	 */
+	public DialogAnswerSource<T> column(int index, char columnSeparator) {
+		if (index < 0) {
+			throw new IllegalArgumentException("Invalid column index: " + index);
+		}
+		return new DialogAnswerSource<>(this.buffer, this.parser, index, columnSeparator, this.shardIndex,
+				this.shardCount);
+	}
+
+	/**
+	 * Derives an answer source providing only a subset of the answers (shard).
+	 * <p>
+	 * The answers are assigned to the shards round robin. Hence the shard with index {@code index} provides the
+	 * answers {@code index}, {@code index + count}, {@code index + 2 * count} and so on.
+	 * </p>
+	 *
+	 * @param index the index of the shard to provide.
+	 * @param count the total number of shards.
+	 * @return the derived answer source.
+	 */
+	public DialogAnswerSource<T> shard(int index, int count) {
+		if (count <= 0 || index < 0 || index >= count) {
+			throw new IllegalArgumentException("Invalid shard: " + index + "/" + count);
+		}
+		return new DialogAnswerSource<>(this.buffer, this.parser, this.column, this.separator, index, count);
+	}
+
+	/**
+	 * Derives an answer source using a different parser.
+	 *
+	 * @param <R> the actual answer type.
+	 * @param answerParser the function to use for converting the answer strings to the actual answer type.
+	 * @return the derived answer source.
+	 */
+	public <R> DialogAnswerSource<R> map(Function<? super T, ? extends R> answerParser) {
+		return new DialogAnswerSource<>(this.buffer, this.parser.andThen(answerParser), this.column, this.separator,
+				this.shardIndex, this.shardCount);
+	}
+
+	synchronized @Nullable Object next(Object noResult) {
+		Object answer = noResult;
+		ByteBuffer lines = this.buffer.duplicate();
+		int limit = lines.limit();
+
+		while (answer == noResult && this.position < limit) {
+			int lineStart = this.position;
+			int lineEnd = lineStart;
+
+			while (lineEnd < limit && lines.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			this.position = lineEnd + 1;
+			if (lineEnd > lineStart && lines.get(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			if (lineEnd > lineStart) {
+				String line = StandardCharsets.UTF_8.decode(lines.limit(lineEnd).position(lineStart)).toString();
+
+				lines.limit(limit);
+				if (!line.startsWith(COMMENT_PREFIX)) {
+					int currentLineIndex = this.lineIndex;
+
+					this.lineIndex++;
+					if (currentLineIndex % this.shardCount == this.shardIndex) {
+						answer = this.parser.apply(this.column >= 0 ? extractColumn(line) : line);
+					}
+				}
+			}
+		}
+		return answer;
+	}
+
+	private String extractColumn(String line) {
+		StringBuilder value = new StringBuilder();
+		int columnIndex = 0;
+		boolean quoted = false;
+		int lineLength = line.length();
+
+		for (int charIndex = 0; charIndex < lineLength && columnIndex <= this.column; charIndex++) {
+			char c = line.charAt(charIndex);
+
+			if (quoted) {
+				if (c != '"') {
+					value.append(c);
+				} else if (charIndex + 1 < lineLength && line.charAt(charIndex + 1) == '"') {
+					value.append(c);
+					charIndex++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == this.separator) {
+				columnIndex++;
+				if (columnIndex <= this.column) {
+					value.setLength(0);
+				}
+			} else {
+				value.append(c);
+			}
+		}
+		return (columnIndex >= this.column ? value.toString() : "");
+	}
+
+	private static final class MappedFile {
+
+		private final long size;
+		private final FileTime lastModifiedTime;
+		private final ByteBuffer buffer;
+
+		MappedFile(BasicFileAttributes attributes, ByteBuffer buffer) {
+			this.size = attributes.size();
+			this.lastModifiedTime = attributes.lastModifiedTime();
+			this.buffer = buffer;
+		}
+
+		boolean matches(BasicFileAttributes attributes) {
+			return this.size == attributes.size() && this.lastModifiedTime.equals(attributes.lastModifiedTime());
+		}
+
+		ByteBuffer buffer() {
+			return this.buffer;
+		}
+
+	}
+
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Dialog;
+import org.mockito.AdditionalAnswers;
+import org.mockito.MockSettings;
+import org.mockito.MockedConstruction;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+
+import de.carne.util.Lazy;
+import de.carne.util.logging.Log;
+
+/**
+ * Process-wide interception of standard dialog invocations.
+ * <p>
+ * The interception for a dialog type is installed with the first activation of a dialog mock and is kept installed
+ * afterwards. Each {@code open()} call is routed to the currently active dialog mock of the corresponding type. Dialogs
+ * created or opened outside of any mock scope are passed on to the real dialog implementation. Subsequent and nested
+ * mock scopes hence only require the cheap activation and deactivation of the mock.
+ * </p>
+ * <p>
+ * Dialog mocks are activated per thread. An {@code open()} call is only routed to a mock activated by the calling
+ * thread (which is the UI thread of the running test). This keeps tests running in parallel (each on its own UI
+ * thread) from consuming each other's mock results.
+ * </p>
+ * <p>
+ * Two interception backends are available (selected via the system property {@value #PROPERTY_BACKEND}):
+ * </p>
+ * <ul>
+ * <li>{@value #BACKEND_MOCKITO} (default): A construction mock is installed per dialog type and activating thread
+ * (construction mocks are thread-local). Dialogs constructed while no mock is active delegate all invocations to a
+ * regularly constructed dialog instance.</li>
+ * <li>{@value #BACKEND_AGENT}: An advice is added to the dialogs' {@code open()} methods via
+ * {@linkplain DialogInterceptorAgent}. The dialogs are constructed as usual and the advice directly invokes the
+ * routing code (no Mockito invocation handling involved).</li>
+ * </ul>
+ */
+final class DialogInterceptor {
+
+	private static final Log LOG = new Log();
+
+	static final String PROPERTY_BACKEND = "de.carne.test.swt.tester.DIALOG_INTERCEPTOR";
+
+	static final String BACKEND_MOCKITO = "mockito";
+
+	static final String BACKEND_AGENT = "agent";
+
+	private static final Map<Class<?>, Route> ROUTES = new ConcurrentHashMap<>();
+
+	private static final Lazy<Backend> BACKEND = new Lazy<>(DialogInterceptor::selectBackend);
+
+	private DialogInterceptor() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * Activates a dialog mock.
+	 * <p>
+	 * The given dialog mock receives all {@code open()} calls of the given dialog type issued by the current thread
+	 * until the returned scope is closed (or another mock of the same dialog type is activated).
+	 * </p>
+	 *
+	 * @param <D> the dialog type to intercept.
+	 * @param <M> the dialog mock type.
+	 * @param dialogType the dialog type to intercept.
+	 * @param mock the dialog mock to activate.
+	 * @param telemetry the {@linkplain DialogTelemetry} to record the dialog invocations into.
+	 * @param argumentsCapture the function capturing the dialog arguments on {@code open()}.
+	 * @param openHandler the function providing the {@code open()} result for the active dialog mock.
+	 * @param defaultResult the {@code open()} result to use in case no dialog mock is active.
+	 * @return the activation scope.
+	 */
+	@SuppressWarnings("unchecked")
+	static <D extends Dialog, M> Scope activate(Class<D> dialogType, M mock, DialogTelemetry telemetry,
+			Function<D, DialogInvocation> argumentsCapture, Function<M, @Nullable Object> openHandler,
+			@Nullable Object defaultResult) {
+		Route route = ROUTES.computeIfAbsent(dialogType,
+				key -> new Route(key,
+						(Function<Object, DialogInvocation>) (Function<?, DialogInvocation>) argumentsCapture,
+						(Function<Object, @Nullable Object>) openHandler, defaultResult));
+
+		BACKEND.get().install(route);
+		return route.activate(new Activation(mock, telemetry));
+	}
+
+	/**
+	 * Prepares the interception of the given dialog types upfront.
+	 * <p>
+	 * Preparing the interception (e.g. the generation of the inline mock classes) is costly and otherwise charged to
+	 * the first test activating a dialog mock. The interception backend itself is not selected here, as the backend
+	 * property may still be set by the test (e.g. in a {@code @BeforeAll} callback). Instead the interception is
+	 * prepared for the backend currently named by the backend property (which defaults to {@value #BACKEND_MOCKITO}).
+	 * </p>
+	 *
+	 * @param dialogTypes the dialog types to prepare.
+	 */
+	@SafeVarargs
+	static void warmUp(Class<? extends Dialog>... dialogTypes) {
+		String backendName = System.getProperty(PROPERTY_BACKEND, BACKEND_MOCKITO);
+
+		if (BACKEND_MOCKITO.equals(backendName) || BACKEND_AGENT.equals(backendName)) {
+			long start = System.nanoTime();
+
+			if (BACKEND_AGENT.equals(backendName)) {
+				DialogInterceptorAgent.ensureInstalled();
+			} else {
+				for (Class<? extends Dialog> dialogType : dialogTypes) {
+					MockitoBackend.prepare(dialogType);
+				}
+			}
+
+			long elapsed = System.nanoTime() - start;
+
+			LOG.debug("Dialog interception warm-up finished (took {0} ms)", elapsed / 1000000);
+		} else {
+			LOG.debug("Skipping dialog interception warm-up (unknown backend ''{0}'')", backendName);
+		}
+	}
+
+	/**
+	 * Checks whether the Mockito based interception of the given dialog type has been prepared (see
+	 * {@linkplain #warmUp(Class...)}).
+	 *
+	 * @param dialogType the dialog type to check.
+	 * @return {@code true} if the interception of the given dialog type has been prepared.
+	 */
+	static boolean isPrepared(Class<? extends Dialog> dialogType) {
+		return MockitoBackend.isPrepared(dialogType);
+	}
+
+	private static Backend selectBackend() {
+		String backendName = System.getProperty(PROPERTY_BACKEND, BACKEND_MOCKITO);
+		Backend backend;
+
+		if (BACKEND_AGENT.equals(backendName)) {
+			backend = new AgentBackend();
+		} else {
+			if (!BACKEND_MOCKITO.equals(backendName)) {
+				LOG.warning("Unknown dialog interceptor backend ''{0}''; using backend ''{1}''", backendName,
+						BACKEND_MOCKITO);
+			}
+			backend = new MockitoBackend();
+		}
+		LOG.info("Using dialog interceptor backend ''{0}''", backend);
+		return backend;
+	}
+
+	/**
+	 * Activation scope of a dialog mock.
+	 */
+	static final class Scope implements AutoCloseable {
+
+		private final Route route;
+		private final Thread thread;
+		private final Activation activation;
+
+		Scope(Route route, Thread thread, Activation activation) {
+			this.route = route;
+			this.thread = thread;
+			this.activation = activation;
+		}
+
+		@Override
+		public void close() {
+			this.route.deactivate(this);
+		}
+
+	}
+
+	private static final class Activation {
+
+		final Object mock;
+		final DialogTelemetry telemetry;
+		volatile boolean active = true;
+		volatile @Nullable Activation previousThreadActivation = null;
+
+		Activation(Object mock, DialogTelemetry telemetry) {
+			this.mock = mock;
+			this.telemetry = telemetry;
+		}
+
+		@Nullable
+		static Activation firstActive(@Nullable Activation activation,
+				Function<Activation, @Nullable Activation> next) {
+			Activation current = activation;
+
+			while (current != null && !current.active) {
+				current = next.apply(current);
+			}
+			return current;
+		}
+
+	}
+
+	private static final class Route {
+
+		private final Class<?> dialogType;
+		private final Function<Object, DialogInvocation> argumentsCapture;
+		private final Function<Object, @Nullable Object> openHandler;
+		private final @Nullable Object defaultResult;
+		private final Map<Thread, Activation> threadActivations = new ConcurrentHashMap<>();
+
+		Route(Class<?> dialogType, Function<Object, DialogInvocation> argumentsCapture,
+				Function<Object, @Nullable Object> openHandler, @Nullable Object defaultResult) {
+			this.dialogType = dialogType;
+			this.argumentsCapture = argumentsCapture;
+			this.openHandler = openHandler;
+			this.defaultResult = defaultResult;
+		}
+
+		Class<?> dialogType() {
+			return this.dialogType;
+		}
+
+		Scope activate(Activation activation) {
+			Thread thread = Thread.currentThread();
+
+			activation.previousThreadActivation = this.threadActivations.put(thread, activation);
+			return new Scope(this, thread, activation);
+		}
+
+		void deactivate(Scope scope) {
+			Activation activation = scope.activation;
+
+			activation.active = false;
+
+			// Scopes may be closed in any order; hence skip already deactivated predecessors
+			Activation previousThreadActivation = Activation.firstActive(activation.previousThreadActivation,
+					previous -> previous.previousThreadActivation);
+
+			if (previousThreadActivation != null) {
+				this.threadActivations.replace(scope.thread, activation, previousThreadActivation);
+			} else {
+				this.threadActivations.remove(scope.thread, activation);
+			}
+		}
+
+		@Nullable
+		private Activation currentActivation() {
+			return Activation.firstActive(this.threadActivations.get(Thread.currentThread()),
+					previous -> previous.previousThreadActivation);
+		}
+
+		boolean isActive() {
+			return currentActivation() != null;
+		}
+
+		@Nullable
+		Object open(Object dialog) {
+			Activation activation = currentActivation();
+			Object result;
+
+			if (activation != null) {
+				DialogInvocation invocation = this.argumentsCapture.apply(dialog);
+				long openStart = System.nanoTime();
+
+				result = this.openHandler.apply(activation.mock);
+				activation.telemetry.record(invocation, openStart, System.nanoTime());
+			} else {
+				LOG.warning("{0}.open() invoked without active mock; using default result {1}",
+						this.dialogType.getSimpleName(), this.defaultResult);
+
+				result = this.defaultResult;
+			}
+			return result;
+		}
+
+	}
+
+	private interface Backend {
+
+		void install(Route route);
+
+	}
+
+	private static final class MockitoBackend implements Backend {
+
+		private static final Set<Class<?>> PREPARED_DIALOG_TYPES = ConcurrentHashMap.newKeySet();
+
+		// The construction mocks are never closed, as re-installing them is costly
+		private final ThreadLocal<Map<Class<?>, MockedConstruction<?>>> interceptions = ThreadLocal
+				.withInitial(HashMap::new);
+
+		static void prepare(Class<? extends Dialog> dialogType) {
+			if (PREPARED_DIALOG_TYPES.add(dialogType)) {
+				MockedConstruction<?> interception = Mockito.mockConstruction(dialogType);
+
+				// The inline mock class of the dialog type is retained after closing the construction mock
+				interception.close();
+				LOG.debug("Prepared {0} interception", dialogType.getSimpleName());
+			}
+		}
+
+		static boolean isPrepared(Class<? extends Dialog> dialogType) {
+			return PREPARED_DIALOG_TYPES.contains(dialogType);
+		}
+
+		@Override
+		public void install(Route route) {
+			this.interceptions.get().computeIfAbsent(route.dialogType(), dialogType -> {
+				long start = System.nanoTime();
+				MockedConstruction<?> interception = Mockito.mockConstruction(dialogType,
+						context -> constructionSettings(route, context));
+				long elapsed = System.nanoTime() - start;
+
+				LOG.debug("Installed {0} interception for thread ''{1}'' (took {2} ms; prepared: {3})",
+						dialogType.getSimpleName(), Thread.currentThread().getName(), elapsed / 1000000,
+						PREPARED_DIALOG_TYPES.contains(dialogType));
+
+				return interception;
+			});
+		}
+
+		private static MockSettings constructionSettings(Route route, MockedConstruction.Context context) {
+			MockSettings settings;
+
+			if (route.isActive()) {
+				settings = Mockito.withSettings().defaultAnswer(invocation -> answer(route, context, invocation));
+			} else {
+				// The constructor is not invoked for the mock; hence delegate to a regularly constructed dialog
+				Object dialog = Mockito.mock(route.dialogType(), Mockito.withSettings()
+						.useConstructor(context.arguments().toArray()).defaultAnswer(Mockito.CALLS_REAL_METHODS));
+
+				settings = Mockito.withSettings().defaultAnswer(AdditionalAnswers.delegatesTo(dialog));
+			}
+			return settings;
+		}
+
+		@Nullable
+		private static Object answer(Route route, MockedConstruction.Context context, InvocationOnMock invocation)
+				throws Throwable {
+			Method method = invocation.getMethod();
+			String methodName = method.getName();
+			Object answer;
+
+			if ("open".equals(methodName) && method.getParameterCount() == 0) {
+				answer = route.open(invocation.getMock());
+			} else if ("getStyle".equals(methodName) && method.getParameterCount() == 0) {
+				answer = style(context, invocation);
+			} else if (Dialog.class.isAssignableFrom(method.getDeclaringClass())
+					&& (methodName.startsWith("get") || methodName.startsWith("set"))) {
+				// Dialog getters and setters simply access fields; hence keep them working for argument capturing
+				answer = invocation.callRealMethod();
+			} else {
+				answer = Mockito.RETURNS_DEFAULTS.answer(invocation);
+			}
+			return answer;
+		}
+
+		@Nullable
+		private static Object style(MockedConstruction.Context context, InvocationOnMock invocation) throws Throwable {
+			// The constructor is not invoked for the mock; hence provide the style argument explicitly
+			Object style = null;
+
+			for (Object argument : context.arguments()) {
+				if (argument instanceof Integer) {
+					style = argument;
+				}
+			}
+			return (style != null ? style : invocation.callRealMethod());
+		}
+
+		@Override
+		public String toString() {
+			return BACKEND_MOCKITO;
+		}
+
+	}
+
+	private static final class AgentBackend implements Backend {
+
+		AgentBackend() {
+			long start = System.nanoTime();
+
+			DialogInterceptorAgent.ensureInstalled();
+			DialogInterceptorDispatcher.register(AgentBackend::dispatch);
+
+			long elapsed = System.nanoTime() - start;
+
+			LOG.debug("Installed dialog interception agent (took {0} ms)", elapsed / 1000000);
+		}
+
+		@Override
+		public void install(Route route) {
+			// Nothing to do here (all routes are served by the dispatcher, which ignores inactive routes)
+		}
+
+		@Nullable
+		private static Optional<Object> dispatch(Object dialog) {
+			Route route = ROUTES.get(dialog.getClass());
+
+			return (route != null && route.isActive() ? Optional.ofNullable(route.open(dialog)) : null);
+		}
+
+		@Override
+		public String toString() {
+			return BACKEND_AGENT;
+		}
+
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.util.Collections;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import net.bytebuddy.agent.ByteBuddyAgent;
+import net.bytebuddy.agent.builder.AgentBuilder;
+import net.bytebuddy.asm.Advice;
+import net.bytebuddy.dynamic.ClassFileLocator;
+import net.bytebuddy.dynamic.loading.ClassInjector;
+import net.bytebuddy.implementation.bytecode.assign.Assigner;
+import net.bytebuddy.matcher.ElementMatchers;
+
+/**
+ * Instrumentation agent providing the agent based dialog interception backend.
+ * <p>
+ * The agent adds an advice to the {@code open()} method of all standard dialogs. The advice invokes the dispatcher
+ * function currently registered in {@linkplain DialogInterceptorDispatcher}. If the dispatcher returns a result, the
+ * original {@code open()} call is skipped. Since the advice is inlined into the SWT classes, it must not reference any
+ * class outside of {@code java.base} besides {@linkplain DialogInterceptorDispatcher} (which is injected into the
+ * bootstrap class loader for this purpose).
+ * </p>
+ * <p>
+ * The agent is installed either at JVM start (via {@code -javaagent}) or on demand via self attach.
+ * </p>
+ */
+public final class DialogInterceptorAgent {
+
+	private DialogInterceptorAgent() {
+		// Prevent instantiation
+	}
+
+	// Located by name, as the class must not be loaded prior to its injection into the bootstrap class loader
+	private static final String DISPATCHER_CLASS_NAME = "de.carne.test.swt.tester.DialogInterceptorDispatcher";
+
+	private static final String INSTALLED_KEY = "de.carne.test.swt.tester.DialogInterceptorAgent.installed";
+
+	private static final String[] DIALOG_TYPE_NAMES = { "org.eclipse.swt.widgets.MessageBox",
+			"org.eclipse.swt.widgets.FileDialog", "org.eclipse.swt.widgets.DirectoryDialog",
+			"org.eclipse.swt.widgets.ColorDialog", "org.eclipse.swt.widgets.FontDialog",
+			"org.eclipse.swt.printing.PrintDialog" };
+
+	/**
+	 * Agent entry point in case the agent is installed at JVM start.
+	 *
+	 * @param args the agent arguments.
+	 * @param instrumentation the {@linkplain Instrumentation} instance to use.
+	 */
+	public static void premain(@Nullable String args, Instrumentation instrumentation) {
+		install(instrumentation);
+	}
+
+	/**
+	 * Agent entry point in case the agent is attached to a running JVM.
+	 *
+	 * @param args the agent arguments.
+	 * @param instrumentation the {@linkplain Instrumentation} instance to use.
+	 */
+	public static void agentmain(@Nullable String args, Instrumentation instrumentation) {
+		install(instrumentation);
+	}
+
+	/**
+	 * Makes sure the agent is installed (by attaching it to the running JVM if necessary).
+	 */
+	static void ensureInstalled() {
+		if (System.getProperty(INSTALLED_KEY) == null) {
+			install(ByteBuddyAgent.install());
+		}
+	}
+
+	private static synchronized void install(Instrumentation instrumentation) {
+		if (System.getProperty(INSTALLED_KEY) == null) {
+			injectDispatcher(instrumentation);
+			new AgentBuilder.Default().disableClassFormatChanges()
+					.with(AgentBuilder.RedefinitionStrategy.RETRANSFORMATION)
+					.type(ElementMatchers.namedOneOf(DIALOG_TYPE_NAMES))
+					.transform((builder, typeDescription, classLoader, module) -> builder
+							.visit(Advice.to(OpenAdvice.class)
+									.on(ElementMatchers.named("open").and(ElementMatchers.takesArguments(0)))))
+					.installOn(instrumentation);
+			System.setProperty(INSTALLED_KEY, Boolean.TRUE.toString());
+		}
+	}
+
+	private static void injectDispatcher(Instrumentation instrumentation) {
+		try {
+			byte[] dispatcherClassFile = ClassFileLocator.ForClassLoader
+					.of(DialogInterceptorAgent.class.getClassLoader()).locate(DISPATCHER_CLASS_NAME).resolve();
+
+			ClassInjector.UsingInstrumentation
+					.of(new File(System.getProperty("java.io.tmpdir")),
+							ClassInjector.UsingInstrumentation.Target.BOOTSTRAP, instrumentation)
+					.injectRaw(Collections.singletonMap(DISPATCHER_CLASS_NAME, dispatcherClassFile));
+		} catch (IOException e) {
+			throw new IllegalStateException("Failed to inject dialog dispatcher", e);
+		}
+	}
+
+	private static final class OpenAdvice {
+
+		private OpenAdvice() {
+			// Prevent instantiation
+		}
+
+		@SuppressWarnings("unused")
+		@Advice.OnMethodEnter(skipOn = Advice.OnNonDefaultValue.class)
+		@Nullable
+		static Optional<Object> enter(@Advice.This Object dialog) {
+			return DialogInterceptorDispatcher.dispatch(dialog);
+		}
+
+		@SuppressWarnings({ "unused", "null" })
+		@Advice.OnMethodExit
+		static void exit(@Advice.Enter @Nullable Optional<Object> intercepted,
+				@Advice.Return(readOnly = false, typing = Assigner.Typing.DYNAMIC) @Nullable Object result) {
+			if (intercepted != null) {
+				result = intercepted.orElse(null);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Holder of the dispatcher function invoked by the dialog interception agent (see {@linkplain DialogInterceptorAgent}).
+ * <p>
+ * This class is injected into the bootstrap class loader by the agent prior to any use. The agent's advice (which is
+ * inlined into the SWT dialog classes) as well as the interception backend hence access the very same class, regardless
+ * of the class loader the SWT classes have been loaded by. Therefore this class must not reference any class outside of
+ * {@code java.base}.
+ * </p>
+ */
+public final class DialogInterceptorDispatcher {
+
+	private static volatile @Nullable Function<Object, @Nullable Optional<Object>> dispatcher = null;
+
+	private DialogInterceptorDispatcher() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * Registers the dispatcher function.
+	 *
+	 * @param newDispatcher the dispatcher function to register.
+	 */
+	public static void register(Function<Object, @Nullable Optional<Object>> newDispatcher) {
+		dispatcher = newDispatcher;
+	}
+
+	/**
+	 * Dispatches a dialog's {@code open()} call.
+	 *
+	 * @param dialog the dialog to dispatch.
+	 * @return the {@code open()} result to use or {@code null} if the dialog is not intercepted.
+	 */
+	@Nullable
+	public static Optional<Object> dispatch(Object dialog) {
+		Function<Object, @Nullable Optional<Object>> currentDispatcher = dispatcher;
+
+		return (currentDispatcher != null ? currentDispatcher.apply(dialog) : null);
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Dialog;
+
+/**
+ * Record of a single (mocked) standard dialog invocation.
+ * <p>
+ * Besides the timing information the record contains the arguments the dialog has been configured with prior to
+ * invoking {@code open()}.
+ * </p>
+ */
+public final class DialogInvocation {
+
+	private final Class<? extends Dialog> dialogType;
+	private final int style;
+	private final String text;
+	private @Nullable String message = null;
+	private @Nullable String filterPath = null;
+	private List<String> filterExtensions = Collections.emptyList();
+	private @Nullable String actionName = null;
+	private long actionLatencyNanos = -1;
+	private long openDurationNanos = 0;
+
+	DialogInvocation(Class<? extends Dialog> dialogType, int style, @Nullable String text) {
+		this.dialogType = dialogType;
+		this.style = style;
+		this.text = (text != null ? text : "");
+	}
+
+	DialogInvocation message(@Nullable String capturedMessage) {
+		this.message = capturedMessage;
+		return this;
+	}
+
+	DialogInvocation filterPath(@Nullable String capturedFilterPath) {
+		this.filterPath = capturedFilterPath;
+		return this;
+	}
+
+	DialogInvocation filterExtensions(String @Nullable [] capturedFilterExtensions) {
+		this.filterExtensions = (capturedFilterExtensions != null
+				? Collections.unmodifiableList(Arrays.asList(capturedFilterExtensions.clone()))
+				: Collections.emptyList());
+		return this;
+	}
+
+	void recordTiming(@Nullable String triggeringActionName, long triggeringActionLatencyNanos,
+			long recordedOpenDurationNanos) {
+		this.actionName = triggeringActionName;
+		this.actionLatencyNanos = triggeringActionLatencyNanos;
+		this.openDurationNanos = recordedOpenDurationNanos;
+	}
+
+	/**
+	 * Gets the type of the invoked dialog.
+	 *
+	 * @return the type of the invoked dialog.
+	 */
+	public Class<? extends Dialog> dialogType() {
+		return this.dialogType;
+	}
+
+	/**
+	 * Gets the dialog style.
+	 *
+	 * @return the dialog style.
+	 */
+	public int style() {
+		return this.style;
+	}
+
+	/**
+	 * Gets the dialog text (title).
+	 *
+	 * @return the dialog text (title).
+	 */
+	public String text() {
+		return this.text;
+	}
+
+	/**
+	 * Gets the dialog message (only available for dialogs supporting a message).
+	 *
+	 * @return the dialog message.
+	 */
+	public Optional<String> message() {
+		return Optional.ofNullable(this.message);
+	}
+
+	/**
+	 * Gets the dialog filter path (only available for file and directory dialogs).
+	 *
+	 * @return the dialog filter path.
+	 */
+	public Optional<String> filterPath() {
+		return Optional.ofNullable(this.filterPath);
+	}
+
+	/**
+	 * Gets the dialog filter extensions (only available for file dialogs).
+	 *
+	 * @return the dialog filter extensions.
+	 */
+	public List<String> filterExtensions() {
+		return this.filterExtensions;
+	}
+
+	/**
+	 * Gets the name of the script action which triggered the dialog invocation.
+	 *
+	 * @return the name of the script action which triggered the dialog invocation (empty if the dialog has not been
+	 * invoked during a script action).
+	 */
+	public Optional<String> actionName() {
+		return Optional.ofNullable(this.actionName);
+	}
+
+	/**
+	 * Gets the time elapsed between the start of the triggering script action and the dialog invocation.
+	 *
+	 * @return the time elapsed between the start of the triggering script action and the dialog invocation (empty if
+	 * the dialog has not been invoked during a script action).
+	 */
+	public Optional<Duration> actionLatency() {
+		return (this.actionLatencyNanos >= 0 ? Optional.of(Duration.ofNanos(this.actionLatencyNanos))
+				: Optional.empty());
+	}
+
+	/**
+	 * Gets the time spent within the dialog's {@code open()} call (including any simulated latency).
+	 *
+	 * @return the time spent within the dialog's {@code open()} call.
+	 */
+	public Duration openDuration() {
+		return Duration.ofNanos(this.openDurationNanos);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		buffer.append(this.dialogType.getSimpleName()).append(" '").append(this.text).append("' (style: 0x")
+				.append(Integer.toHexString(this.style)).append(')');
+		if (this.message != null) {
+			buffer.append(" message: '").append(this.message).append('\'');
+		}
+		if (this.filterPath != null) {
+			buffer.append(" filterPath: '").append(this.filterPath).append('\'');
+		}
+		if (!this.filterExtensions.isEmpty()) {
+			buffer.append(" filterExtensions: ").append(this.filterExtensions);
+		}
+		if (this.actionName != null) {
+			buffer.append(" [").append(this.actionName).append(" + ")
+					.append(this.actionLatencyNanos / 1000000).append(" ms]");
+		}
+		buffer.append(" took ").append(this.openDurationNanos / 1000000).append(" ms");
+		return buffer.toString();
+	}
+
+}
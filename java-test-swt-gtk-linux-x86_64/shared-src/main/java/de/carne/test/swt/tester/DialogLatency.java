@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Display;
+
+import de.carne.util.logging.Log;
+
+/**
+ * Helper class used to simulate the blocking behavior of native dialogs.
+ * <p>
+ * A native dialog runs a nested event loop until it is closed. Simulating the latency the same way ensures that timers,
+ * asynchronous runnables and the like are executed during a mocked {@code open()} call, just like they would be for a
+ * real dialog.
+ * </p>
+ */
+final class DialogLatency {
+
+	private static final Log LOG = new Log();
+
+	private volatile @Nullable LongSupplier latencySupplier = null;
+
+	/**
+	 * Sets a fixed latency.
+	 *
+	 * @param latency the latency to simulate.
+	 */
+	void set(Duration latency) {
+		long latencyMillis = latency.toMillis();
+
+		this.latencySupplier = (latencyMillis > 0 ? () -> latencyMillis : null);
+	}
+
+	/**
+	 * Sets a uniformly distributed latency.
+	 *
+	 * @param minLatency the minimum latency to simulate.
+	 * @param maxLatency the maximum latency to simulate.
+	 */
+	void set(Duration minLatency, Duration maxLatency) {
+		long minLatencyMillis = minLatency.toMillis();
+		long maxLatencyMillis = maxLatency.toMillis();
+
+		if (minLatencyMillis < 0 || maxLatencyMillis < minLatencyMillis) {
+			throw new IllegalArgumentException("Invalid latency range: " + minLatency + " - " + maxLatency);
+		}
+		this.latencySupplier = (() -> ThreadLocalRandom.current().nextLong(minLatencyMillis, maxLatencyMillis + 1));
+	}
+
+	/**
+	 * Sets an arbitrary distributed latency.
+	 *
+	 * @param latencyMillisSupplier the supplier to invoke for getting the latency (in milliseconds) to simulate or
+	 * {@code null} to disable latency simulation.
+	 */
+	void set(@Nullable LongSupplier latencyMillisSupplier) {
+		this.latencySupplier = latencyMillisSupplier;
+	}
+
+	/**
+	 * Simulates the configured latency by running a nested event loop on the current thread's {@linkplain Display}.
+	 *
+	 * @param dialogName the name of the dialog to simulate the latency for.
+	 */
+	void simulate(String dialogName) {
+		LongSupplier checkedLatencySupplier = this.latencySupplier;
+
+		if (checkedLatencySupplier != null) {
+			long latencyMillis = checkedLatencySupplier.getAsLong();
+
+			if (latencyMillis > 0) {
+				LOG.debug("Simulating {0}.open() latency of {1} ms...", dialogName, latencyMillis);
+
+				runEventLoop(Display.getCurrent(), latencyMillis);
+			}
+		}
+	}
+
+	private static void runEventLoop(@Nullable Display display, long latencyMillis) {
+		if (display != null) {
+			AtomicBoolean elapsed = new AtomicBoolean();
+
+			display.timerExec((int) Math.min(latencyMillis, Integer.MAX_VALUE), () -> elapsed.set(true));
+			while (!elapsed.get() && !display.isDisposed()) {
+				if (!display.readAndDispatch()) {
+					display.sleep();
+				}
+			}
+		} else {
+			try {
+				Thread.sleep(latencyMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -16,20 +16,33 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * Class for mocking of standard dialog results during a test run.
+ * <p>
+ * Results may be offered from any thread. Results offered in bulk are queued as a single chunk and are consumed
+ * without any per-result allocation.
+ * </p>
  *
  * @param <T> the actual dialog result type.
  */
 public final class DialogMock<T> {
 
-	private Deque<@Nullable Supplier<T>> resultQueue = new LinkedList<>();
+	private static final Object NO_RESULT = new Object();
+
+	private final ConcurrentLinkedQueue<ResultChunk> resultQueue = new ConcurrentLinkedQueue<>();
+	private final DialogLatency latency = new DialogLatency();
 
 	/**
 	 * Adds a result to the result queue.
@@ -37,7 +50,7 @@ public final class DialogMock<T> {
 	 * @param result the result to add.
 	 */
 	public void offerResult(@Nullable T result) {
-		offerResult(result != null ? () -> result : null);
+		this.resultQueue.offer(new SingleResultChunk(result));
 	}
 
 	/**
@@ -46,12 +59,191 @@ public final class DialogMock<T> {
 	 * @param resultSupplier the result to add.
 	 */
 	public void offerResult(@Nullable Supplier<T> resultSupplier) {
-		this.resultQueue.offer(resultSupplier);
+		if (resultSupplier != null) {
+			this.resultQueue.offer(new SupplierResultChunk(resultSupplier));
+		} else {
+			offerResult((T) null);
+		}
+	}
+
+	/**
+	 * Adds multiple results to the result queue.
+	 * <p>
+	 * The results are consumed in the given order.
+	 * </p>
+	 *
+	 * @param results the results to add.
+	 */
+	@SafeVarargs
+	public final void offerResults(@Nullable T... results) {
+		if (results.length > 0) {
+			this.resultQueue.offer(new ArrayResultChunk(Arrays.copyOf(results, results.length, Object[].class)));
+		}
+	}
+
+	/**
+	 * Adds multiple results to the result queue.
+	 * <p>
+	 * The results are consumed in the given collection's iteration order.
+	 * </p>
+	 *
+	 * @param results the results to add.
+	 */
+	public void offerResults(Collection<? extends @Nullable T> results) {
+		if (!results.isEmpty()) {
+			this.resultQueue.offer(new ArrayResultChunk(results.toArray()));
+		}
+	}
+
+	/**
+	 * Adds all results provided by a {@linkplain DialogAnswerSource} to the result queue.
+	 * <p>
+	 * The results are read lazily from the answer source while the dialog mock is consumed. The results are consumed
+	 * ahead of any result queued afterwards.
+	 * </p>
+	 *
+	 * @param answerSource the answer source providing the results.
+	 */
+	public void offerResults(DialogAnswerSource<? extends T> answerSource) {
+		this.resultQueue.offer(new AnswerSourceResultChunk(answerSource));
 	}
 
+	/**
+	 * Sets a fixed latency to simulate for each {@code open()} call.
+	 * <p>
+	 * During the simulated latency a nested event loop is run (like a native dialog does).
+	 * </p>
+	 *
+	 * @param latency the latency to simulate ({@linkplain Duration#ZERO} disables latency simulation).
+	 * @return the updated mock.
+	 */
+	public DialogMock<T> withLatency(Duration latency) {
+		this.latency.set(latency);
+		return this;
+	}
+
+	/**
+	 * Sets a uniformly distributed latency to simulate for each {@code open()} call.
+	 * <p>
+	 * During the simulated latency a nested event loop is run (like a native dialog does).
+	 * </p>
+	 *
+	 * @param minLatency the minimum latency to simulate.
+	 * @param maxLatency the maximum latency to simulate.
+	 * @return the updated mock.
+	 */
+	public DialogMock<T> withLatency(Duration minLatency, Duration maxLatency) {
+		this.latency.set(minLatency, maxLatency);
+		return this;
+	}
+
+	/**
+	 * Sets an arbitrary distributed latency to simulate for each {@code open()} call.
+	 * <p>
+	 * During the simulated latency a nested event loop is run (like a native dialog does).
+	 * </p>
+	 *
+	 * @param latencyMillisSupplier the supplier to invoke for getting the latency (in milliseconds) to simulate.
+	 * @return the updated mock.
+	 */
+	public DialogMock<T> withLatency(LongSupplier latencyMillisSupplier) {
+		this.latency.set(latencyMillisSupplier);
+		return this;
+	}
+
+	void simulateLatency(String dialogName) {
+		this.latency.simulate(dialogName);
+	}
+
+	@SuppressWarnings("unchecked")
 	@Nullable
-	Supplier<T> pollResult() {
-		return this.resultQueue.poll();
+	T pollResult() {
+		Object result = NO_RESULT;
+		ResultChunk chunk;
+
+		while (result == NO_RESULT && (chunk = this.resultQueue.peek()) != null) {
+			result = chunk.next();
+			if (result == NO_RESULT) {
+				this.resultQueue.remove(chunk);
+			}
+		}
+		return (result != NO_RESULT ? (T) result : null);
+	}
+
+	private interface ResultChunk {
+
+		@Nullable
+		Object next();
+
+	}
+
+	// Extends AtomicReference directly, so that a single result is queued with a single allocation
+	private static final class SingleResultChunk extends AtomicReference<@Nullable Object> implements ResultChunk {
+
+		private static final long serialVersionUID = 1L;
+
+		SingleResultChunk(@Nullable Object result) {
+			super(result);
+		}
+
+		@Override
+		@Nullable
+		public Object next() {
+			return getAndSet(NO_RESULT);
+		}
+
+	}
+
+	private static final class ArrayResultChunk implements ResultChunk {
+
+		private final @Nullable Object[] results;
+		private final AtomicInteger cursor = new AtomicInteger();
+
+		ArrayResultChunk(@Nullable Object[] results) {
+			this.results = results;
+		}
+
+		@Override
+		@Nullable
+		public Object next() {
+			int resultIndex = this.cursor.getAndIncrement();
+
+			return (resultIndex < this.results.length ? this.results[resultIndex] : NO_RESULT);
+		}
+
+	}
+
+	private static final class SupplierResultChunk implements ResultChunk {
+
+		private final Supplier<?> resultSupplier;
+		private final AtomicBoolean polled = new AtomicBoolean();
+
+		SupplierResultChunk(Supplier<?> resultSupplier) {
+			this.resultSupplier = resultSupplier;
+		}
+
+		@Override
+		@Nullable
+		public Object next() {
+			return (this.polled.compareAndSet(false, true) ? this.resultSupplier.get() : NO_RESULT);
+		}
+
+	}
+
+	private static final class AnswerSourceResultChunk implements ResultChunk {
+
+		private final DialogAnswerSource<?> answerSource;
+
+		AnswerSourceResultChunk(DialogAnswerSource<?> answerSource) {
+			this.answerSource = answerSource;
+		}
+
+		@Override
+		@Nullable
+		public Object next() {
+			return this.answerSource.next(NO_RESULT);
+		}
+
 	}
 
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Dialog;
+
+/**
+ * Telemetry of all (mocked) standard dialog invocations within the scope of a {@linkplain SWTTest} instance.
+ * <p>
+ * Each {@code open()} call of a mocked dialog is recorded as a {@linkplain DialogInvocation} containing the configured
+ * dialog arguments as well as timing information.
+ * </p>
+ */
+public final class DialogTelemetry {
+
+	private final ConcurrentLinkedQueue<DialogInvocation> invocations = new ConcurrentLinkedQueue<>();
+	private volatile @Nullable String currentActionName = null;
+	private volatile long currentActionStart = 0;
+
+	DialogTelemetry() {
+		// Only instantiated by SWTTest
+	}
+
+	void actionStarted(String actionName) {
+		this.currentActionStart = System.nanoTime();
+		this.currentActionName = actionName;
+	}
+
+	void actionFinished() {
+		this.currentActionName = null;
+	}
+
+	void record(DialogInvocation invocation, long openStart, long openEnd) {
+		String actionName = this.currentActionName;
+		long actionLatency = (actionName != null ? Math.max(openStart - this.currentActionStart, 0) : -1);
+
+		invocation.recordTiming(actionName, actionLatency, openEnd - openStart);
+		this.invocations.add(invocation);
+	}
+
+	/**
+	 * Gets all recorded dialog invocations.
+	 *
+	 * @return all recorded dialog invocations (in invocation order).
+	 */
+	public List<DialogInvocation> invocations() {
+		return new ArrayList<>(this.invocations);
+	}
+
+	/**
+	 * Gets all recorded dialog invocations of a specific dialog type.
+	 *
+	 * @param dialogType the dialog type to get the invocations for.
+	 * @return all recorded dialog invocations of the requested dialog type (in invocation order).
+	 */
+	public List<DialogInvocation> invocations(Class<? extends Dialog> dialogType) {
+		return find(invocation -> invocation.dialogType().equals(dialogType)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Finds all recorded dialog invocations matching the given {@linkplain Predicate}.
+	 *
+	 * @param predicate the match criteria to use.
+	 * @return the matching dialog invocations (in invocation order).
+	 */
+	public Stream<DialogInvocation> find(Predicate<DialogInvocation> predicate) {
+		return this.invocations.stream().filter(predicate);
+	}
+
+	/**
+	 * Gets the number of recorded {@code open()} calls for a specific dialog type.
+	 *
+	 * @param dialogType the dialog type to get the number of calls for.
+	 * @return the number of recorded {@code open()} calls.
+	 */
+	public int openCount(Class<? extends Dialog> dialogType) {
+		return (int) find(invocation -> invocation.dialogType().equals(dialogType)).count();
+	}
+
+	/**
+	 * Discards all recorded dialog invocations.
+	 */
+	public void reset() {
+		this.invocations.clear();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		for (DialogInvocation invocation : this.invocations) {
+			buffer.append(invocation).append(System.lineSeparator());
+		}
+		return buffer.toString();
+	}
+
+}
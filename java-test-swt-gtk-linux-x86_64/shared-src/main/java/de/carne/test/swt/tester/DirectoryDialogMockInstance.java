@@ -16,33 +16,39 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.function.Supplier;
-
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.widgets.DirectoryDialog;
-import org.mockito.MockedConstruction;
-import org.mockito.Mockito;
 
 import de.carne.test.mock.ScopedMockInstance;
 import de.carne.util.logging.Log;
 
-final class DirectoryDialogMockInstance extends ScopedMockInstance<MockedConstruction<DirectoryDialog>, DialogMock<String>> {
+final class DirectoryDialogMockInstance extends ScopedMockInstance<DialogInterceptor.Scope, DialogMock<String>> {
 
 	private static final Log LOG = new Log();
 
-	DirectoryDialogMockInstance() {
-		super(DirectoryDialogMockInstance::initialize, new DialogMock<>());
+	DirectoryDialogMockInstance(DialogTelemetry telemetry) {
+		super(instance -> initialize(instance, telemetry), new DialogMock<>());
+	}
+
+	private static DialogInterceptor.Scope initialize(DialogMock<String> instance, DialogTelemetry telemetry) {
+		return DialogInterceptor.activate(DirectoryDialog.class, instance, telemetry,
+				DirectoryDialogMockInstance::capture, DirectoryDialogMockInstance::open, null);
 	}
 
-	private static MockedConstruction<DirectoryDialog> initialize(DialogMock<String> instance) {
-		return Mockito.mockConstruction(DirectoryDialog.class, Mockito.withSettings(),
-				(mock, context) -> Mockito.when(mock.open()).then(iom -> {
-					Supplier<String> resultSupplier = instance.pollResult();
-					String result = (resultSupplier != null ? resultSupplier.get() : null);
+	private static DialogInvocation capture(DirectoryDialog dialog) {
+		return new DialogInvocation(DirectoryDialog.class, dialog.getStyle(), dialog.getText())
+				.message(dialog.getMessage()).filterPath(dialog.getFilterPath());
+	}
+
+	@Nullable
+	private static String open(DialogMock<String> instance) {
+		instance.simulateLatency("DirectoryDialog");
+
+		String result = instance.pollResult();
 
-					LOG.info("DirectoryDialog.open() = {0}", result);
+		LOG.info("DirectoryDialog.open() = {0}", result);
 
-					return result;
-				}));
+		return result;
 	}
 
 }
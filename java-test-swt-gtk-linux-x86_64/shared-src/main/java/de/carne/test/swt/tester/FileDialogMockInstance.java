@@ -16,33 +16,39 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.function.Supplier;
-
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.widgets.FileDialog;
-import org.mockito.MockedConstruction;
-import org.mockito.Mockito;
 
 import de.carne.test.mock.ScopedMockInstance;
 import de.carne.util.logging.Log;
 
-final class FileDialogMockInstance extends ScopedMockInstance<MockedConstruction<FileDialog>, DialogMock<String>> {
+final class FileDialogMockInstance extends ScopedMockInstance<DialogInterceptor.Scope, DialogMock<String>> {
 
 	private static final Log LOG = new Log();
 
-	FileDialogMockInstance() {
-		super(FileDialogMockInstance::initialize, new DialogMock<>());
+	FileDialogMockInstance(DialogTelemetry telemetry) {
+		super(instance -> initialize(instance, telemetry), new DialogMock<>());
+	}
+
+	private static DialogInterceptor.Scope initialize(DialogMock<String> instance, DialogTelemetry telemetry) {
+		return DialogInterceptor.activate(FileDialog.class, instance, telemetry, FileDialogMockInstance::capture,
+				FileDialogMockInstance::open, null);
 	}
 
-	private static MockedConstruction<FileDialog> initialize(DialogMock<String> instance) {
-		return Mockito.mockConstruction(FileDialog.class, Mockito.withSettings(),
-				(mock, context) -> Mockito.when(mock.open()).then(iom -> {
-					Supplier<String> resultSupplier = instance.pollResult();
-					String result = (resultSupplier != null ? resultSupplier.get() : null);
+	private static DialogInvocation capture(FileDialog dialog) {
+		return new DialogInvocation(FileDialog.class, dialog.getStyle(), dialog.getText())
+				.filterPath(dialog.getFilterPath()).filterExtensions(dialog.getFilterExtensions());
+	}
+
+	@Nullable
+	private static String open(DialogMock<String> instance) {
+		instance.simulateLatency("FileDialog");
+
+		String result = instance.pollResult();
 
-					LOG.info("FileDialog.open() = {0}", result);
+		LOG.info("FileDialog.open() = {0}", result);
 
-					return result;
-				}));
+		return result;
 	}
 
 }
@@ -16,34 +16,39 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.function.Supplier;
-
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.widgets.FontDialog;
-import org.mockito.MockedConstruction;
-import org.mockito.Mockito;
 
 import de.carne.test.mock.ScopedMockInstance;
 import de.carne.util.logging.Log;
 
-final class FontDialogMockInstance extends ScopedMockInstance<MockedConstruction<FontDialog>, DialogMock<FontData>> {
+final class FontDialogMockInstance extends ScopedMockInstance<DialogInterceptor.Scope, DialogMock<FontData>> {
 
 	private static final Log LOG = new Log();
 
-	FontDialogMockInstance() {
-		super(FontDialogMockInstance::initialize, new DialogMock<>());
+	FontDialogMockInstance(DialogTelemetry telemetry) {
+		super(instance -> initialize(instance, telemetry), new DialogMock<>());
+	}
+
+	private static DialogInterceptor.Scope initialize(DialogMock<FontData> instance, DialogTelemetry telemetry) {
+		return DialogInterceptor.activate(FontDialog.class, instance, telemetry, FontDialogMockInstance::capture,
+				FontDialogMockInstance::open, null);
 	}
 
-	private static MockedConstruction<FontDialog> initialize(DialogMock<FontData> instance) {
-		return Mockito.mockConstruction(FontDialog.class, Mockito.withSettings(),
-				(mock, context) -> Mockito.when(mock.open()).then(iom -> {
-					Supplier<FontData> resultSupplier = instance.pollResult();
-					FontData result = (resultSupplier != null ? resultSupplier.get() : null);
+	private static DialogInvocation capture(FontDialog dialog) {
+		return new DialogInvocation(FontDialog.class, dialog.getStyle(), dialog.getText());
+	}
+
+	@Nullable
+	private static FontData open(DialogMock<FontData> instance) {
+		instance.simulateLatency("FontDialog");
+
+		FontData result = instance.pollResult();
 
-					LOG.info("FontDialog.open() = {0}", result);
+		LOG.info("FontDialog.open() = {0}", result);
 
-					return result;
-				}));
+		return result;
 	}
 
 }
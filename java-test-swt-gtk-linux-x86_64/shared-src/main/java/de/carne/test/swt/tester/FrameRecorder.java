@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+
+import de.carne.test.swt.platform.ScreenCapture;
+import de.carne.util.logging.Log;
+
+/**
+ * Helper class used to continuously record downscaled frames of the application's active Shell.
+ * <p>
+ * The frames are stored in a fixed-size ring buffer. Frames identical to the previous one are not stored again, but
+ * only extend the display time of the previous frame. Only the oldest frame in the buffer is stored completely; every
+ * other frame is stored as the rectangle of pixels which changed compared to its predecessor. When the oldest frame is
+ * dropped, its successor is completed by applying its changes to the dropped frame. The buffer slots are allocated on
+ * first use and sized to the stored pixels. Only the screen copy itself is performed on the display thread;
+ * downscaling and encoding are performed by the recorder thread.
+ * </p>
+ */
+final class FrameRecorder {
+
+	private static final Log LOG = new Log();
+
+	/**
+	 * Maximum width of a recorded frame.
+	 */
+	static final int FRAME_WIDTH = 320;
+
+	/**
+	 * Maximum height of a recorded frame.
+	 */
+	static final int FRAME_HEIGHT = 240;
+
+	private static final PaletteData FRAME_PALETTE = new PaletteData(0xff0000, 0x00ff00, 0x0000ff);
+
+	private final int frameRate;
+	private final int[][] frames;
+	private final int[] frameWidths;
+	private final int[] frameHeights;
+	// The changed rectangle stored for the frame (x, y, width, height)
+	private final int[] frameDeltas;
+	private final long[] frameTimestamps;
+	private final int[] frameRepeats;
+	private int[] scratchFrame = new int[0];
+	private int[] previousFrame = new int[0];
+	private int frameIndex = -1;
+	private int frameCount = 0;
+	private int[] rowBuffer = new int[0];
+	private final AtomicBoolean capturePending = new AtomicBoolean();
+	private final AtomicReference<@Nullable ScheduledExecutorService> recorder = new AtomicReference<>();
+
+	/**
+	 * Constructs a new {@linkplain FrameRecorder} instance.
+	 *
+	 * @param frameRate the number of frames to capture per second.
+	 * @param history the time span of frames to keep.
+	 */
+	FrameRecorder(int frameRate, Duration history) {
+		if (frameRate <= 0 || frameRate > 50) {
+			throw new IllegalArgumentException("Invalid frame rate: " + frameRate);
+		}
+
+		int slotCount = (int) Math.max(1, (history.toMillis() * frameRate) / 1000);
+
+		this.frameRate = frameRate;
+		this.frames = new int[slotCount][];
+		this.frameWidths = new int[slotCount];
+		this.frameHeights = new int[slotCount];
+		this.frameDeltas = new int[slotCount * 4];
+		this.frameTimestamps = new long[slotCount];
+		this.frameRepeats = new int[slotCount];
+	}
+
+	/**
+	 * Starts recording.
+	 *
+	 * @param display the {@linkplain Display} to record.
+	 */
+	void start(Display display) {
+		ScheduledExecutorService checkedRecorder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, FrameRecorder.class.getSimpleName());
+
+			thread.setDaemon(true);
+			return thread;
+		});
+		long period = 1000000000l / this.frameRate;
+
+		if (!this.recorder.compareAndSet(null, checkedRecorder)) {
+			checkedRecorder.shutdown();
+			throw new IllegalStateException("Frame recording already started");
+		}
+		checkedRecorder.scheduleAtFixedRate(() -> requestCapture(display, checkedRecorder), 0, period,
+				TimeUnit.NANOSECONDS);
+
+		LOG.debug("Frame recording started ({0} fps; {1} frames)", this.frameRate, this.frames.length);
+	}
+
+	/**
+	 * Stops recording.
+	 *
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the recorder thread.
+	 */
+	void stop() throws InterruptedException {
+		ScheduledExecutorService checkedRecorder = this.recorder.getAndSet(null);
+
+		if (checkedRecorder != null) {
+			checkedRecorder.shutdown();
+			checkedRecorder.awaitTermination(Timing.STEP_TIMEOUT, TimeUnit.MILLISECONDS);
+
+			LOG.debug("Frame recording stopped ({0} frames recorded)", this.frameCount);
+		}
+	}
+
+	private void requestCapture(Display display, ScheduledExecutorService checkedRecorder) {
+		if (this.capturePending.compareAndSet(false, true)) {
+			try {
+				display.asyncExec(() -> capture(display, checkedRecorder));
+			} catch (SWTException e) {
+				// Display already disposed
+				this.capturePending.set(false);
+			}
+		}
+	}
+
+	private void capture(Display display, ScheduledExecutorService checkedRecorder) {
+		try {
+			Shell shell = display.getActiveShell();
+
+			if (shell == null) {
+				Shell[] shells = display.getShells();
+
+				shell = (shells.length > 0 ? shells[shells.length - 1] : null);
+			}
+			if (shell != null && shell.isVisible()) {
+				Rectangle shellBounds = shell.getBounds();
+
+				if (!shellBounds.intersection(display.getBounds()).isEmpty()) {
+					ImageData imageData = ScreenCapture.capture(display, shellBounds);
+					long timestamp = System.currentTimeMillis();
+
+					checkedRecorder.execute(() -> store(imageData, timestamp));
+				}
+			}
+		} catch (RuntimeException e) {
+			LOG.debug(e, "Frame capture failed");
+		} finally {
+			this.capturePending.set(false);
+		}
+	}
+
+	/**
+	 * Stores a captured frame.
+	 *
+	 * @param imageData the captured image.
+	 * @param timestamp the capture time.
+	 */
+	synchronized void store(ImageData imageData, long timestamp) {
+		int scale = Math.max(1, Math.max((imageData.width + FRAME_WIDTH - 1) / FRAME_WIDTH,
+				(imageData.height + FRAME_HEIGHT - 1) / FRAME_HEIGHT));
+		int frameWidth = imageData.width / scale;
+		int frameHeight = imageData.height / scale;
+		int[] frame = this.scratchFrame;
+		int[] row = this.rowBuffer;
+
+		if (frame.length < frameWidth * frameHeight) {
+			frame = new int[FRAME_WIDTH * FRAME_HEIGHT];
+			this.scratchFrame = frame;
+		}
+		if (row.length < imageData.width) {
+			row = new int[imageData.width];
+			this.rowBuffer = row;
+		}
+		for (int y = 0; y < frameHeight; y++) {
+			imageData.getPixels(0, y * scale, imageData.width, row, 0);
+			for (int x = 0; x < frameWidth; x++) {
+				frame[y * frameWidth + x] = toRGB(imageData.palette, row[x * scale]);
+			}
+		}
+
+		boolean sameSize = this.frameCount > 0 && this.frameWidths[this.frameIndex] == frameWidth
+				&& this.frameHeights[this.frameIndex] == frameHeight;
+		int[] delta = (sameSize ? changedRectangle(frame, this.previousFrame, frameWidth, frameHeight)
+				: new int[] { 0, 0, frameWidth, frameHeight });
+
+		if (delta[2] == 0) {
+			this.frameRepeats[this.frameIndex]++;
+		} else {
+			int nextFrameIndex = (this.frameIndex + 1) % this.frames.length;
+
+			if (this.frameCount == this.frames.length) {
+				dropOldestFrame(nextFrameIndex);
+			}
+			if (this.frameCount == 0 || this.frames.length == 1) {
+				// The oldest frame must be stored completely
+				delta = new int[] { 0, 0, frameWidth, frameHeight };
+			}
+			storeRectangle(nextFrameIndex, frame, frameWidth, delta);
+			this.frameIndex = nextFrameIndex;
+			this.frameCount = Math.min(this.frameCount + 1, this.frames.length);
+			this.frameWidths[nextFrameIndex] = frameWidth;
+			this.frameHeights[nextFrameIndex] = frameHeight;
+			this.frameTimestamps[nextFrameIndex] = timestamp;
+			this.frameRepeats[nextFrameIndex] = 1;
+			// Only swap the frame buffers once the new frame is known to differ from the previous one
+			this.scratchFrame = this.previousFrame;
+			this.previousFrame = frame;
+		}
+	}
+
+	private static int[] changedRectangle(int[] frame, int[] previousFrame, int frameWidth, int frameHeight) {
+		int left = frameWidth;
+		int top = frameHeight;
+		int right = -1;
+		int bottom = -1;
+
+		for (int y = 0; y < frameHeight; y++) {
+			int rowStart = y * frameWidth;
+			int firstChange = Arrays.mismatch(frame, rowStart, rowStart + frameWidth, previousFrame, rowStart,
+					rowStart + frameWidth);
+
+			if (firstChange >= 0) {
+				int lastChange = frameWidth - 1;
+
+				while (frame[rowStart + lastChange] == previousFrame[rowStart + lastChange]) {
+					lastChange--;
+				}
+				left = Math.min(left, firstChange);
+				right = Math.max(right, lastChange);
+				top = Math.min(top, y);
+				bottom = y;
+			}
+		}
+		return (right >= 0 ? new int[] { left, top, right - left + 1, bottom - top + 1 } : new int[] { 0, 0, 0, 0 });
+	}
+
+	private void dropOldestFrame(int oldestFrameIndex) {
+		int successorFrameIndex = (oldestFrameIndex + 1) % this.frames.length;
+
+		if (successorFrameIndex != oldestFrameIndex) {
+			int successorDeltaIndex = successorFrameIndex * 4;
+			int frameWidth = this.frameWidths[successorFrameIndex];
+			int frameHeight = this.frameHeights[successorFrameIndex];
+
+			if (this.frameDeltas[successorDeltaIndex + 2] != frameWidth
+					|| this.frameDeltas[successorDeltaIndex + 3] != frameHeight) {
+				// Complete the successor by applying its changes to the oldest (complete) frame and swap the buffers
+				int[] completedFrame = this.frames[oldestFrameIndex];
+
+				applyRectangle(completedFrame, frameWidth, this.frames[successorFrameIndex], this.frameDeltas,
+						successorDeltaIndex);
+				this.frames[oldestFrameIndex] = this.frames[successorFrameIndex];
+				this.frames[successorFrameIndex] = completedFrame;
+				this.frameDeltas[successorDeltaIndex] = 0;
+				this.frameDeltas[successorDeltaIndex + 1] = 0;
+				this.frameDeltas[successorDeltaIndex + 2] = frameWidth;
+				this.frameDeltas[successorDeltaIndex + 3] = frameHeight;
+			}
+		}
+	}
+
+	private static void applyRectangle(int[] frame, int frameWidth, int[] rectangle, int[] deltas, int deltaIndex) {
+		int deltaX = deltas[deltaIndex];
+		int deltaY = deltas[deltaIndex + 1];
+		int deltaWidth = deltas[deltaIndex + 2];
+		int deltaHeight = deltas[deltaIndex + 3];
+
+		for (int y = 0; y < deltaHeight; y++) {
+			System.arraycopy(rectangle, y * deltaWidth, frame, (deltaY + y) * frameWidth + deltaX, deltaWidth);
+		}
+	}
+
+	private void storeRectangle(int slotIndex, int[] frame, int frameWidth, int[] delta) {
+		int deltaIndex = slotIndex * 4;
+		int deltaWidth = delta[2];
+		int deltaHeight = delta[3];
+		int[] slot = this.frames[slotIndex];
+
+		if (slot == null || slot.length < deltaWidth * deltaHeight) {
+			slot = new int[deltaWidth * deltaHeight];
+			this.frames[slotIndex] = slot;
+		}
+		for (int y = 0; y < deltaHeight; y++) {
+			System.arraycopy(frame, (delta[1] + y) * frameWidth + delta[0], slot, y * deltaWidth, deltaWidth);
+		}
+		System.arraycopy(delta, 0, this.frameDeltas, deltaIndex, 4);
+	}
+
+	private static int toRGB(PaletteData palette, int pixel) {
+		int rgb;
+
+		if (palette.isDirect) {
+			int red = shift(pixel & palette.redMask, palette.redShift);
+			int green = shift(pixel & palette.greenMask, palette.greenShift);
+			int blue = shift(pixel & palette.blueMask, palette.blueShift);
+
+			rgb = (red << 16) | (green << 8) | blue;
+		} else {
+			RGB color = palette.colors[pixel];
+
+			rgb = (color.red << 16) | (color.green << 8) | color.blue;
+		}
+		return rgb;
+	}
+
+	private static int shift(int value, int shift) {
+		return (shift < 0 ? value >>> -shift : value << shift);
+	}
+
+	/**
+	 * Writes the recorded frames (oldest first) as a PNG image sequence.
+	 * <p>
+	 * Besides the frame images an index file is written, listing each frame's file, capture time and number of
+	 * identical captures.
+	 * </p>
+	 *
+	 * @param dumpFileWriter the function to use for writing the dump files (by extension).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	synchronized void dump(DumpFileWriter dumpFileWriter) throws IOException {
+		if (this.frameCount > 0) {
+			StringBuilder index = new StringBuilder();
+			int firstFrameIndex = (this.frameIndex - this.frameCount + 1 + this.frames.length) % this.frames.length;
+			long firstTimestamp = this.frameTimestamps[firstFrameIndex];
+			int[] frame = new int[FRAME_WIDTH * FRAME_HEIGHT];
+
+			for (int frameNumber = 0; frameNumber < this.frameCount; frameNumber++) {
+				int dumpFrameIndex = (firstFrameIndex + frameNumber) % this.frames.length;
+				int frameWidth = this.frameWidths[dumpFrameIndex];
+				int frameHeight = this.frameHeights[dumpFrameIndex];
+				ImageData frameData = new ImageData(frameWidth, frameHeight, 24, FRAME_PALETTE);
+
+				// The first frame is complete; the following ones are completed by applying their changes
+				applyRectangle(frame, frameWidth, this.frames[dumpFrameIndex], this.frameDeltas, dumpFrameIndex * 4);
+				for (int y = 0; y < frameHeight; y++) {
+					frameData.setPixels(0, y, frameWidth, frame, y * frameWidth);
+				}
+
+				ImageLoader imageLoader = new ImageLoader();
+				ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream();
+
+				imageLoader.data = new ImageData[] { frameData };
+				imageLoader.save(frameBuffer, SWT.IMAGE_PNG);
+
+				Path frameFile = dumpFileWriter.write("frame.png", frameBuffer.toByteArray());
+
+				index.append(frameFile.getFileName()).append(" +")
+						.append(this.frameTimestamps[dumpFrameIndex] - firstTimestamp).append(" ms x")
+						.append(this.frameRepeats[dumpFrameIndex]).append(System.lineSeparator());
+			}
+
+			Path indexFile = dumpFileWriter.write("frames.txt", index.toString().getBytes(StandardCharsets.UTF_8));
+
+			LOG.info("Recorded frames stored in file ''{0}''", indexFile);
+		}
+	}
+
+	/**
+	 * Writer function for dump files.
+	 */
+	@FunctionalInterface
+	interface DumpFileWriter {
+
+		/**
+		 * Writes a dump file.
+		 *
+		 * @param extension the extension of the file to write.
+		 * @param content the content to write.
+		 * @return the written file.
+		 * @throws IOException if an I/O error occurs.
+		 */
+		Path write(String extension, byte[] content) throws IOException;
+
+	}
+
+}
@@ -16,18 +16,37 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.Deque;
-import java.util.LinkedList;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
  * Class for mocking of standard dialog results during a test run.
+ * <p>
+ * Results may be offered from any thread. A single result is queued with a single allocation and results offered in
+ * bulk are queued as a single chunk. The results are handed out boxed; single bit results (which covers all SWT button
+ * constants like {@code SWT.CANCEL}) are boxed via shared instances, so consuming them does not allocate.
+ * </p>
  */
 public final class IntDialogMock {
 
-	private Deque<IntSupplier> resultQueue = new LinkedList<>();
+	// Most SWT button constants are outside of the range cached by Integer.valueOf
+	private static final Integer[] SINGLE_BIT_RESULTS = new Integer[Integer.SIZE];
+
+	static {
+		for (int bit = 0; bit < SINGLE_BIT_RESULTS.length; bit++) {
+			SINGLE_BIT_RESULTS[bit] = Integer.valueOf(1 << bit);
+		}
+	}
+
+	private final ConcurrentLinkedQueue<ResultChunk> resultQueue = new ConcurrentLinkedQueue<>();
+	private final DialogLatency latency = new DialogLatency();
 
 	/**
 	 * Adds a result to the result queue.
@@ -35,7 +54,7 @@ public final class IntDialogMock {
 	 * @param result the result to add.
 	 */
 	public void offerResult(int result) {
-		offerResult(() -> result);
+		this.resultQueue.offer(new SingleResultChunk(box(result)));
 	}
 
 	/**
@@ -44,12 +63,146 @@ public final class IntDialogMock {
 	 * @param resultSupplier the result to add.
 	 */
 	public void offerResult(IntSupplier resultSupplier) {
-		this.resultQueue.offer(resultSupplier);
+		this.resultQueue.offer(new SupplierResultChunk(resultSupplier));
+	}
+
+	/**
+	 * Adds multiple results to the result queue.
+	 * <p>
+	 * The results are consumed in the given order.
+	 * </p>
+	 *
+	 * @param results the results to add.
+	 */
+	public void offerResults(int... results) {
+		if (results.length > 0) {
+			this.resultQueue.offer(new ArrayResultChunk(results.clone()));
+		}
+	}
+
+	/**
+	 * Sets a fixed latency to simulate for each {@code open()} call.
+	 * <p>
+	 * During the simulated latency a nested event loop is run (like a native dialog does).
+	 * </p>
+	 *
+	 * @param latency the latency to simulate ({@linkplain Duration#ZERO} disables latency simulation).
+	 * @return the updated mock.
+	 */
+	public IntDialogMock withLatency(Duration latency) {
+		this.latency.set(latency);
+		return this;
 	}
 
-	@Nullable
-	IntSupplier pollResult() {
-		return this.resultQueue.poll();
+	/**
+	 * Sets a uniformly distributed latency to simulate for each {@code open()} call.
+	 * <p>
+	 * During the simulated latency a nested event loop is run (like a native dialog does).
+	 * </p>
+	 *
+	 * @param minLatency the minimum latency to simulate.
+	 * @param maxLatency the maximum latency to simulate.
+	 * @return the updated mock.
+	 */
+	public IntDialogMock withLatency(Duration minLatency, Duration maxLatency) {
+		this.latency.set(minLatency, maxLatency);
+		return this;
+	}
+
+	/**
+	 * Sets an arbitrary distributed latency to simulate for each {@code open()} call.
+	 * <p>
+	 * During the simulated latency a nested event loop is run (like a native dialog does).
+	 * </p>
+	 *
+	 * @param latencyMillisSupplier the supplier to invoke for getting the latency (in milliseconds) to simulate.
+	 * @return the updated mock.
+	 */
+	public IntDialogMock withLatency(LongSupplier latencyMillisSupplier) {
+		this.latency.set(latencyMillisSupplier);
+		return this;
+	}
+
+	void simulateLatency(String dialogName) {
+		this.latency.simulate(dialogName);
+	}
+
+	Integer pollResult(int defaultResult) {
+		Integer result = null;
+		ResultChunk chunk;
+
+		while (result == null && (chunk = this.resultQueue.peek()) != null) {
+			result = chunk.next();
+			if (result == null) {
+				this.resultQueue.remove(chunk);
+			}
+		}
+		return (result != null ? result : box(defaultResult));
+	}
+
+	static Integer box(int result) {
+		return (Integer.bitCount(result) == 1 ? SINGLE_BIT_RESULTS[Integer.numberOfTrailingZeros(result)]
+				: Integer.valueOf(result));
+	}
+
+	private interface ResultChunk {
+
+		@Nullable
+		Integer next();
+
+	}
+
+	// Extends AtomicReference directly, so that a single result is queued with a single allocation
+	private static final class SingleResultChunk extends AtomicReference<@Nullable Integer> implements ResultChunk {
+
+		private static final long serialVersionUID = 1L;
+
+		SingleResultChunk(Integer result) {
+			super(result);
+		}
+
+		@Override
+		@Nullable
+		public Integer next() {
+			return getAndSet(null);
+		}
+
+	}
+
+	private static final class ArrayResultChunk implements ResultChunk {
+
+		private final int[] results;
+		private final AtomicInteger cursor = new AtomicInteger();
+
+		ArrayResultChunk(int[] results) {
+			this.results = results;
+		}
+
+		@Override
+		@Nullable
+		public Integer next() {
+			int resultIndex = this.cursor.getAndIncrement();
+
+			return (resultIndex < this.results.length ? box(this.results[resultIndex]) : null);
+		}
+
+	}
+
+	private static final class SupplierResultChunk implements ResultChunk {
+
+		private final IntSupplier resultSupplier;
+		private final AtomicBoolean polled = new AtomicBoolean();
+
+		SupplierResultChunk(IntSupplier resultSupplier) {
+			this.resultSupplier = resultSupplier;
+		}
+
+		@Override
+		@Nullable
+		public Integer next() {
+			return (this.polled.compareAndSet(false, true) ? box(this.resultSupplier.getAsInt()) : null);
+		}
+
 	}
 
 }
@@ -18,17 +18,14 @@ package de.carne.test.swt.tester;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.IntSupplier;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.MessageBox;
-import org.mockito.MockedConstruction;
-import org.mockito.Mockito;
 
 import de.carne.test.mock.ScopedMockInstance;
 import de.carne.util.logging.Log;
 
-final class MessageBoxMockInstance extends ScopedMockInstance<MockedConstruction<MessageBox>, IntDialogMock> {
+final class MessageBoxMockInstance extends ScopedMockInstance<DialogInterceptor.Scope, IntDialogMock> {
 
 	private static final Log LOG = new Log();
 
@@ -44,20 +41,28 @@ final class MessageBoxMockInstance extends ScopedMockInstance<MockedConstruction
 		SWT_SYMBOLS.put(SWT.IGNORE, "SWT.IGNORE");
 	}
 
-	MessageBoxMockInstance() {
-		super(MessageBoxMockInstance::initialize, new IntDialogMock());
+	MessageBoxMockInstance(DialogTelemetry telemetry) {
+		super(instance -> initialize(instance, telemetry), new IntDialogMock());
 	}
 
-	private static MockedConstruction<MessageBox> initialize(IntDialogMock instance) {
-		return Mockito.mockConstruction(MessageBox.class, Mockito.withSettings(),
-				(mock, context) -> Mockito.when(mock.open()).then(iom -> {
-					IntSupplier resultSupplier = instance.pollResult();
-					int result = (resultSupplier != null ? resultSupplier.getAsInt() : SWT.CANCEL);
+	private static DialogInterceptor.Scope initialize(IntDialogMock instance, DialogTelemetry telemetry) {
+		return DialogInterceptor.activate(MessageBox.class, instance, telemetry, MessageBoxMockInstance::capture,
+				MessageBoxMockInstance::open, IntDialogMock.box(SWT.CANCEL));
+	}
+
+	private static DialogInvocation capture(MessageBox dialog) {
+		return new DialogInvocation(MessageBox.class, dialog.getStyle(), dialog.getText())
+				.message(dialog.getMessage());
+	}
+
+	private static Integer open(IntDialogMock instance) {
+		instance.simulateLatency("MessageBox");
+
+		Integer result = instance.pollResult(SWT.CANCEL);
 
-					LOG.info("MessageBox.open() = {0}", SWT_SYMBOLS.getOrDefault(result, Integer.toString(result)));
+		LOG.info("MessageBox.open() = {0}", SWT_SYMBOLS.getOrDefault(result, result.toString()));
 
-					return result;
-				}));
+		return result;
 	}
 
 }
@@ -16,34 +16,39 @@
  */
 package de.carne.test.swt.tester;
 
-import java.util.function.Supplier;
-
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.printing.PrintDialog;
 import org.eclipse.swt.printing.PrinterData;
-import org.mockito.MockedConstruction;
-import org.mockito.Mockito;
 
 import de.carne.test.mock.ScopedMockInstance;
 import de.carne.util.logging.Log;
 
-final class PrintDialogMockInstance extends ScopedMockInstance<MockedConstruction<PrintDialog>, DialogMock<PrinterData>> {
+final class PrintDialogMockInstance extends ScopedMockInstance<DialogInterceptor.Scope, DialogMock<PrinterData>> {
 
 	private static final Log LOG = new Log();
 
-	PrintDialogMockInstance() {
-		super(PrintDialogMockInstance::initialize, new DialogMock<>());
+	PrintDialogMockInstance(DialogTelemetry telemetry) {
+		super(instance -> initialize(instance, telemetry), new DialogMock<>());
+	}
+
+	private static DialogInterceptor.Scope initialize(DialogMock<PrinterData> instance, DialogTelemetry telemetry) {
+		return DialogInterceptor.activate(PrintDialog.class, instance, telemetry, PrintDialogMockInstance::capture,
+				PrintDialogMockInstance::open, null);
 	}
 
-	private static MockedConstruction<PrintDialog> initialize(DialogMock<PrinterData> instance) {
-		return Mockito.mockConstruction(PrintDialog.class, Mockito.withSettings(),
-				(mock, context) -> Mockito.when(mock.open()).then(iom -> {
-					Supplier<PrinterData> resultSupplier = instance.pollResult();
-					PrinterData result = (resultSupplier != null ? resultSupplier.get() : null);
+	private static DialogInvocation capture(PrintDialog dialog) {
+		return new DialogInvocation(PrintDialog.class, dialog.getStyle(), dialog.getText());
+	}
+
+	@Nullable
+	private static PrinterData open(DialogMock<PrinterData> instance) {
+		instance.simulateLatency("PrintDialog");
+
+		PrinterData result = instance.pollResult();
 
-					LOG.info("PrintDialog.open() = {0}", result);
+		LOG.info("PrintDialog.open() = {0}", result);
 
-					return result;
-				}));
+		return result;
 	}
 
 }
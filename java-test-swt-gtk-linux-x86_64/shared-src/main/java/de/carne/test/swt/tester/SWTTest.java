@@ -16,37 +16,53 @@
  */
 package de.carne.test.swt.tester;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.graphics.FontData;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.printing.PrintDialog;
 import org.eclipse.swt.printing.PrinterData;
 import org.eclipse.swt.widgets.ColorDialog;
+import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.FontDialog;
 import org.eclipse.swt.widgets.MessageBox;
 import org.eclipse.swt.widgets.Shell;
-import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.extension.ExtensionContext;
 
 import de.carne.test.swt.tester.ScriptAction.AsyncDoScriptAction;
+import de.carne.test.swt.tester.ScriptAction.DiffScriptAction;
 import de.carne.test.swt.tester.ScriptAction.DoScriptAction;
+import de.carne.test.swt.tester.ScriptAction.ImageScriptAction;
+import de.carne.test.swt.tester.ScriptAction.SnapshotScriptAction;
 import de.carne.test.swt.tester.ScriptAction.WaitScriptAction;
 import de.carne.test.swt.tester.accessor.Accessor;
 import de.carne.test.swt.tester.accessor.DecorationsAccessor;
 import de.carne.test.swt.tester.accessor.ShellAccessor;
+import de.carne.test.swt.tester.image.ImageComparator;
+import de.carne.test.swt.tester.snapshot.UISnapshot;
+import de.carne.test.swt.tester.snapshot.UISnapshotDiff;
 import de.carne.util.AutoCloseables;
 import de.carne.util.Lazy;
 import de.carne.util.Strings;
@@ -61,36 +77,48 @@ import de.carne.util.stream.Unique;
  * running application (see {@linkplain Script}). The latter is achieved by creating a separate script runner thread
  * which issues the necessary events.
  * </p>
+ * <p>
+ * The test's dialog mocks (see {@linkplain #mockMessageBox()} and the like) are closed after each test (or after all
+ * tests in case of {@linkplain TestInstance.Lifecycle#PER_CLASS}).
+ * </p>
  */
+@ExtendWith(SWTTest.ResourceTracker.class)
 public abstract class SWTTest {
 
 	private static final Log LOG = new Log();
 
-	private static final Deque<AutoCloseable> RESOURCE_TRACKER = new LinkedList<>();
-
 	private final String name;
-	private final Lazy<MessageBoxMockInstance> messageBoxMockInstanceHolder = new Lazy<>(() -> trackResource(MessageBoxMockInstance::new));
-	private final Lazy<FileDialogMockInstance> fileDialogMockInstanceHolder = new Lazy<>(() -> trackResource(FileDialogMockInstance::new));
+	private final DialogTelemetry dialogTelemetry = new DialogTelemetry();
+	private final Deque<AutoCloseable> trackedResources = new ConcurrentLinkedDeque<>();
+	private final Lazy<MessageBoxMockInstance> messageBoxMockInstanceHolder = new Lazy<>(
+			() -> trackResource(() -> new MessageBoxMockInstance(this.dialogTelemetry)));
+	private final Lazy<FileDialogMockInstance> fileDialogMockInstanceHolder = new Lazy<>(
+			() -> trackResource(() -> new FileDialogMockInstance(this.dialogTelemetry)));
 	private final Lazy<DirectoryDialogMockInstance> directoryDialogMockInstanceHolder = new Lazy<>(
-			() -> trackResource(DirectoryDialogMockInstance::new));
-	private final Lazy<PrintDialogMockInstance> printDialogMockInstanceHolder = new Lazy<>(() -> trackResource(PrintDialogMockInstance::new));
-	private final Lazy<ColorDialogMockInstance> colorDialogMockInstanceHolder = new Lazy<>(() -> trackResource(ColorDialogMockInstance::new));
-	private final Lazy<FontDialogMockInstance> fontDialogMockInstanceHolder = new Lazy<>(() -> trackResource(FontDialogMockInstance::new));
-
-	private static <T extends AutoCloseable> T trackResource(Supplier<T> resourceSupplier) {
+			() -> trackResource(() -> new DirectoryDialogMockInstance(this.dialogTelemetry)));
+	private final Lazy<PrintDialogMockInstance> printDialogMockInstanceHolder = new Lazy<>(
+			() -> trackResource(() -> new PrintDialogMockInstance(this.dialogTelemetry)));
+	private final Lazy<ColorDialogMockInstance> colorDialogMockInstanceHolder = new Lazy<>(
+			() -> trackResource(() -> new ColorDialogMockInstance(this.dialogTelemetry)));
+	private final Lazy<FontDialogMockInstance> fontDialogMockInstanceHolder = new Lazy<>(
+			() -> trackResource(() -> new FontDialogMockInstance(this.dialogTelemetry)));
+
+	private <T extends AutoCloseable> T trackResource(Supplier<T> resourceSupplier) {
 		T resource = resourceSupplier.get();
 
-		RESOURCE_TRACKER.add(resource);
+		this.trackedResources.add(resource);
 		return resource;
 	}
 
-	@AfterAll
-	static void closeTrackedResources() throws Exception {
-		try {
-			AutoCloseables.closeAll(RESOURCE_TRACKER);
-		} finally {
-			RESOURCE_TRACKER.clear();
+	void closeTrackedResources() throws Exception {
+		// Close in reverse order, so that each mock scope is closed before the one it has superseded
+		List<AutoCloseable> resources = new ArrayList<>(this.trackedResources.size());
+		AutoCloseable resource;
+
+		while ((resource = this.trackedResources.pollLast()) != null) {
+			resources.add(resource);
 		}
+		AutoCloseables.closeAll(resources);
 	}
 
 	/**
@@ -143,6 +171,9 @@ public abstract class SWTTest {
 		private final MainFunction application;
 		private String[] applicationArgs = new String[0];
 		private final List<ScriptAction> actions = new LinkedList<>();
+		private final AtomicReference<@Nullable UISnapshot> lastSnapshot = new AtomicReference<>();
+		private int frameRate = 0;
+		private Duration frameHistory = Duration.ZERO;
 		private boolean passed = false;
 
 		Script(MainFunction application) {
@@ -238,6 +269,115 @@ public abstract class SWTTest {
 			return this;
 		}
 
+		/**
+		 * Adds a snapshot action to be executed during the test.
+		 * <p>
+		 * During test execution a {@linkplain UISnapshot} of the application's UI is captured in a single pass on the
+		 * UI thread. The captured snapshot is afterwards submitted to the snapshot action, which is executed on the
+		 * script thread. Hence arbitrary complex queries and checks can be performed without blocking the UI thread.
+		 * </p>
+		 *
+		 * @param snapshotAction the snapshot action to invoke with the captured snapshot.
+		 * @return the updated script.
+		 */
+		public Script snapshot(Consumer<UISnapshot> snapshotAction) {
+			String actionName = nextActionName();
+
+			this.actions.add(new SnapshotScriptAction(actionName, this.lastSnapshot, snapshotAction));
+			return this;
+		}
+
+		/**
+		 * Adds a snapshot action to be executed during the test, which only records the current UI state for a
+		 * subsequent {@linkplain #diff(Consumer)} action.
+		 *
+		 * @return the updated script.
+		 * @see #diff(Consumer)
+		 */
+		public Script snapshot() {
+			return snapshot(snapshot -> {
+				// Nothing to do here
+			});
+		}
+
+		/**
+		 * Adds a diff action to be executed during the test.
+		 * <p>
+		 * During test execution a {@linkplain UISnapshot} of the application's UI is captured and compared to the
+		 * snapshot captured by the previous snapshot or diff action. The resulting {@linkplain UISnapshotDiff} is
+		 * afterwards submitted to the diff action, which is executed on the script thread. If the diff action signals
+		 * a test failure, the difference report is stored next to the test's screenshots. A test failure is signaled if
+		 * no previous snapshot or diff action has been executed.
+		 * </p>
+		 *
+		 * @param diffAction the diff action to invoke with the computed difference.
+		 * @return the updated script.
+		 */
+		public Script diff(Consumer<UISnapshotDiff> diffAction) {
+			String actionName = nextActionName();
+
+			this.actions.add(new DiffScriptAction(actionName, this.lastSnapshot, diffAction));
+			return this;
+		}
+
+		/**
+		 * Adds a golden image check to be executed during the test.
+		 * <p>
+		 * Invoking this function is equivalent to invoking
+		 * {@code verifyImage(controlSupplier, goldenFile, ImageComparator.exact())}.
+		 * </p>
+		 *
+		 * @param controlSupplier the supplier of the {@linkplain Control} to check.
+		 * @param goldenFile the golden image file to compare with.
+		 * @return the updated script.
+		 * @see #verifyImage(Supplier, Path, ImageComparator)
+		 */
+		public Script verifyImage(Supplier<? extends Control> controlSupplier, Path goldenFile) {
+			return verifyImage(controlSupplier, goldenFile, ImageComparator.exact());
+		}
+
+		/**
+		 * Adds a golden image check to be executed during the test.
+		 * <p>
+		 * During test execution the image of the supplied {@linkplain Control} is captured on the UI thread (see
+		 * {@linkplain de.carne.test.swt.tester.image.RasterImage#capture(Control)}) and compared to the given golden
+		 * image file on the script thread. If the images do not match, the actual image as well as a diff image are
+		 * stored next to the test's screenshots and a test failure is signaled. A missing golden image file is also
+		 * signaled as a test failure. If the system property {@code de.carne.test.swt.tester.UPDATE_GOLDEN_IMAGES} is
+		 * set to {@code true}, missing or mismatching golden image files are (re-)written instead.
+		 * </p>
+		 *
+		 * @param controlSupplier the supplier of the {@linkplain Control} to check.
+		 * @param goldenFile the golden image file to compare with.
+		 * @param comparator the {@linkplain ImageComparator} to use.
+		 * @return the updated script.
+		 */
+		public Script verifyImage(Supplier<? extends Control> controlSupplier, Path goldenFile,
+				ImageComparator comparator) {
+			String actionName = nextActionName();
+
+			this.actions.add(new ImageScriptAction(actionName, controlSupplier, goldenFile, comparator));
+			return this;
+		}
+
+		/**
+		 * Enables frame recording during script execution.
+		 * <p>
+		 * While the script is executed, downscaled frames of the application's active Shell are captured at the given
+		 * frame rate into a fixed-size ring buffer. If the test fails, the frames covering the given history are stored
+		 * as a PNG image sequence next to the test's screenshots.
+		 * </p>
+		 *
+		 * @param rate the number of frames to capture per second (0 disables frame recording).
+		 * @param history the time span of frames to keep.
+		 * @return the updated script.
+		 */
+		public Script recordFrames(int rate, Duration history) {
+			this.frameRate = rate;
+			this.frameHistory = history;
+			return this;
+		}
+
 		private String nextActionName() {
 			return "Action #" + (this.actions.size() + 1);
 		}
@@ -277,7 +417,10 @@ public abstract class SWTTest {
 		 * failed.
 		 */
 		public void execute(boolean ignoreRemaining, Duration timeout) {
-			runScript(this.application, this.applicationArgs, this.actions, ignoreRemaining, timeout);
+			FrameRecorder frameRecorder = (this.frameRate > 0 ? new FrameRecorder(this.frameRate, this.frameHistory)
+					: null);
+
+			runScript(this.application, this.applicationArgs, this.actions, ignoreRemaining, timeout, frameRecorder);
 			this.passed = true;
 		}
 
@@ -293,10 +436,10 @@ public abstract class SWTTest {
 	}
 
 	void runScript(MainFunction application, String[] applicationArgs, Iterable<ScriptAction> actions,
-			boolean ignoreRemaining, Duration timeout) {
+			boolean ignoreRemaining, Duration timeout, @Nullable FrameRecorder frameRecorder) {
 		try {
 			ScriptRunnerThread scriptRunnerThread = new ScriptRunnerThread(this.name, actions, ignoreRemaining,
-					timeout);
+					timeout, this.dialogTelemetry, frameRecorder);
 
 			scriptRunnerThread.setDaemon(true);
 			scriptRunnerThread.start();
@@ -355,6 +498,19 @@ public abstract class SWTTest {
 		return Accessor.get(Display.findDisplay(Thread.currentThread()));
 	}
 
+	/**
+	 * Captures a {@linkplain UISnapshot} of the application's current UI.
+	 * <p>
+	 * A test failure is signaled in case no SWT {@linkplain Display} exists (see {@linkplain #display()}).
+	 * </p>
+	 *
+	 * @return the captured {@linkplain UISnapshot}.
+	 * @see Script#snapshot(Consumer)
+	 */
+	protected UISnapshot snapshot() {
+		return UISnapshot.capture(display());
+	}
+
 	/**
 	 * Gets all non disposed {@linkplain Shell} instances.
 	 *
@@ -415,6 +571,33 @@ public abstract class SWTTest {
 				shells().filter(DecorationsAccessor.matchText(textPattern)).collect(Unique.getOptional()));
 	}
 
+	/**
+	 * Gets the test's {@linkplain DialogTelemetry}.
+	 * <p>
+	 * The returned {@linkplain DialogTelemetry} records all invocations of the test's dialog mocks (see
+	 * {@linkplain #mockMessageBox()} and the like).
+	 * </p>
+	 *
+	 * @return the test's {@linkplain DialogTelemetry}.
+	 */
+	protected DialogTelemetry dialogTelemetry() {
+		return this.dialogTelemetry;
+	}
+
+	/**
+	 * Performs the one-time initialization of the dialog mock infrastructure upfront.
+	 * <p>
+	 * This function is intended to be invoked once per VM before the first test is executed (see
+	 * {@linkplain de.carne.test.swt.extension.SWTWarmUpListener}). It may be invoked by any thread. The dialog mock
+	 * infrastructure is prepared for the dialog interceptor backend named by the system property
+	 * {@code de.carne.test.swt.tester.DIALOG_INTERCEPTOR} at the time of invocation.
+	 * </p>
+	 */
+	public static void warmUp() {
+		DialogInterceptor.warmUp(MessageBox.class, FileDialog.class, DirectoryDialog.class, PrintDialog.class,
+				ColorDialog.class, FontDialog.class);
+	}
+
 	/**
 	 * Gets the test's {@linkplain MessageBox} mock.
 	 *
@@ -469,4 +652,39 @@ public abstract class SWTTest {
 		return this.fontDialogMockInstanceHolder.get().get();
 	}
 
+	/**
+	 * JUnit callback closing the resources (e.g. the dialog mocks) of a {@linkplain SWTTest} instance.
+	 * <p>
+	 * This callback is registered by {@linkplain SWTTest} itself and is not intended to be used directly.
+	 * </p>
+	 */
+	public static final class ResourceTracker implements AfterEachCallback, AfterAllCallback {
+
+		@Override
+		public void afterEach(ExtensionContext context) throws Exception {
+			if (!isPerClassLifecycle(context)) {
+				closeTrackedResources(context.getTestInstance());
+			}
+		}
+
+		@Override
+		public void afterAll(ExtensionContext context) throws Exception {
+			// Test instances shared by all tests of the test class keep their resources until all tests have finished
+			if (isPerClassLifecycle(context)) {
+				closeTrackedResources(context.getTestInstance());
+			}
+		}
+
+		private static boolean isPerClassLifecycle(ExtensionContext context) {
+			return context.getTestInstanceLifecycle().filter(TestInstance.Lifecycle.PER_CLASS::equals).isPresent();
+		}
+
+		private static void closeTrackedResources(Optional<Object> testInstance) throws Exception {
+			if (testInstance.isPresent() && testInstance.get() instanceof SWTTest) {
+				((SWTTest) testInstance.get()).closeTrackedResources();
+			}
+		}
+
+	}
+
 }
@@ -0,0 +1,278 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.carne.nio.file.attribute.FileAttributes;
+import de.carne.util.logging.Log;
+
+/**
+ * Store for screenshots and other test artifacts.
+ * <p>
+ * Stored files are named {@code <test name><sequence number>.<extension>}. Sequence numbers are assigned by an
+ * in-memory counter, which is seeded by a single scan of the store directory's manifest files (other files in the
+ * directory are not considered). Files are stored by content: if a file
+ * with the same content (SHA-256) has already been stored, the existing file is referenced instead of storing the
+ * content again. Files are first written to a temporary file and then atomically linked (or moved) to their final
+ * name. For every test a manifest file ({@code <test name>.manifest}) records the test's stored files, their content
+ * hashes and whether they have been deduplicated.
+ * </p>
+ * <p>
+ * There is at most one store instance per directory and VM (see {@linkplain #open(Path)}). Instances are thread-safe.
+ * </p>
+ */
+final class ScreenshotStore {
+
+	private static final Log LOG = new Log();
+
+	private static final Map<Path, ScreenshotStore> STORES = new ConcurrentHashMap<>();
+
+	// Sequence numbers with up to 9 digits are safe to increment
+	private static final String SEQUENCE_PATTERN = "(\\d{4,9})\\.[^.]+";
+
+	private static final String MANIFEST_EXTENSION = ".manifest";
+
+	private static final String STORED_STATUS = "stored";
+
+	private static final String DUPLICATE_STATUS = "duplicate";
+
+	private static final String DIGEST_ALGORITHM = "SHA-256";
+
+	private final Path dir;
+	private final AtomicInteger sequence;
+	private final Map<String, Path> storedContent;
+	private volatile boolean linkSupported = true;
+
+	private ScreenshotStore(Path dir, int lastSequence, Map<String, Path> storedContent) {
+		this.dir = dir;
+		this.sequence = new AtomicInteger(lastSequence);
+		this.storedContent = storedContent;
+	}
+
+	/**
+	 * Opens the store for a directory.
+	 * <p>
+	 * The directory is scanned only once per VM (when the store is opened for the first time).
+	 * </p>
+	 *
+	 * @param dir the directory to open the store for.
+	 * @return the opened store.
+	 * @throws IOException if an I/O error occurs while scanning the directory.
+	 */
+	static ScreenshotStore open(Path dir) throws IOException {
+		Path normalizedDir = dir.toAbsolutePath().normalize();
+		ScreenshotStore store = STORES.get(normalizedDir);
+
+		if (store == null) {
+			synchronized (STORES) {
+				store = STORES.get(normalizedDir);
+				if (store == null) {
+					store = scan(normalizedDir);
+					STORES.put(normalizedDir, store);
+				}
+			}
+		}
+		return store;
+	}
+
+	private static ScreenshotStore scan(Path dir) throws IOException {
+		long start = System.nanoTime();
+		int lastSequence = 0;
+		Map<String, Path> storedContent = new HashMap<>();
+		int fileCount = 0;
+
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+			for (Path file : files) {
+				String fileName = file.getFileName().toString();
+
+				if (fileName.endsWith(MANIFEST_EXTENSION)) {
+					lastSequence = Math.max(lastSequence, readManifest(dir, file, storedContent));
+				}
+				fileCount++;
+			}
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		LOG.debug("Scanned store directory ''{0}'' (took {1} ms; {2} files; last sequence: {3})", dir,
+				elapsed / 1000000, fileCount, lastSequence);
+
+		return new ScreenshotStore(dir, lastSequence, storedContent);
+	}
+
+	private static int readManifest(Path dir, Path manifestFile, Map<String, Path> storedContent) throws IOException {
+		String manifestFileName = manifestFile.getFileName().toString();
+		String testName = manifestFileName.substring(0, manifestFileName.length() - MANIFEST_EXTENSION.length());
+		Pattern sequencePattern = Pattern.compile(Pattern.quote(testName) + SEQUENCE_PATTERN);
+		List<String> lines = Files.readAllLines(manifestFile, StandardCharsets.UTF_8);
+		int lastSequence = 0;
+
+		for (String line : lines) {
+			String[] fields = line.split("\t");
+
+			if (fields.length >= 2) {
+				Matcher sequenceMatcher = sequencePattern.matcher(fields[0]);
+
+				// Duplicate entries may refer to the files of other tests (which are seeded via their own manifest)
+				if (fields.length >= 3 && STORED_STATUS.equals(fields[2]) && sequenceMatcher.matches()) {
+					lastSequence = Math.max(lastSequence, Integer.parseInt(sequenceMatcher.group(1)));
+				}
+
+				Path storedFile = dir.resolve(fields[0]);
+
+				if (Files.exists(storedFile)) {
+					storedContent.putIfAbsent(fields[1], storedFile);
+				}
+			}
+		}
+		return lastSequence;
+	}
+
+	/**
+	 * Stores a file.
+	 *
+	 * @param testName the name of the test the file belongs to.
+	 * @param extension the extension of the file to store.
+	 * @param content the content to store.
+	 * @return the stored file (which may be a previously stored file with identical content).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	Path store(String testName, String extension, byte[] content) throws IOException {
+		String contentHash = hash(extension, content);
+		Path storedFile;
+		boolean duplicate;
+
+		synchronized (this.storedContent) {
+			Path existingFile = this.storedContent.get(contentHash);
+
+			duplicate = existingFile != null && Files.exists(existingFile);
+			if (duplicate) {
+				storedFile = existingFile;
+			} else {
+				storedFile = write(testName, extension, content);
+				this.storedContent.put(contentHash, storedFile);
+			}
+			appendManifest(testName, storedFile, contentHash, duplicate);
+		}
+		if (duplicate) {
+			LOG.debug("Identical content already stored in file ''{0}''", storedFile);
+		}
+		return storedFile;
+	}
+
+	/**
+	 * Stores an already existing (temporary) file.
+	 * <p>
+	 * The given file is deleted after its content has been stored.
+	 * </p>
+	 *
+	 * @param testName the name of the test the file belongs to.
+	 * @param extension the extension of the file to store.
+	 * @param file the file to store.
+	 * @return the stored file (which may be a previously stored file with identical content).
+	 * @throws IOException if an I/O error occurs.
+	 */
+	Path store(String testName, String extension, Path file) throws IOException {
+		Path storedFile = store(testName, extension, Files.readAllBytes(file));
+
+		Files.delete(file);
+		return storedFile;
+	}
+
+	private Path write(String testName, String extension, byte[] content) throws IOException {
+		Path tmpFile = Files.createTempFile(this.dir, "." + testName, ".tmp", FileAttributes.userFileDefault(this.dir));
+		Path storedFile = null;
+
+		try {
+			Files.write(tmpFile, content);
+
+			Path targetFile = nextTargetFile(testName, extension);
+
+			while (storedFile == null) {
+				try {
+					// Linking as well as moving fails if the target exists (e.g. created by a concurrently running VM)
+					storedFile = (this.linkSupported ? Files.createLink(targetFile, tmpFile)
+							: Files.move(tmpFile, targetFile));
+				} catch (FileAlreadyExistsException e) {
+					LOG.debug("Skipping already existing file ''{0}''", targetFile);
+
+					targetFile = nextTargetFile(testName, extension);
+				} catch (UnsupportedOperationException e) {
+					LOG.debug("Linking not supported by store directory ''{0}''; moving files instead", this.dir);
+
+					this.linkSupported = false;
+				}
+			}
+		} finally {
+			Files.deleteIfExists(tmpFile);
+		}
+		return storedFile;
+	}
+
+	private Path nextTargetFile(String testName, String extension) {
+		return this.dir
+				.resolve(String.format("%1$s%2$04d.%3$s", testName, this.sequence.incrementAndGet(), extension));
+	}
+
+	private void appendManifest(String testName, Path storedFile, String contentHash, boolean duplicate)
+			throws IOException {
+		Path manifestFile = this.dir.resolve(testName + MANIFEST_EXTENSION);
+		String line = storedFile.getFileName() + "\t" + contentHash + "\t"
+				+ (duplicate ? DUPLICATE_STATUS : STORED_STATUS) + System.lineSeparator();
+
+		Files.write(manifestFile, line.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	private static String hash(String extension, byte[] content) {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("Required digest algorithm " + DIGEST_ALGORITHM + " not available", e);
+		}
+		digest.update(extension.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+
+		byte[] hashBytes = digest.digest(content);
+		StringBuilder hashString = new StringBuilder(hashBytes.length * 2);
+
+		for (byte hashByte : hashBytes) {
+			hashString.append(Character.forDigit((hashByte >>> 4) & 0xf, 16));
+			hashString.append(Character.forDigit(hashByte & 0xf, 16));
+		}
+		return hashString.toString();
+	}
+
+}
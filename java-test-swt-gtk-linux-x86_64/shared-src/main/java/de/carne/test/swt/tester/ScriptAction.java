@@ -16,10 +16,30 @@
  */
 package de.carne.test.swt.tester;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.opentest4j.AssertionFailedError;
+
 import de.carne.test.swt.tester.accessor.Accessor;
+import de.carne.test.swt.tester.image.ImageComparator;
+import de.carne.test.swt.tester.image.ImageComparison;
+import de.carne.test.swt.tester.image.RasterImage;
+import de.carne.test.swt.tester.snapshot.UISnapshot;
+import de.carne.test.swt.tester.snapshot.UISnapshotDiff;
 import de.carne.util.logging.Log;
 
 abstract class ScriptAction {
@@ -99,6 +119,210 @@ abstract class ScriptAction {
 
 	}
 
+	static class SnapshotScriptAction extends ScriptAction {
+
+		private final AtomicReference<@Nullable UISnapshot> lastSnapshot;
+		private final Consumer<UISnapshot> snapshotAction;
+
+		SnapshotScriptAction(String name, AtomicReference<@Nullable UISnapshot> lastSnapshot,
+				Consumer<UISnapshot> snapshotAction) {
+			super(name);
+			this.lastSnapshot = lastSnapshot;
+			this.snapshotAction = snapshotAction;
+		}
+
+		@Override
+		void run(ScriptRunner scriptRunner) throws InterruptedException {
+			long start = System.nanoTime();
+
+			UISnapshot snapshot = scriptRunner.runWait(() -> UISnapshot.capture(Display.getCurrent()));
+
+			long captured = System.nanoTime();
+
+			this.lastSnapshot.set(snapshot);
+			this.snapshotAction.accept(snapshot);
+
+			Timing.step();
+
+			long elapsed = System.nanoTime() - start;
+
+			log().debug("{0} executed (took {1} ms; capture of {2} nodes took {3} ms)", this, elapsed / 1000000,
+					snapshot.size(), (captured - start) / 1000000);
+		}
+
+	}
+
+	static class DiffScriptAction extends ScriptAction {
+
+		private final AtomicReference<@Nullable UISnapshot> lastSnapshot;
+		private final Consumer<UISnapshotDiff> diffAction;
+
+		DiffScriptAction(String name, AtomicReference<@Nullable UISnapshot> lastSnapshot,
+				Consumer<UISnapshotDiff> diffAction) {
+			super(name);
+			this.lastSnapshot = lastSnapshot;
+			this.diffAction = diffAction;
+		}
+
+		@Override
+		void run(ScriptRunner scriptRunner) throws InterruptedException {
+			long start = System.nanoTime();
+			UISnapshot before = this.lastSnapshot.get();
+
+			if (before == null) {
+				throw new AssertionFailedError("No previous snapshot available for " + this);
+			}
+
+			UISnapshot after = scriptRunner.runWait(() -> UISnapshot.capture(Display.getCurrent()));
+
+			this.lastSnapshot.set(after);
+
+			long captured = System.nanoTime();
+			UISnapshotDiff diff = UISnapshotDiff.compute(before, after);
+
+			long computed = System.nanoTime();
+
+			try {
+				this.diffAction.accept(diff);
+			} catch (AssertionError e) {
+				scriptRunner.writeArtifact("diff.txt", diff.toString().getBytes(StandardCharsets.UTF_8));
+				throw e;
+			}
+
+			Timing.step();
+
+			long elapsed = System.nanoTime() - start;
+
+			log().debug("{0} executed (took {1} ms; capture took {2} ms; diff of {3} changes took {4} ms)", this,
+					elapsed / 1000000, (captured - start) / 1000000, diff.changes().size(),
+					(computed - captured) / 1000000);
+		}
+
+	}
+
+	static class ImageScriptAction extends ScriptAction {
+
+		static final String PROPERTY_UPDATE_GOLDEN_IMAGES = ScriptAction.class.getPackage().getName()
+				+ ".UPDATE_GOLDEN_IMAGES";
+
+		private static final boolean UPDATE_GOLDEN_IMAGES = Boolean.getBoolean(PROPERTY_UPDATE_GOLDEN_IMAGES);
+
+		private static final Map<Path, GoldenImage> GOLDEN_IMAGES = new ConcurrentHashMap<>();
+
+		private final Supplier<? extends Control> controlSupplier;
+		private final Path goldenFile;
+		private final ImageComparator comparator;
+
+		ImageScriptAction(String name, Supplier<? extends Control> controlSupplier, Path goldenFile,
+				ImageComparator comparator) {
+			super(name);
+			this.controlSupplier = controlSupplier;
+			this.goldenFile = goldenFile.toAbsolutePath().normalize();
+			this.comparator = comparator;
+		}
+
+		@Override
+		void run(ScriptRunner scriptRunner) throws InterruptedException {
+			long start = System.nanoTime();
+			RasterImage actual = scriptRunner.runWait(() -> RasterImage.capture(this.controlSupplier.get()));
+
+			long captured = System.nanoTime();
+			RasterImage golden = loadGoldenImage();
+
+			if (golden == null) {
+				if (!UPDATE_GOLDEN_IMAGES) {
+					scriptRunner.writeArtifact("actual.png", actual.toPng());
+					throw new AssertionFailedError("Golden image not found: " + this.goldenFile);
+				}
+				updateGoldenImage(actual);
+			} else {
+				ImageComparison comparison = this.comparator.compare(golden, actual);
+
+				if (!comparison.matches()) {
+					if (!UPDATE_GOLDEN_IMAGES) {
+						scriptRunner.writeArtifact("actual.png", actual.toPng());
+						scriptRunner.writeArtifact("diff.png", comparison.diffImage().toPng());
+						throw new AssertionFailedError(comparison + " (golden image: " + this.goldenFile + ")");
+					}
+					updateGoldenImage(actual);
+				}
+			}
+
+			Timing.step();
+
+			long elapsed = System.nanoTime() - start;
+
+			log().debug("{0} executed (took {1} ms; capture took {2} ms)", this, elapsed / 1000000,
+					(captured - start) / 1000000);
+		}
+
+		private @Nullable RasterImage loadGoldenImage() {
+			RasterImage golden = null;
+
+			if (Files.exists(this.goldenFile)) {
+				try {
+					BasicFileAttributes attributes = Files.readAttributes(this.goldenFile, BasicFileAttributes.class);
+
+					// Re-load the golden image, if it has been modified since it has been loaded (e.g. by another run)
+					golden = GOLDEN_IMAGES.compute(this.goldenFile, (path, cached) -> (cached != null
+							&& cached.matches(attributes) ? cached : loadGoldenImage(path, attributes))).image();
+				} catch (IOException | UncheckedIOException e) {
+					throw new AssertionFailedError("Failed to load golden image: " + this.goldenFile, e);
+				}
+			} else {
+				GOLDEN_IMAGES.remove(this.goldenFile);
+			}
+			return golden;
+		}
+
+		private static GoldenImage loadGoldenImage(Path file, BasicFileAttributes attributes) {
+			try {
+				return new GoldenImage(attributes, RasterImage.load(file));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void updateGoldenImage(RasterImage actual) {
+			try {
+				Path goldenDir = this.goldenFile.getParent();
+
+				if (goldenDir != null) {
+					Files.createDirectories(goldenDir);
+				}
+				actual.save(this.goldenFile);
+				GOLDEN_IMAGES.put(this.goldenFile, new GoldenImage(
+						Files.readAttributes(this.goldenFile, BasicFileAttributes.class), actual));
+			} catch (IOException e) {
+				throw new AssertionFailedError("Failed to update golden image: " + this.goldenFile, e);
+			}
+			log().warning("Golden image ''{0}'' updated", this.goldenFile);
+		}
+
+		private static final class GoldenImage {
+
+			private final long size;
+			private final FileTime lastModifiedTime;
+			private final RasterImage image;
+
+			GoldenImage(BasicFileAttributes attributes, RasterImage image) {
+				this.size = attributes.size();
+				this.lastModifiedTime = attributes.lastModifiedTime();
+				this.image = image;
+			}
+
+			boolean matches(BasicFileAttributes attributes) {
+				return this.size == attributes.size() && this.lastModifiedTime.equals(attributes.lastModifiedTime());
+			}
+
+			RasterImage image() {
+				return this.image;
+			}
+
+		}
+
+	}
+
 	static class WaitScriptAction<T, A extends Accessor<T>> extends ScriptAction {
 
 		private final Supplier<A> supplierAction;
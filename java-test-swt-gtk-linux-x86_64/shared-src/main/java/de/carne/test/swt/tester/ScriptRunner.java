@@ -28,4 +28,6 @@ interface ScriptRunner {
 
 	void recordAssertion(AssertionError assertion);
 
+	void writeArtifact(String extension, byte[] content);
+
 }
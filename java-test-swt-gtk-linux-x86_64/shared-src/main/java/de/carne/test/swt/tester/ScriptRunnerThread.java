@@ -17,29 +17,33 @@
 package de.carne.test.swt.tester;
 
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.SWTError;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.junit.jupiter.api.Assertions;
 import org.opentest4j.AssertionFailedError;
 
 import de.carne.nio.file.FileUtil;
-import de.carne.nio.file.attribute.FileAttributes;
 import de.carne.test.swt.platform.PlatformHelper;
-import de.carne.util.Exceptions;
+import de.carne.test.swt.platform.ScreenCapture;
 import de.carne.util.Strings;
 import de.carne.util.logging.Log;
 import de.carne.util.logging.LogLevel;
@@ -56,15 +60,21 @@ final class ScriptRunnerThread extends Thread {
 	private final Iterable<ScriptAction> actions;
 	private final boolean ignoreRemaining;
 	private final Duration timeout;
+	private final DialogTelemetry dialogTelemetry;
+	private final @Nullable FrameRecorder frameRecorder;
 	private final AtomicReference<@Nullable AssertionError> assertionStatus = new AtomicReference<>();
+	private final List<CompletableFuture<Path>> pendingScreenshots = new ArrayList<>();
 
-	ScriptRunnerThread(String testName, Iterable<ScriptAction> actions, boolean ignoreRemaining, Duration timeout) {
+	ScriptRunnerThread(String testName, Iterable<ScriptAction> actions, boolean ignoreRemaining, Duration timeout,
+			DialogTelemetry dialogTelemetry, @Nullable FrameRecorder frameRecorder) {
 		super(ScriptRunnerThread.class.getSimpleName() + " [" + testName + "]");
 		this.testName = testName;
 		this.displayThread = Thread.currentThread();
 		this.actions = actions;
 		this.ignoreRemaining = ignoreRemaining;
 		this.timeout = timeout;
+		this.dialogTelemetry = dialogTelemetry;
+		this.frameRecorder = frameRecorder;
 	}
 
 	public Optional<AssertionError> assertionStatus() {
@@ -87,13 +97,16 @@ final class ScriptRunnerThread extends Thread {
 			Display display = getDisplay();
 			List<String> remainingShellTexts;
 
+			startFrameRecorder(display);
 			try {
 				Assertions.assertTimeoutPreemptively(this.timeout, () -> runActions(display));
 
 				LOG.debug("All actions processed; cleaning up...");
 			} finally {
+				stopFrameRecorder();
 				remainingShellTexts = disposeRemaining(display);
 				display.dispose();
+				awaitScreenshots();
 			}
 			if (!this.ignoreRemaining && !remainingShellTexts.isEmpty()) {
 				Assertions.fail("Remaining Shells detected: " + Strings.join(remainingShellTexts, ", "));
@@ -106,6 +119,41 @@ final class ScriptRunnerThread extends Thread {
 		} catch (AssertionError e) {
 			this.assertionStatus.set(e);
 		}
+		if (this.assertionStatus.get() != null) {
+			dumpFrameRecorder();
+		}
+	}
+
+	private void startFrameRecorder(Display display) {
+		FrameRecorder checkedFrameRecorder = this.frameRecorder;
+
+		if (checkedFrameRecorder != null) {
+			checkedFrameRecorder.start(display);
+		}
+	}
+
+	private void stopFrameRecorder() throws InterruptedException {
+		FrameRecorder checkedFrameRecorder = this.frameRecorder;
+
+		if (checkedFrameRecorder != null) {
+			checkedFrameRecorder.stop();
+		}
+	}
+
+	private void dumpFrameRecorder() {
+		FrameRecorder checkedFrameRecorder = this.frameRecorder;
+
+		if (checkedFrameRecorder != null) {
+			try {
+				checkedFrameRecorder.stop();
+
+				checkedFrameRecorder.dump(this::storeArtifact);
+			} catch (IOException e) {
+				LOG.error(e, "Failed to write recorded frames");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 	private void runActions(Display display) throws InterruptedException {
@@ -113,7 +161,12 @@ final class ScriptRunnerThread extends Thread {
 
 		for (ScriptAction action : this.actions) {
 			Timing.step();
-			action.run(scriptRunner);
+			this.dialogTelemetry.actionStarted(action.toString());
+			try {
+				action.run(scriptRunner);
+			} finally {
+				this.dialogTelemetry.actionFinished();
+			}
 		}
 	}
 
@@ -152,7 +205,7 @@ final class ScriptRunnerThread extends Thread {
 			Shell[] shells = display.getShells();
 
 			if (grabScreen && shells.length > 0) {
-				grabScreen();
+				captureShells(display, shells);
 			}
 			for (Shell shell : shells) {
 				if (!shell.isDisposed()) {
@@ -171,6 +224,48 @@ final class ScriptRunnerThread extends Thread {
 		return remainingShellTexts;
 	}
 
+	private void captureShells(Display display, Shell[] shells) {
+		try {
+			Path workingDir = FileUtil.workingDir();
+
+			LOG.info("Capturing Shell screenshots into directory ''{0}''...", workingDir);
+
+			for (Shell shell : shells) {
+				if (!shell.isDisposed() && shell.isVisible()) {
+					String shellText = shell.getText();
+					ImageData imageData = ScreenCapture.capture(display, shell.getBounds());
+
+					this.pendingScreenshots.add(ScreenCapture.encodePng(imageData).thenApply(this::storeScreenshot)
+							.whenComplete((file, exception) -> {
+								if (exception != null) {
+									LOG.error(exception, "Failed to store screenshot of Shell ''{0}''", shellText);
+								} else {
+									LOG.info("Captured screenshot of Shell ''{0}'' stored in file ''{1}''", shellText,
+											file);
+								}
+							}));
+				}
+			}
+		} catch (SWTException | IllegalArgumentException e) {
+			LOG.warning(e, "In-process screen capture failed; falling back to platform screenshot command");
+
+			grabScreen();
+		}
+	}
+
+	private void awaitScreenshots() {
+		try {
+			CompletableFuture.allOf(this.pendingScreenshots.toArray(new CompletableFuture<?>[0]))
+					.get(Timing.STEP_COUNT_LIMIT * Timing.STEP_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException | TimeoutException e) {
+			LOG.warning(e, "Failed to complete screenshot encoding");
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			this.pendingScreenshots.clear();
+		}
+	}
+
 	private void grabScreen() {
 		try {
 			Path workingDir = FileUtil.workingDir();
@@ -181,9 +276,8 @@ final class ScriptRunnerThread extends Thread {
 
 			LOG.info("Grabbed screenshot to file ''{0}''", tmpScreenshotFile);
 
-			Path screenshotFile = createScreenShotFile(tmpScreenshotFile);
-
-			Files.move(tmpScreenshotFile, screenshotFile, StandardCopyOption.REPLACE_EXISTING);
+			String extension = FileUtil.splitPath(tmpScreenshotFile.getFileName().toString())[2];
+			Path screenshotFile = ScreenshotStore.open(workingDir).store(this.testName, extension, tmpScreenshotFile);
 
 			LOG.info("Grabbed screenshot stored in file ''{0}''", screenshotFile);
 		} catch (IOException e) {
@@ -191,27 +285,26 @@ final class ScriptRunnerThread extends Thread {
 		}
 	}
 
-	private Path createScreenShotFile(Path tmpScreenshotFile) throws IOException {
-		Path dir = tmpScreenshotFile.getParent();
-		String extension = FileUtil.splitPath(tmpScreenshotFile.getFileName().toString())[2];
-		Path screenshotFile = null;
-		int screenshotIndex = 0;
+	private Path storeScreenshot(byte[] png) {
+		try {
+			return storeArtifact("png", png);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 
-		while (screenshotFile == null) {
-			screenshotIndex++;
-			if (screenshotIndex > 9999) {
-				throw new IOException("Too many screenshots");
-			}
-			try {
-				Path createdFile = dir
-						.resolve(String.format("%1$s%2$04d.%3$s", this.testName, screenshotIndex, extension));
+	void writeArtifact(String extension, byte[] content) {
+		try {
+			Path artifactFile = storeArtifact(extension, content);
 
-				screenshotFile = Files.createFile(createdFile, FileAttributes.userFileDefault(dir));
-			} catch (IOException e) {
-				Exceptions.ignore(e);
-			}
+			LOG.info("Test artifact stored in file ''{0}''", artifactFile);
+		} catch (IOException e) {
+			LOG.error(e, "Failed to write test artifact");
 		}
-		return screenshotFile;
+	}
+
+	private Path storeArtifact(String extension, byte[] content) throws IOException {
+		return ScreenshotStore.open(FileUtil.workingDir()).store(this.testName, extension, content);
 	}
 
 	private Display getDisplay() {
@@ -269,6 +362,11 @@ final class ScriptRunnerThread extends Thread {
 				ScriptRunnerThread.this.recordAssertion(assertion);
 			}
 
+			@Override
+			public void writeArtifact(String extension, byte[] content) {
+				ScriptRunnerThread.this.writeArtifact(extension, content);
+			}
+
 		};
 	}
 
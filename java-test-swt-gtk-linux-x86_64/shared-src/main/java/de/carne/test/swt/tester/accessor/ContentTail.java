@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.accessor;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Tracks the read position within the content of a growing widget (e.g. a log pane).
+ * <p>
+ * A {@linkplain ContentTail} instance is typically held by the test and handed to the tail functions of the
+ * corresponding accessor (see {@linkplain ListAccessor#readTail(ContentTail)} and
+ * {@linkplain StyledTextAccessor#readTail(ContentTail)}). As accessors are usually re-created on every access, the
+ * instance keeps the position between these accesses, so each read only has to evaluate the content appended since the
+ * previous one.
+ * </p>
+ * <p>
+ * The tracked content is expected to grow by appending. If the tracked widget changes or its content shrinks below the
+ * current position, reading restarts at the beginning of the content.
+ * </p>
+ */
+public final class ContentTail {
+
+	private @Nullable Object source = null;
+	private int position = 0;
+
+	/**
+	 * Resets the read position, causing the next read to start at the beginning of the content.
+	 */
+	public void reset() {
+		this.source = null;
+		this.position = 0;
+	}
+
+	int position(Object currentSource, int contentLength) {
+		if (this.source != currentSource || contentLength < this.position) {
+			this.source = currentSource;
+			this.position = 0;
+		}
+		return this.position;
+	}
+
+	void update(Object currentSource, int newPosition) {
+		this.source = currentSource;
+		this.position = newPosition;
+	}
+
+	@Override
+	public String toString() {
+		return "@" + this.position;
+	}
+
+}
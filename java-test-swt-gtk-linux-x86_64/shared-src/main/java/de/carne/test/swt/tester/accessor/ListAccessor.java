@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.accessor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.List;
+
+/**
+ * Accessor class for {@linkplain List} objects.
+ * <p>
+ * Besides accessing the full item list, this accessor supports incremental reading of lists which are continuously
+ * growing (e.g. message or log lists) via a {@linkplain ContentTail} instance.
+ * </p>
+ */
+public class ListAccessor extends ControlAccessor<List> {
+
+	/**
+	 * Constructs a new {@linkplain ListAccessor} instance.
+	 *
+	 * @param list the {@linkplain List} object to access.
+	 */
+	public ListAccessor(@Nullable List list) {
+		super(list);
+	}
+
+	/**
+	 * Constructs a new {@linkplain ListAccessor} instance.
+	 *
+	 * @param listHolder the optional {@linkplain List} object to access.
+	 */
+	public ListAccessor(Optional<List> listHolder) {
+		super(listHolder);
+	}
+
+	/**
+	 * Constructs a new {@linkplain ListAccessor} instance.
+	 *
+	 * @param accessor the accessor to the {@linkplain List} instance to access.
+	 */
+	public ListAccessor(Accessor<List> accessor) {
+		super(accessor);
+	}
+
+	/**
+	 * Gets all items of this {@linkplain List}.
+	 *
+	 * @return all items of this {@linkplain List}.
+	 */
+	public Stream<String> items() {
+		Optional<List> optionalList = getOptional();
+
+		return (optionalList.isPresent() ? Arrays.stream(optionalList.get().getItems()) : Stream.empty());
+	}
+
+	/**
+	 * Reads the items appended to this {@linkplain List} since the last read via the given {@linkplain ContentTail}.
+	 * <p>
+	 * Only the new items are fetched from the {@linkplain List}. Afterwards the tail is positioned behind the last
+	 * item.
+	 * </p>
+	 *
+	 * @param tail the {@linkplain ContentTail} tracking the read position.
+	 * @return the items appended since the last read (may be empty).
+	 */
+	public java.util.List<String> readTail(ContentTail tail) {
+		Optional<List> optionalList = getOptional();
+		java.util.List<String> tailItems = new ArrayList<>();
+
+		if (optionalList.isPresent()) {
+			List list = optionalList.get();
+			int itemCount = list.getItemCount();
+			int itemIndex = tail.position(list, itemCount);
+
+			while (itemIndex < itemCount) {
+				tailItems.add(list.getItem(itemIndex));
+				itemIndex++;
+			}
+			tail.update(list, itemIndex);
+		}
+		return tailItems;
+	}
+
+	/**
+	 * Gets the first item appended to this {@linkplain List} since the last read via the given
+	 * {@linkplain ContentTail} and matching the given {@linkplain Predicate}.
+	 * <p>
+	 * Only the new items are evaluated. If a matching item is found, the tail is positioned behind this item. Otherwise
+	 * it is positioned behind the last item. This function is well suited as the supply action of a wait action, as
+	 * every poll only evaluates the items appended since the previous poll.
+	 * </p>
+	 *
+	 * @param tail the {@linkplain ContentTail} tracking the read position.
+	 * @param predicate the match criteria to use.
+	 * @return the found item.
+	 */
+	public Accessor<String> accessTail(ContentTail tail, Predicate<String> predicate) {
+		Optional<List> optionalList = getOptional();
+		@Nullable String tailItem = null;
+
+		if (optionalList.isPresent()) {
+			List list = optionalList.get();
+			int itemCount = list.getItemCount();
+			int itemIndex = tail.position(list, itemCount);
+
+			while (tailItem == null && itemIndex < itemCount) {
+				String item = list.getItem(itemIndex);
+
+				if (predicate.test(item)) {
+					tailItem = item;
+				}
+				itemIndex++;
+			}
+			tail.update(list, itemIndex);
+		}
+		return new Accessor<>(tailItem);
+	}
+
+	/**
+	 * Positions the given {@linkplain ContentTail} behind the last item of this {@linkplain List}.
+	 * <p>
+	 * This is typically invoked before triggering an action, so a subsequent read only considers the items appended by
+	 * the action.
+	 * </p>
+	 *
+	 * @param tail the {@linkplain ContentTail} to position.
+	 */
+	public void skipTail(ContentTail tail) {
+		List list = get();
+
+		tail.update(list, list.getItemCount());
+	}
+
+}
@@ -117,4 +117,41 @@ public class MenuAccessor extends Accessor<Menu> {
 		return accessItem(ItemAccessor.matchText(text));
 	}
 
+	/**
+	 * Convenience function which gets a specific {@linkplain MenuItem} identified by the texts of the cascade items
+	 * leading to it (e.g. {@code accessItemPath("Application", "Quit")}).
+	 * <p>
+	 * In contrast to {@linkplain #accessItem(String)} the path is resolved one menu level at a time. Only the items of
+	 * the menus along the path are enumerated; all other cascades are not visited at all.
+	 * </p>
+	 * <p>
+	 * A test failure is signaled if more than one item matches a path segment.
+	 * </p>
+	 *
+	 * @param path the item texts to descend along.
+	 * @return the found {@linkplain MenuItem}.
+	 */
+	public MenuItemAccessor accessItemPath(String... path) {
+		Optional<Menu> optionalMenu = getOptional();
+		@Nullable MenuItem item = null;
+
+		if (optionalMenu.isPresent() && path.length > 0) {
+			@Nullable Menu menu = optionalMenu.get();
+
+			for (String segment : path) {
+				item = (menu != null ? findItem(menu, segment) : null);
+				if (item == null) {
+					break;
+				}
+				menu = item.getMenu();
+			}
+		}
+		return new MenuItemAccessor(Optional.ofNullable(item));
+	}
+
+	private static @Nullable MenuItem findItem(Menu menu, String text) {
+		return Arrays.stream(menu.getItems()).filter(ItemAccessor.matchText(text)).collect(Unique.getOptional())
+				.orElse(null);
+	}
+
 }
@@ -21,6 +21,7 @@ import java.util.Optional;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.MenuItem;
 
 /**
@@ -55,6 +56,18 @@ public class MenuItemAccessor extends ItemAccessor<MenuItem> {
 		super(accessor);
 	}
 
+	/**
+	 * Gets the cascade {@linkplain Menu} of this {@linkplain MenuItem}.
+	 *
+	 * @return the cascade {@linkplain Menu} of this {@linkplain MenuItem}.
+	 */
+	public MenuAccessor accessMenu() {
+		Optional<MenuItem> optionalMenuItem = getOptional();
+
+		return new MenuAccessor(
+				Optional.ofNullable(optionalMenuItem.isPresent() ? optionalMenuItem.get().getMenu() : null));
+	}
+
 	/**
 	 * Generate a selection event to the {@linkplain MenuItem}.
 	 */
@@ -80,6 +80,21 @@ public class ShellAccessor extends DecorationsAccessor<Shell> {
 		return accessMenuBar().accessItem(predicate);
 	}
 
+	/**
+	 * Convenience function which gets a specific {@linkplain MenuItem} from this {@linkplain Shell}'s menu bar by
+	 * descending along the given item texts.
+	 * <p>
+	 * A test failure is signaled if more than one item matches a path segment.
+	 * </p>
+	 *
+	 * @param path the item texts to descend along.
+	 * @return the found {@linkplain MenuItem}.
+	 * @see MenuAccessor#accessItemPath(String...)
+	 */
+	public MenuItemAccessor accessMenuItem(String... path) {
+		return accessMenuBar().accessItemPath(path);
+	}
+
 	/**
 	 * Convenience function to close this {@linkplain Shell}.
 	 */
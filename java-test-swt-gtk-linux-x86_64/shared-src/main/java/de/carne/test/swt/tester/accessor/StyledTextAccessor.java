@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.accessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.custom.StyledText;
+
+/**
+ * Accessor class for {@linkplain StyledText} objects.
+ * <p>
+ * Besides accessing the full text, this accessor supports incremental line-wise reading of texts which are
+ * continuously growing (e.g. log panes) via a {@linkplain ContentTail} instance. Only complete (line delimiter
+ * terminated) lines are returned by the tail functions. A trailing incomplete line is returned as soon as it has been
+ * completed.
+ * </p>
+ */
+public class StyledTextAccessor extends CompositeAccessor<StyledText> {
+
+	/**
+	 * Constructs a new {@linkplain StyledTextAccessor} instance.
+	 *
+	 * @param styledText the {@linkplain StyledText} object to access.
+	 */
+	public StyledTextAccessor(@Nullable StyledText styledText) {
+		super(styledText);
+	}
+
+	/**
+	 * Constructs a new {@linkplain StyledTextAccessor} instance.
+	 *
+	 * @param styledTextHolder the optional {@linkplain StyledText} object to access.
+	 */
+	public StyledTextAccessor(Optional<StyledText> styledTextHolder) {
+		super(styledTextHolder);
+	}
+
+	/**
+	 * Constructs a new {@linkplain StyledTextAccessor} instance.
+	 *
+	 * @param accessor the accessor to the {@linkplain StyledText} instance to access.
+	 */
+	public StyledTextAccessor(Accessor<StyledText> accessor) {
+		super(accessor);
+	}
+
+	/**
+	 * Gets the complete text of this {@linkplain StyledText}.
+	 *
+	 * @return the complete text of this {@linkplain StyledText}.
+	 */
+	public String getText() {
+		return get().getText();
+	}
+
+	/**
+	 * Reads the lines appended to this {@linkplain StyledText} since the last read via the given
+	 * {@linkplain ContentTail}.
+	 * <p>
+	 * Only the text appended since the last read is fetched from the {@linkplain StyledText}. Afterwards the tail is
+	 * positioned behind the last complete line.
+	 * </p>
+	 *
+	 * @param tail the {@linkplain ContentTail} tracking the read position.
+	 * @return the lines appended since the last read (may be empty).
+	 */
+	public List<String> readTail(ContentTail tail) {
+		List<String> tailLines = new ArrayList<>();
+
+		scanTail(tail, line -> {
+			tailLines.add(line);
+			return false;
+		});
+		return tailLines;
+	}
+
+	/**
+	 * Gets the first line appended to this {@linkplain StyledText} since the last read via the given
+	 * {@linkplain ContentTail} and matching the given {@linkplain Predicate}.
+	 * <p>
+	 * Only the text appended since the last read is evaluated. If a matching line is found, the tail is positioned
+	 * behind this line. Otherwise it is positioned behind the last complete line. This function is well suited as the
+	 * supply action of a wait action, as every poll only evaluates the text appended since the previous poll.
+	 * </p>
+	 *
+	 * @param tail the {@linkplain ContentTail} tracking the read position.
+	 * @param predicate the match criteria to use.
+	 * @return the found line.
+	 */
+	public Accessor<String> accessTail(ContentTail tail, Predicate<String> predicate) {
+		return new Accessor<>(scanTail(tail, predicate));
+	}
+
+	/**
+	 * Positions the given {@linkplain ContentTail} behind the current end of this {@linkplain StyledText}.
+	 * <p>
+	 * This is typically invoked before triggering an action, so a subsequent read only considers the text appended by
+	 * the action.
+	 * </p>
+	 *
+	 * @param tail the {@linkplain ContentTail} to position.
+	 */
+	public void skipTail(ContentTail tail) {
+		StyledText styledText = get();
+
+		tail.update(styledText, styledText.getCharCount());
+	}
+
+	private @Nullable String scanTail(ContentTail tail, Predicate<String> predicate) {
+		Optional<StyledText> optionalStyledText = getOptional();
+		@Nullable String tailLine = null;
+
+		if (optionalStyledText.isPresent()) {
+			StyledText styledText = optionalStyledText.get();
+			int charCount = styledText.getCharCount();
+			int position = tail.position(styledText, charCount);
+			String text = (position < charCount ? styledText.getTextRange(position, charCount - position) : "");
+			int textLength = text.length();
+			int lineStart = 0;
+			int textIndex = 0;
+
+			while (tailLine == null && textIndex < textLength) {
+				char c = text.charAt(textIndex);
+
+				if (c == '\r' && textIndex + 1 == textLength) {
+					// Wait for a possibly following '\n' before considering the line complete
+					break;
+				}
+				if (c == '\n' || c == '\r') {
+					String line = text.substring(lineStart, textIndex);
+
+					if (c == '\r' && textIndex + 1 < textLength && text.charAt(textIndex + 1) == '\n') {
+						textIndex++;
+					}
+					lineStart = textIndex + 1;
+					if (predicate.test(line)) {
+						tailLine = line;
+					}
+				}
+				textIndex++;
+			}
+			tail.update(styledText, position + lineStart);
+		}
+		return tailLine;
+	}
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.accessor;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+import de.carne.util.stream.Unique;
+
+/**
+ * Accessor class for {@linkplain Tree} objects.
+ * <p>
+ * Items are resolved by path (see {@linkplain #accessItem(String...)}). Only the items along the requested path are
+ * expanded, which keeps the access cheap for large and lazily populated trees.
+ * </p>
+ */
+public class TreeAccessor extends ControlAccessor<Tree> {
+
+	/**
+	 * The separator used to split item paths (see {@linkplain #accessItemPath(String)}).
+	 */
+	public static final String PATH_SEPARATOR = "/";
+
+	private static final Pattern PATH_SEPARATOR_PATTERN = Pattern.compile(Pattern.quote(PATH_SEPARATOR));
+
+	/**
+	 * Constructs a new {@linkplain TreeAccessor} instance.
+	 *
+	 * @param tree the {@linkplain Tree} object to access.
+	 */
+	public TreeAccessor(@Nullable Tree tree) {
+		super(tree);
+	}
+
+	/**
+	 * Constructs a new {@linkplain TreeAccessor} instance.
+	 *
+	 * @param treeHolder the optional {@linkplain Tree} object to access.
+	 */
+	public TreeAccessor(Optional<Tree> treeHolder) {
+		super(treeHolder);
+	}
+
+	/**
+	 * Constructs a new {@linkplain TreeAccessor} instance.
+	 *
+	 * @param accessor the accessor to the {@linkplain Tree} instance to access.
+	 */
+	public TreeAccessor(Accessor<Tree> accessor) {
+		super(accessor);
+	}
+
+	/**
+	 * Gets the top-level {@linkplain TreeItem}s of this {@linkplain Tree}.
+	 *
+	 * @return the top-level {@linkplain TreeItem}s of this {@linkplain Tree}.
+	 */
+	public Stream<TreeItem> items() {
+		Optional<Tree> optionalTree = getOptional();
+
+		return (optionalTree.isPresent() ? Arrays.stream(optionalTree.get().getItems()) : Stream.empty());
+	}
+
+	/**
+	 * Convenience function which gets a specific top-level {@linkplain TreeItem}.
+	 * <p>
+	 * A test failure is signaled if either none or more than one matching {@linkplain TreeItem} exists.
+	 * </p>
+	 *
+	 * @param predicate the match criteria to use.
+	 * @return the found {@linkplain TreeItem}.
+	 */
+	public TreeItemAccessor accessItem(Predicate<TreeItem> predicate) {
+		return new TreeItemAccessor(items().filter(predicate).collect(Unique.getOptional()));
+	}
+
+	/**
+	 * Convenience function which gets a specific {@linkplain TreeItem} identified by the texts of the items leading to
+	 * it.
+	 * <p>
+	 * The path is resolved one level at a time. Every item on the path (except the last one) is expanded on demand by
+	 * sending a {@linkplain org.eclipse.swt.SWT#Expand} event prior to expanding it. Items not on the path are neither
+	 * expanded nor are their children enumerated.
+	 * </p>
+	 * <p>
+	 * If a path segment cannot be resolved (e.g. because the application populates the expanded item's children
+	 * asynchronously) an empty accessor is returned. Used as the supply action of a wait action (see
+	 * {@linkplain de.carne.test.swt.tester.SWTTest.Script#add(java.util.function.Supplier, java.util.function.Consumer)})
+	 * the resolution is therefore retried until the children become available or the action's timeout is reached.
+	 * Already expanded items are not expanded again during these retries.
+	 * </p>
+	 * <p>
+	 * A test failure is signaled if more than one item matches a path segment.
+	 * </p>
+	 *
+	 * @param path the item texts to descend along.
+	 * @return the found {@linkplain TreeItem}.
+	 */
+	public TreeItemAccessor accessItem(String... path) {
+		Optional<Tree> optionalTree = getOptional();
+		@Nullable TreeItem item = null;
+
+		if (optionalTree.isPresent() && path.length > 0) {
+			item = TreeItemAccessor.findItem(optionalTree.get().getItems(), path[0]);
+			if (item != null) {
+				item = TreeItemAccessor.resolvePath(item, path, 1);
+			}
+		}
+		return new TreeItemAccessor(Optional.ofNullable(item));
+	}
+
+	/**
+	 * Convenience function which gets a specific {@linkplain TreeItem} identified by a {@value #PATH_SEPARATOR}
+	 * separated path (e.g. {@code "Root/Group 12/Item 4711"}).
+	 *
+	 * @param path the item path to resolve.
+	 * @return the found {@linkplain TreeItem}.
+	 * @see #accessItem(String...)
+	 */
+	public TreeItemAccessor accessItemPath(String path) {
+		return accessItem(PATH_SEPARATOR_PATTERN.split(path));
+	}
+
+}
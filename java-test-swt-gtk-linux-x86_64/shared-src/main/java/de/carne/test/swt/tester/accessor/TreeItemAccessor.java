@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.accessor;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+
+import de.carne.util.stream.Unique;
+
+/**
+ * Accessor class for {@linkplain TreeItem} objects.
+ */
+public class TreeItemAccessor extends ItemAccessor<TreeItem> {
+
+	/**
+	 * Constructs a new {@linkplain TreeItemAccessor} instance.
+	 *
+	 * @param treeItem the {@linkplain TreeItem} object to access.
+	 */
+	public TreeItemAccessor(@Nullable TreeItem treeItem) {
+		super(treeItem);
+	}
+
+	/**
+	 * Constructs a new {@linkplain TreeItemAccessor} instance.
+	 *
+	 * @param optionalTreeItem the optional {@linkplain TreeItem} object to access.
+	 */
+	public TreeItemAccessor(Optional<TreeItem> optionalTreeItem) {
+		super(optionalTreeItem);
+	}
+
+	/**
+	 * Constructs a new {@linkplain TreeItemAccessor} instance.
+	 *
+	 * @param accessor the accessor to the {@linkplain TreeItem} instance to access.
+	 */
+	public TreeItemAccessor(Accessor<TreeItem> accessor) {
+		super(accessor);
+	}
+
+	/**
+	 * Gets the direct child {@linkplain TreeItem}s of this {@linkplain TreeItem}.
+	 * <p>
+	 * The item is not expanded by this function. Hence only the currently known children are returned.
+	 * </p>
+	 *
+	 * @return the direct child {@linkplain TreeItem}s of this {@linkplain TreeItem}.
+	 */
+	public Stream<TreeItem> items() {
+		Optional<TreeItem> optionalTreeItem = getOptional();
+
+		return (optionalTreeItem.isPresent() ? Arrays.stream(optionalTreeItem.get().getItems()) : Stream.empty());
+	}
+
+	/**
+	 * Convenience function which gets a specific descendant {@linkplain TreeItem} of this {@linkplain TreeItem}.
+	 * <p>
+	 * The path is resolved by expanding this and all intermediate items on demand (see {@linkplain #expand()}).
+	 * Siblings not on the path are neither expanded nor enumerated beyond their own level. If a path segment cannot be
+	 * resolved (e.g. because the application populates the children asynchronously) an empty accessor is returned.
+	 * Using this function as the supply action of a wait action therefore retries the resolution until the children
+	 * become available or the timeout is reached.
+	 * </p>
+	 * <p>
+	 * A test failure is signaled if more than one item matches a path segment.
+	 * </p>
+	 *
+	 * @param path the item texts to descend along.
+	 * @return the found {@linkplain TreeItem}.
+	 */
+	public TreeItemAccessor accessItem(String... path) {
+		Optional<TreeItem> optionalTreeItem = getOptional();
+		@Nullable TreeItem item = null;
+
+		if (optionalTreeItem.isPresent()) {
+			TreeItem treeItem = optionalTreeItem.get();
+
+			item = (path.length > 0 ? resolvePath(treeItem, path, 0) : treeItem);
+		}
+		return new TreeItemAccessor(Optional.ofNullable(item));
+	}
+
+	/**
+	 * Expands this {@linkplain TreeItem}.
+	 * <p>
+	 * If the item is not yet expanded, a {@linkplain SWT#Expand} event is sent to the item's {@linkplain Tree} before
+	 * the item is expanded. This gives lazy trees the chance to populate the item's children the same way as if the
+	 * user had expanded the item.
+	 * </p>
+	 */
+	public void expand() {
+		expandItem(get());
+	}
+
+	/**
+	 * Collapses this {@linkplain TreeItem}.
+	 * <p>
+	 * If the item is currently expanded, a {@linkplain SWT#Collapse} event is sent to the item's {@linkplain Tree}
+	 * before the item is collapsed.
+	 * </p>
+	 */
+	public void collapse() {
+		TreeItem item = get();
+
+		if (item.getExpanded()) {
+			Event event = new Event();
+
+			event.item = item;
+			item.getParent().notifyListeners(SWT.Collapse, event);
+			item.setExpanded(false);
+		}
+	}
+
+	/**
+	 * Selects this {@linkplain TreeItem} and generates the corresponding selection event.
+	 */
+	public void select() {
+		TreeItem item = get();
+		Tree tree = item.getParent();
+		Event event = new Event();
+
+		tree.setSelection(item);
+		event.item = item;
+		tree.notifyListeners(SWT.Selection, event);
+	}
+
+	static @Nullable TreeItem resolvePath(TreeItem parent, String[] path, int pathIndex) {
+		@Nullable TreeItem item = parent;
+
+		for (int segmentIndex = pathIndex; item != null && segmentIndex < path.length; segmentIndex++) {
+			expandItem(item);
+			item = findItem(item.getItems(), path[segmentIndex]);
+		}
+		return item;
+	}
+
+	static @Nullable TreeItem findItem(TreeItem[] items, String text) {
+		return Arrays.stream(items).filter(ItemAccessor.matchText(text)).collect(Unique.getOptional()).orElse(null);
+	}
+
+	private static void expandItem(TreeItem item) {
+		if (!item.getExpanded()) {
+			Event event = new Event();
+
+			event.item = item;
+			item.getParent().notifyListeners(SWT.Expand, event);
+			if (!item.isDisposed()) {
+				item.setExpanded(true);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.image;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Golden image comparison engine.
+ * <p>
+ * Both images are divided into fixed-size tiles, which are compared row by row. Runs of equal pixels are skipped via
+ * {@linkplain Arrays#mismatch(int[], int, int, int[], int, int)} (which is intrinsified by the JIT) and only the
+ * mismatching pixels are compared individually (taking the configured color tolerance into account). Hence the cost of
+ * a comparison is a single pass over both images, without any hashing or collision risk. The per-tile difference
+ * counts are kept for reporting (see {@linkplain ImageComparison}). Large images are compared in parallel via the
+ * common {@linkplain ForkJoinPool}.
+ * </p>
+ * <p>
+ * Instances of this class are immutable and thread-safe.
+ * </p>
+ */
+public final class ImageComparator {
+
+	/**
+	 * The default tile size (in pixels).
+	 */
+	public static final int DEFAULT_TILE_SIZE = 32;
+
+	/**
+	 * The default image size (in pixels) starting at which images are compared in parallel.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 256 * 256;
+
+	private static final int TILES_PER_TASK = 16;
+
+	private static final ImageComparator EXACT = new ImageComparator(DEFAULT_TILE_SIZE, 0, 0,
+			DEFAULT_PARALLEL_THRESHOLD);
+
+	private final int tileSize;
+	private final int tolerance;
+	private final int maxDifferentPixels;
+	private final int parallelThreshold;
+
+	private ImageComparator(int tileSize, int tolerance, int maxDifferentPixels, int parallelThreshold) {
+		this.tileSize = tileSize;
+		this.tolerance = tolerance;
+		this.maxDifferentPixels = maxDifferentPixels;
+		this.parallelThreshold = parallelThreshold;
+	}
+
+	/**
+	 * Gets the {@linkplain ImageComparator} performing an exact comparison (no color tolerance and no differing pixels
+	 * allowed).
+	 *
+	 * @return the {@linkplain ImageComparator} performing an exact comparison.
+	 */
+	public static ImageComparator exact() {
+		return EXACT;
+	}
+
+	/**
+	 * Derives a {@linkplain ImageComparator} with a different tile size.
+	 *
+	 * @param newTileSize the tile size (in pixels) to use.
+	 * @return the derived {@linkplain ImageComparator}.
+	 */
+	public ImageComparator withTileSize(int newTileSize) {
+		if (newTileSize <= 0) {
+			throw new IllegalArgumentException("Invalid tile size: " + newTileSize);
+		}
+		return new ImageComparator(newTileSize, this.tolerance, this.maxDifferentPixels, this.parallelThreshold);
+	}
+
+	/**
+	 * Derives a {@linkplain ImageComparator} with a different color tolerance.
+	 * <p>
+	 * Two pixels are considered equal if none of their color channels differs by more than the given tolerance.
+	 * </p>
+	 *
+	 * @param newTolerance the color tolerance (0-255) to use.
+	 * @return the derived {@linkplain ImageComparator}.
+	 */
+	public ImageComparator withTolerance(int newTolerance) {
+		if (newTolerance < 0 || newTolerance > 255) {
+			throw new IllegalArgumentException("Invalid tolerance: " + newTolerance);
+		}
+		return new ImageComparator(this.tileSize, newTolerance, this.maxDifferentPixels, this.parallelThreshold);
+	}
+
+	/**
+	 * Derives a {@linkplain ImageComparator} with a different number of allowed differing pixels.
+	 *
+	 * @param newMaxDifferentPixels the number of differing pixels still considered a match.
+	 * @return the derived {@linkplain ImageComparator}.
+	 */
+	public ImageComparator withMaxDifferentPixels(int newMaxDifferentPixels) {
+		if (newMaxDifferentPixels < 0) {
+			throw new IllegalArgumentException("Invalid number of pixels: " + newMaxDifferentPixels);
+		}
+		return new ImageComparator(this.tileSize, this.tolerance, newMaxDifferentPixels, this.parallelThreshold);
+	}
+
+	/**
+	 * Derives a {@linkplain ImageComparator} with a different parallel comparison threshold.
+	 *
+	 * @param newParallelThreshold the image size (in pixels) starting at which images are compared in parallel.
+	 * @return the derived {@linkplain ImageComparator}.
+	 */
+	public ImageComparator withParallelThreshold(int newParallelThreshold) {
+		return new ImageComparator(this.tileSize, this.tolerance, this.maxDifferentPixels, newParallelThreshold);
+	}
+
+	/**
+	 * Gets the tile size used by this {@linkplain ImageComparator}.
+	 *
+	 * @return the tile size (in pixels) used by this {@linkplain ImageComparator}.
+	 */
+	public int tileSize() {
+		return this.tileSize;
+	}
+
+	/**
+	 * Gets the color tolerance used by this {@linkplain ImageComparator}.
+	 *
+	 * @return the color tolerance used by this {@linkplain ImageComparator}.
+	 */
+	public int tolerance() {
+		return this.tolerance;
+	}
+
+	/**
+	 * Gets the number of differing pixels still considered a match.
+	 *
+	 * @return the number of differing pixels still considered a match.
+	 */
+	public int maxDifferentPixels() {
+		return this.maxDifferentPixels;
+	}
+
+	/**
+	 * Compares two images.
+	 *
+	 * @param expected the expected (golden) image.
+	 * @param actual the actual image.
+	 * @return the comparison result.
+	 */
+	public ImageComparison compare(RasterImage expected, RasterImage actual) {
+		ImageComparison comparison;
+
+		if (expected.width() == actual.width() && expected.height() == actual.height()) {
+			int[] tileDifferences = new int[RasterImage.tileCount(expected.width(), this.tileSize)
+					* RasterImage.tileCount(expected.height(), this.tileSize)];
+			CompareTask compareTask = new CompareTask(this, expected, actual, tileDifferences, 0,
+					tileDifferences.length);
+
+			if (expected.width() * expected.height() >= this.parallelThreshold) {
+				ForkJoinPool.commonPool().invoke(compareTask);
+			} else {
+				compareTask.compareTiles();
+			}
+			comparison = new ImageComparison(this, expected, actual, tileDifferences);
+		} else {
+			comparison = new ImageComparison(this, expected, actual, null);
+		}
+		return comparison;
+	}
+
+	boolean pixelDiffers(int expectedRGB, int actualRGB) {
+		boolean differs;
+
+		if (expectedRGB == actualRGB) {
+			differs = false;
+		} else if (this.tolerance == 0) {
+			differs = true;
+		} else {
+			differs = channelDiffers(expectedRGB >>> 16, actualRGB >>> 16)
+					|| channelDiffers(expectedRGB >>> 8, actualRGB >>> 8) || channelDiffers(expectedRGB, actualRGB);
+		}
+		return differs;
+	}
+
+	private boolean channelDiffers(int expectedChannel, int actualChannel) {
+		return Math.abs((expectedChannel & 0xff) - (actualChannel & 0xff)) > this.tolerance;
+	}
+
+	private static final class CompareTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient ImageComparator comparator;
+		private final transient RasterImage expected;
+		private final transient RasterImage actual;
+		private final int[] tileDifferences;
+		private final int fromTile;
+		private final int toTile;
+
+		CompareTask(ImageComparator comparator, RasterImage expected, RasterImage actual, int[] tileDifferences,
+				int fromTile, int toTile) {
+			this.comparator = comparator;
+			this.expected = expected;
+			this.actual = actual;
+			this.tileDifferences = tileDifferences;
+			this.fromTile = fromTile;
+			this.toTile = toTile;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.toTile - this.fromTile <= TILES_PER_TASK) {
+				compareTiles();
+			} else {
+				int middleTile = (this.fromTile + this.toTile) >>> 1;
+
+				invokeAll(split(this.fromTile, middleTile), split(middleTile, this.toTile));
+			}
+		}
+
+		private CompareTask split(int splitFromTile, int splitToTile) {
+			return new CompareTask(this.comparator, this.expected, this.actual, this.tileDifferences, splitFromTile,
+					splitToTile);
+		}
+
+		void compareTiles() {
+			int tileSize = this.comparator.tileSize();
+			int tilesX = RasterImage.tileCount(this.actual.width(), tileSize);
+
+			for (int tile = this.fromTile; tile < this.toTile; tile++) {
+				int tileLeft = (tile % tilesX) * tileSize;
+				int tileTop = (tile / tilesX) * tileSize;
+
+				this.tileDifferences[tile] = compareTile(tileLeft, tileTop, tileSize);
+			}
+		}
+
+		private int compareTile(int tileLeft, int tileTop, int tileSize) {
+			int width = this.actual.width();
+			int tileRight = Math.min(tileLeft + tileSize, width);
+			int tileBottom = Math.min(tileTop + tileSize, this.actual.height());
+			int[] expectedPixels = this.expected.pixels();
+			int[] actualPixels = this.actual.pixels();
+			int differentPixels = 0;
+
+			for (int y = tileTop; y < tileBottom; y++) {
+				int rowIndex = y * width;
+				int rowEnd = rowIndex + tileRight;
+				int pixelIndex = rowIndex + tileLeft;
+
+				while (pixelIndex < rowEnd) {
+					int mismatch = Arrays.mismatch(expectedPixels, pixelIndex, rowEnd, actualPixels, pixelIndex,
+							rowEnd);
+
+					if (mismatch < 0) {
+						break;
+					}
+					pixelIndex += mismatch;
+					if (this.comparator.pixelDiffers(expectedPixels[pixelIndex], actualPixels[pixelIndex])) {
+						differentPixels++;
+					}
+					pixelIndex++;
+				}
+			}
+			return differentPixels;
+		}
+
+	}
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.image;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.opentest4j.AssertionFailedError;
+
+/**
+ * Result of a golden image comparison (see {@linkplain ImageComparator#compare(RasterImage, RasterImage)}).
+ */
+public final class ImageComparison {
+
+	private static final int DIFF_RGB = 0xff0000;
+
+	private final ImageComparator comparator;
+	private final RasterImage expected;
+	private final RasterImage actual;
+	private final int @Nullable [] tileDifferences;
+	private final int differentPixels;
+	private final int differentTiles;
+
+	ImageComparison(ImageComparator comparator, RasterImage expected, RasterImage actual,
+			int @Nullable [] tileDifferences) {
+		this.comparator = comparator;
+		this.expected = expected;
+		this.actual = actual;
+		this.tileDifferences = tileDifferences;
+
+		int pixelCount = 0;
+		int tileCount = 0;
+
+		if (tileDifferences != null) {
+			for (int tileDifference : tileDifferences) {
+				if (tileDifference > 0) {
+					pixelCount += tileDifference;
+					tileCount++;
+				}
+			}
+		} else {
+			pixelCount = Math.max(expected.width(), actual.width()) * Math.max(expected.height(), actual.height());
+		}
+		this.differentPixels = pixelCount;
+		this.differentTiles = tileCount;
+	}
+
+	/**
+	 * Gets the expected (golden) image.
+	 *
+	 * @return the expected (golden) image.
+	 */
+	public RasterImage expected() {
+		return this.expected;
+	}
+
+	/**
+	 * Gets the actual image.
+	 *
+	 * @return the actual image.
+	 */
+	public RasterImage actual() {
+		return this.actual;
+	}
+
+	/**
+	 * Checks whether the compared images are of equal size.
+	 *
+	 * @return {@code true} if the compared images are of equal size.
+	 */
+	public boolean sizeMatches() {
+		return this.tileDifferences != null;
+	}
+
+	/**
+	 * Gets the number of differing pixels.
+	 * <p>
+	 * In case of a size mismatch all pixels are considered to differ.
+	 * </p>
+	 *
+	 * @return the number of differing pixels.
+	 */
+	public int differentPixels() {
+		return this.differentPixels;
+	}
+
+	/**
+	 * Gets the number of tiles containing differing pixels.
+	 *
+	 * @return the number of tiles containing differing pixels.
+	 */
+	public int differentTiles() {
+		return this.differentTiles;
+	}
+
+	/**
+	 * Checks whether the compared images match (according to the {@linkplain ImageComparator} settings).
+	 *
+	 * @return {@code true} if the compared images match.
+	 */
+	public boolean matches() {
+		return sizeMatches() && this.differentPixels <= this.comparator.maxDifferentPixels();
+	}
+
+	/**
+	 * Asserts that the compared images match.
+	 * <p>
+	 * A test failure is signaled if the compared images do not match.
+	 * </p>
+	 *
+	 * @see #matches()
+	 */
+	public void assertMatches() {
+		if (!matches()) {
+			throw new AssertionFailedError(toString());
+		}
+	}
+
+	/**
+	 * Creates the diff image visualizing the differences between the compared images.
+	 * <p>
+	 * Differing pixels are marked red. All other pixels are taken from the actual image and faded out.
+	 * </p>
+	 *
+	 * @return the created diff image.
+	 */
+	public RasterImage diffImage() {
+		int width = Math.max(this.expected.width(), this.actual.width());
+		int height = Math.max(this.expected.height(), this.actual.height());
+		int[] diffPixels = new int[width * height];
+
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				diffPixels[y * width + x] = diffPixel(x, y);
+			}
+		}
+		return new RasterImage(width, height, diffPixels);
+	}
+
+	private int diffPixel(int x, int y) {
+		int diffRGB = DIFF_RGB;
+
+		if (x < this.expected.width() && y < this.expected.height() && x < this.actual.width()
+				&& y < this.actual.height()) {
+			int expectedRGB = this.expected.rgb(x, y);
+			int actualRGB = this.actual.rgb(x, y);
+
+			if (!this.comparator.pixelDiffers(expectedRGB, actualRGB)) {
+				diffRGB = fade(actualRGB);
+			}
+		}
+		return diffRGB;
+	}
+
+	private static int fade(int rgb) {
+		int gray = (((rgb >>> 16) & 0xff) + ((rgb >>> 8) & 0xff) + (rgb & 0xff)) / 3;
+		int faded = 0xc0 + (gray >>> 2);
+
+		return (faded << 16) | (faded << 8) | faded;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		if (!sizeMatches()) {
+			buffer.append("Image size mismatch: expected ").append(this.expected.width()).append('x')
+					.append(this.expected.height()).append(" but was ").append(this.actual.width()).append('x')
+					.append(this.actual.height());
+		} else {
+			buffer.append(matches() ? "Images match: " : "Images differ: ").append(this.differentPixels)
+					.append(" pixel(s) in ").append(this.differentTiles).append(" tile(s) differ (tolerance: ")
+					.append(this.comparator.tolerance()).append("; allowed: ")
+					.append(this.comparator.maxDifferentPixels()).append(')');
+		}
+		return buffer.toString();
+	}
+
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.image;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+
+import de.carne.test.swt.platform.ScreenCapture;
+import de.carne.util.logging.Log;
+
+/**
+ * Immutable RGB raster image used for golden image comparison (see {@linkplain ImageComparator}).
+ */
+public final class RasterImage {
+
+	private static final Log LOG = new Log();
+
+	private static final PaletteData RGB_PALETTE = new PaletteData(0xff0000, 0x00ff00, 0x0000ff);
+
+	private final int width;
+	private final int height;
+	private final int[] pixels;
+
+	RasterImage(int width, int height, int[] pixels) {
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+
+	/**
+	 * Captures the image of a {@linkplain Control}.
+	 * <p>
+	 * The {@linkplain Control} is rendered off-screen via {@linkplain Control#print(GC)}. Hence the captured image does
+	 * not depend on overlapping windows or the control's visibility on screen. If the platform does not support
+	 * printing the given control, the corresponding screen area is captured instead.
+	 * </p>
+	 * <p>
+	 * This function must be invoked on the display thread.
+	 * </p>
+	 *
+	 * @param control the {@linkplain Control} to capture.
+	 * @return the captured image.
+	 */
+	public static RasterImage capture(Control control) {
+		long start = System.nanoTime();
+		Display display = control.getDisplay();
+		Point size = control.getSize();
+
+		if (size.x <= 0 || size.y <= 0) {
+			throw new IllegalArgumentException("Cannot capture empty control: " + control);
+		}
+
+		Image image = new Image(display, size.x, size.y);
+		ImageData imageData;
+
+		try {
+			GC gc = new GC(image);
+			boolean printed;
+
+			try {
+				printed = control.print(gc);
+			} finally {
+				gc.dispose();
+			}
+			imageData = (printed ? image.getImageData() : captureScreenArea(display, control));
+		} finally {
+			image.dispose();
+		}
+
+		RasterImage rasterImage = of(imageData);
+		long elapsed = System.nanoTime() - start;
+
+		LOG.debug("Captured control image {0} (took {1} ms)", control, elapsed / 1000000);
+
+		return rasterImage;
+	}
+
+	private static ImageData captureScreenArea(Display display, Control control) {
+		Rectangle bounds = control.getBounds();
+		Composite parent = control.getParent();
+		Point location = (parent != null ? display.map(parent, null, bounds.x, bounds.y)
+				: new Point(bounds.x, bounds.y));
+
+		LOG.debug("Control {0} cannot be printed; capturing screen area instead", control);
+
+		return ScreenCapture.capture(display, new Rectangle(location.x, location.y, bounds.width, bounds.height));
+	}
+
+	/**
+	 * Converts {@linkplain ImageData} to a raster image.
+	 *
+	 * @param imageData the {@linkplain ImageData} to convert.
+	 * @return the converted image.
+	 */
+	public static RasterImage of(ImageData imageData) {
+		int imageWidth = imageData.width;
+		int imageHeight = imageData.height;
+		int[] imagePixels = new int[imageWidth * imageHeight];
+		PaletteData palette = imageData.palette;
+
+		for (int y = 0; y < imageHeight; y++) {
+			int rowIndex = y * imageWidth;
+
+			imageData.getPixels(0, y, imageWidth, imagePixels, rowIndex);
+			for (int x = 0; x < imageWidth; x++) {
+				imagePixels[rowIndex + x] = toRGB(palette, imagePixels[rowIndex + x]);
+			}
+		}
+		return new RasterImage(imageWidth, imageHeight, imagePixels);
+	}
+
+	private static int toRGB(PaletteData palette, int pixel) {
+		int rgb;
+
+		if (palette.isDirect) {
+			int red = shift(pixel & palette.redMask, palette.redShift);
+			int green = shift(pixel & palette.greenMask, palette.greenShift);
+			int blue = shift(pixel & palette.blueMask, palette.blueShift);
+
+			rgb = (red << 16) | (green << 8) | blue;
+		} else {
+			RGB color = palette.colors[pixel];
+
+			rgb = (color.red << 16) | (color.green << 8) | color.blue;
+		}
+		return rgb;
+	}
+
+	private static int shift(int value, int shift) {
+		return (shift < 0 ? value >>> -shift : value << shift);
+	}
+
+	/**
+	 * Loads a raster image from an image file.
+	 *
+	 * @param file the image file to load.
+	 * @return the loaded image.
+	 * @throws IOException if an I/O error occurs or the file content cannot be decoded.
+	 */
+	public static RasterImage load(Path file) throws IOException {
+		ImageData[] imageData;
+
+		try (InputStream fileStream = Files.newInputStream(file)) {
+			imageData = new ImageLoader().load(fileStream);
+		} catch (SWTException e) {
+			throw new IOException("Failed to decode image file: " + file, e);
+		}
+		if (imageData.length == 0) {
+			throw new IOException("No image data in file: " + file);
+		}
+		return of(imageData[0]);
+	}
+
+	/**
+	 * Saves this raster image as a PNG file.
+	 *
+	 * @param file the file to write.
+	 * @throws IOException if an I/O error occurs.
+	 */
+	public void save(Path file) throws IOException {
+		try (OutputStream fileStream = Files.newOutputStream(file)) {
+			encodePng(fileStream);
+		}
+	}
+
+	/**
+	 * Encodes this raster image in PNG format.
+	 *
+	 * @return the encoded image.
+	 */
+	public byte[] toPng() {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+		encodePng(buffer);
+		return buffer.toByteArray();
+	}
+
+	private void encodePng(OutputStream stream) {
+		ImageLoader imageLoader = new ImageLoader();
+
+		imageLoader.data = new ImageData[] { toImageData() };
+		imageLoader.save(stream, SWT.IMAGE_PNG);
+	}
+
+	/**
+	 * Converts this raster image to {@linkplain ImageData}.
+	 *
+	 * @return the converted image.
+	 */
+	public ImageData toImageData() {
+		ImageData imageData = new ImageData(this.width, this.height, 24, RGB_PALETTE);
+
+		for (int y = 0; y < this.height; y++) {
+			imageData.setPixels(0, y, this.width, this.pixels, y * this.width);
+		}
+		return imageData;
+	}
+
+	/**
+	 * Gets the width of this raster image.
+	 *
+	 * @return the width of this raster image.
+	 */
+	public int width() {
+		return this.width;
+	}
+
+	/**
+	 * Gets the height of this raster image.
+	 *
+	 * @return the height of this raster image.
+	 */
+	public int height() {
+		return this.height;
+	}
+
+	/**
+	 * Gets the RGB value of a single pixel.
+	 *
+	 * @param x the x coordinate of the pixel.
+	 * @param y the y coordinate of the pixel.
+	 * @return the RGB value ({@code 0xRRGGBB}) of the requested pixel.
+	 */
+	public int rgb(int x, int y) {
+		if (x < 0 || x >= this.width || y < 0 || y >= this.height) {
+			throw new IndexOutOfBoundsException("Invalid pixel position: " + x + "," + y);
+		}
+		return this.pixels[y * this.width + x];
+	}
+
+	int[] pixels() {
+		return this.pixels;
+	}
+
+	static int tileCount(int size, int tileSize) {
+		return (size + tileSize - 1) / tileSize;
+	}
+
+	@Override
+	public String toString() {
+		return "RasterImage " + this.width + "x" + this.height;
+	}
+
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.snapshot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Widget;
+import org.opentest4j.AssertionFailedError;
+
+import de.carne.util.stream.Unique;
+
+/**
+ * Immutable snapshot of the widget hierarchy of a {@linkplain Display}.
+ * <p>
+ * The snapshot is captured in a single pass on the UI thread (see {@linkplain #capture(Display)}). Afterwards all
+ * queries are performed on the captured data only. Hence a snapshot can be queried from any thread (e.g. the script
+ * thread) without blocking the UI thread and concurrently (e.g. via {@code nodes().parallel()}).
+ * </p>
+ * <p>
+ * The captured hierarchy consists of all {@linkplain org.eclipse.swt.widgets.Shell}s with their child controls and
+ * child shells, menu bar items (including all cascades), {@linkplain org.eclipse.swt.widgets.ToolItem}s and the
+ * {@linkplain org.eclipse.swt.widgets.TreeItem}s of expanded tree nodes. For every node the widget class, text,
+ * enabled and visible state, bounds and data id are recorded. {@linkplain org.eclipse.swt.widgets.List},
+ * {@linkplain org.eclipse.swt.widgets.Combo} and {@linkplain org.eclipse.swt.widgets.Table} controls additionally
+ * record their item texts.
+ * </p>
+ * <p>
+ * Nodes are stored in pre-order, i.e. the subtree of a node {@code n} consists of the nodes {@code n} up to (but not
+ * including) {@code n.subtreeEnd()}.
+ * </p>
+ */
+public final class UISnapshot {
+
+	/**
+	 * The default widget data key used to determine a widget's data id (see {@linkplain Widget#getData(String)}).
+	 */
+	public static final String DEFAULT_ID_KEY = "id";
+
+	static final byte FLAG_ENABLED = 0x01;
+	static final byte FLAG_VISIBLE = 0x02;
+
+	private final int size;
+	private final String[] classNames;
+	private final int[] parents;
+	private final int[] depths;
+	private final int[] subtreeEnds;
+	private final int[] classIndices;
+	private final int[] serials;
+	private final byte[] flags;
+	private final int[] bounds;
+	private final String[] texts;
+	private final @Nullable String[] ids;
+	private final int[] itemOffsets;
+	private final String[] items;
+	private final long[] nodeHashes;
+	private final long[] subtreeHashes;
+
+	UISnapshot(int size, String[] classNames, UISnapshotBuilder builder) {
+		this.size = size;
+		this.classNames = classNames;
+		this.parents = Arrays.copyOf(builder.parents, size);
+		this.depths = Arrays.copyOf(builder.depths, size);
+		this.subtreeEnds = Arrays.copyOf(builder.subtreeEnds, size);
+		this.classIndices = Arrays.copyOf(builder.classIndices, size);
+		this.serials = Arrays.copyOf(builder.serials, size);
+		this.flags = Arrays.copyOf(builder.flags, size);
+		this.bounds = Arrays.copyOf(builder.bounds, size * 4);
+		this.texts = Arrays.copyOf(builder.texts, size);
+		this.ids = Arrays.copyOf(builder.ids, size);
+		this.itemOffsets = Arrays.copyOf(builder.itemOffsets, size + 1);
+		this.items = Arrays.copyOf(builder.items, builder.itemCount());
+		this.nodeHashes = Arrays.copyOf(builder.nodeHashes, size);
+		this.subtreeHashes = Arrays.copyOf(builder.subtreeHashes, size);
+	}
+
+	/**
+	 * Captures the current widget hierarchy of a {@linkplain Display}.
+	 * <p>
+	 * Calling this function is equivalent to calling {@code capture(display, DEFAULT_ID_KEY)}.
+	 * </p>
+	 *
+	 * @param display the {@linkplain Display} to capture.
+	 * @return the captured snapshot.
+	 */
+	public static UISnapshot capture(Display display) {
+		return capture(display, DEFAULT_ID_KEY);
+	}
+
+	/**
+	 * Captures the current widget hierarchy of a {@linkplain Display}.
+	 * <p>
+	 * This function must be invoked on the UI thread.
+	 * </p>
+	 *
+	 * @param display the {@linkplain Display} to capture.
+	 * @param idKey the widget data key used to determine a widget's data id.
+	 * @return the captured snapshot.
+	 */
+	public static UISnapshot capture(Display display, String idKey) {
+		return new UISnapshotBuilder(idKey).build(display);
+	}
+
+	/**
+	 * Gets the number of captured nodes.
+	 *
+	 * @return the number of captured nodes.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Gets a specific node.
+	 *
+	 * @param index the index of the node to get.
+	 * @return the requested node.
+	 */
+	public Node node(int index) {
+		if (index < 0 || index >= this.size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return new Node(index);
+	}
+
+	/**
+	 * Gets all captured nodes in pre-order.
+	 *
+	 * @return all captured nodes in pre-order.
+	 */
+	public Stream<Node> nodes() {
+		return IntStream.range(0, this.size).mapToObj(Node::new);
+	}
+
+	/**
+	 * Gets the root nodes (the top-level {@linkplain org.eclipse.swt.widgets.Shell}s).
+	 *
+	 * @return the root nodes.
+	 */
+	public Stream<Node> roots() {
+		return siblings(0, this.size);
+	}
+
+	/**
+	 * Gets all nodes matching the given {@linkplain Predicate}.
+	 *
+	 * @param predicate the match criteria to use.
+	 * @return all matching nodes.
+	 */
+	public Stream<Node> find(Predicate<Node> predicate) {
+		return nodes().filter(predicate);
+	}
+
+	/**
+	 * Gets the unique node matching the given {@linkplain Predicate}.
+	 * <p>
+	 * A test failure is signaled if either none or more than one matching node exists.
+	 * </p>
+	 *
+	 * @param predicate the match criteria to use.
+	 * @return the found node.
+	 */
+	public Node findUnique(Predicate<Node> predicate) {
+		Optional<Node> optionalNode = find(predicate).collect(Unique.getOptional());
+
+		return optionalNode.orElseThrow(() -> new AssertionFailedError("No such node"));
+	}
+
+	/**
+	 * Creates a {@linkplain Predicate} for widget type matching.
+	 *
+	 * @param type the widget type to match.
+	 * @return the created {@linkplain Predicate}.
+	 */
+	public static Predicate<Node> matchClass(Class<? extends Widget> type) {
+		String typeName = type.getName();
+
+		return node -> typeName.equals(node.className());
+	}
+
+	/**
+	 * Creates a {@linkplain Predicate} for exact text matching.
+	 *
+	 * @param text the text to match.
+	 * @return the created {@linkplain Predicate}.
+	 */
+	public static Predicate<Node> matchText(String text) {
+		return node -> text.equals(node.text());
+	}
+
+	/**
+	 * Creates a {@linkplain Predicate} for data id matching.
+	 *
+	 * @param id the data id to match.
+	 * @return the created {@linkplain Predicate}.
+	 */
+	public static Predicate<Node> matchId(String id) {
+		return node -> id.equals(node.id());
+	}
+
+	private Stream<Node> siblings(int first, int end) {
+		return Stream.iterate(first, index -> index < end, index -> this.subtreeEnds[index]).map(Node::new);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buffer = new StringBuilder();
+
+		nodes().forEach(node -> {
+			for (int indent = 0; indent < node.depth(); indent++) {
+				buffer.append("  ");
+			}
+			buffer.append(node).append(System.lineSeparator());
+		});
+		return buffer.toString();
+	}
+
+	/**
+	 * A single node of a {@linkplain UISnapshot}.
+	 * <p>
+	 * A node is a lightweight view on the snapshot data identified by its index.
+	 * </p>
+	 */
+	public final class Node {
+
+		private final int index;
+
+		Node(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * Gets the {@linkplain UISnapshot} this node belongs to.
+		 *
+		 * @return the {@linkplain UISnapshot} this node belongs to.
+		 */
+		public UISnapshot snapshot() {
+			return UISnapshot.this;
+		}
+
+		/**
+		 * Gets the index of this node.
+		 *
+		 * @return the index of this node.
+		 */
+		public int index() {
+			return this.index;
+		}
+
+		/**
+		 * Gets the depth of this node (0 for root nodes).
+		 *
+		 * @return the depth of this node.
+		 */
+		public int depth() {
+			return UISnapshot.this.depths[this.index];
+		}
+
+		/**
+		 * Gets the index of the first node following this node's subtree.
+		 *
+		 * @return the index of the first node following this node's subtree.
+		 */
+		public int subtreeEnd() {
+			return UISnapshot.this.subtreeEnds[this.index];
+		}
+
+		/**
+		 * Gets the parent node.
+		 *
+		 * @return the parent node (empty for root nodes).
+		 */
+		public Optional<Node> parent() {
+			int parent = UISnapshot.this.parents[this.index];
+
+			return (parent >= 0 ? Optional.of(new Node(parent)) : Optional.empty());
+		}
+
+		/**
+		 * Gets the direct child nodes.
+		 *
+		 * @return the direct child nodes.
+		 */
+		public Stream<Node> children() {
+			return siblings(this.index + 1, subtreeEnd());
+		}
+
+		/**
+		 * Gets all descendant nodes in pre-order.
+		 *
+		 * @return all descendant nodes in pre-order.
+		 */
+		public Stream<Node> descendants() {
+			return IntStream.range(this.index + 1, subtreeEnd()).mapToObj(Node::new);
+		}
+
+		/**
+		 * Gets the fully qualified class name of the captured widget.
+		 *
+		 * @return the fully qualified class name of the captured widget.
+		 */
+		public String className() {
+			return UISnapshot.this.classNames[UISnapshot.this.classIndices[this.index]];
+		}
+
+		/**
+		 * Gets the serial number of the captured widget.
+		 * <p>
+		 * Every widget is assigned a unique serial number on its first capture, which is kept for all following
+		 * captures. The serial number is used to match the nodes of different snapshots of the same UI.
+		 * </p>
+		 *
+		 * @return the serial number of the captured widget.
+		 */
+		public int serial() {
+			return UISnapshot.this.serials[this.index];
+		}
+
+		/**
+		 * Gets the hash of this node's captured state (class, text, enabled and visible state, data id and items).
+		 * <p>
+		 * The widget bounds are not considered by this hash.
+		 * </p>
+		 *
+		 * @return the hash of this node's captured state.
+		 */
+		public long nodeHash() {
+			return UISnapshot.this.nodeHashes[this.index];
+		}
+
+		/**
+		 * Gets the hash of this node's complete subtree.
+		 * <p>
+		 * Two nodes with equal subtree hashes are considered structurally equal including all of their descendants.
+		 * </p>
+		 *
+		 * @return the hash of this node's complete subtree.
+		 */
+		public long subtreeHash() {
+			return UISnapshot.this.subtreeHashes[this.index];
+		}
+
+		/**
+		 * Gets the text of the captured widget.
+		 *
+		 * @return the text of the captured widget (empty if the widget has no text).
+		 */
+		public String text() {
+			return UISnapshot.this.texts[this.index];
+		}
+
+		/**
+		 * Gets the data id of the captured widget.
+		 *
+		 * @return the data id of the captured widget ({@code null} if none has been set).
+		 */
+		public @Nullable String id() {
+			return UISnapshot.this.ids[this.index];
+		}
+
+		/**
+		 * Gets the enabled state of the captured widget.
+		 *
+		 * @return the enabled state of the captured widget.
+		 */
+		public boolean isEnabled() {
+			return (UISnapshot.this.flags[this.index] & FLAG_ENABLED) != 0;
+		}
+
+		/**
+		 * Gets the visible state of the captured widget.
+		 *
+		 * @return the visible state of the captured widget.
+		 */
+		public boolean isVisible() {
+			return (UISnapshot.this.flags[this.index] & FLAG_VISIBLE) != 0;
+		}
+
+		/**
+		 * Gets the bounds of the captured widget.
+		 *
+		 * @return the bounds of the captured widget (all 0 if the widget has no bounds).
+		 */
+		public Rectangle bounds() {
+			int boundsIndex = this.index * 4;
+			int[] nodeBounds = UISnapshot.this.bounds;
+
+			return new Rectangle(nodeBounds[boundsIndex], nodeBounds[boundsIndex + 1], nodeBounds[boundsIndex + 2],
+					nodeBounds[boundsIndex + 3]);
+		}
+
+		/**
+		 * Gets the item texts of the captured widget.
+		 *
+		 * @return the item texts of the captured widget (empty if the widget has no items).
+		 */
+		public List<String> items() {
+			int itemStart = UISnapshot.this.itemOffsets[this.index];
+			int itemEnd = UISnapshot.this.itemOffsets[this.index + 1];
+
+			return Collections.unmodifiableList(Arrays.asList(UISnapshot.this.items).subList(itemStart, itemEnd));
+		}
+
+		/**
+		 * Gets the path of this node (the simple class names and texts of all nodes leading to this node).
+		 *
+		 * @return the path of this node.
+		 */
+		public String path() {
+			StringBuilder buffer = new StringBuilder();
+			int pathIndex = this.index;
+
+			while (pathIndex >= 0) {
+				Node pathNode = new Node(pathIndex);
+
+				buffer.insert(0, pathNode.simpleName()).insert(0, '/');
+				pathIndex = UISnapshot.this.parents[pathIndex];
+			}
+			return buffer.toString();
+		}
+
+		private String simpleName() {
+			String className = className();
+			String text = text();
+
+			return className.substring(className.lastIndexOf('.') + 1) + (text.isEmpty() ? "" : "[" + text + "]");
+		}
+
+		@Override
+		public int hashCode() {
+			return this.index;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object obj) {
+			return this == obj || (obj instanceof Node && ((Node) obj).snapshot() == UISnapshot.this
+					&& ((Node) obj).index == this.index);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder buffer = new StringBuilder();
+
+			buffer.append(simpleName());
+			if (!isEnabled()) {
+				buffer.append(" disabled");
+			}
+			if (!isVisible()) {
+				buffer.append(" hidden");
+			}
+
+			String id = id();
+
+			if (id != null) {
+				buffer.append(" id=").append(id);
+			}
+			return buffer.toString();
+		}
+
+	}
+
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.snapshot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.swt.custom.CLabel;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Decorations;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Item;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Link;
+import org.eclipse.swt.widgets.List;
+import org.eclipse.swt.widgets.Menu;
+import org.eclipse.swt.widgets.MenuItem;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableItem;
+import org.eclipse.swt.widgets.Text;
+import org.eclipse.swt.widgets.ToolBar;
+import org.eclipse.swt.widgets.ToolItem;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
+import org.eclipse.swt.widgets.Widget;
+
+/**
+ * Collects the widget hierarchy of a {@linkplain Display} into growable primitive arrays.
+ */
+final class UISnapshotBuilder {
+
+	private static final int INITIAL_CAPACITY = 256;
+	private static final String[] NO_ITEMS = new String[0];
+
+	// Serial numbers assigned to the widgets captured so far (widgets do not override equals/hashCode)
+	private static final Map<Widget, Integer> WIDGET_SERIALS = new WeakHashMap<>();
+	private static int nextWidgetSerial = 0;
+
+	private final String idKey;
+	private final Map<Class<?>, Integer> classIndexMap = new HashMap<>();
+	private String[] classNames = new String[16];
+	private int size = 0;
+	int[] parents = new int[INITIAL_CAPACITY];
+	int[] depths = new int[INITIAL_CAPACITY];
+	int[] subtreeEnds = new int[INITIAL_CAPACITY];
+	int[] classIndices = new int[INITIAL_CAPACITY];
+	int[] serials = new int[INITIAL_CAPACITY];
+	byte[] flags = new byte[INITIAL_CAPACITY];
+	int[] bounds = new int[INITIAL_CAPACITY * 4];
+	String[] texts = new String[INITIAL_CAPACITY];
+	@Nullable String[] ids = new @Nullable String[INITIAL_CAPACITY];
+	int[] itemOffsets = new int[INITIAL_CAPACITY + 1];
+	long[] nodeHashes = new long[INITIAL_CAPACITY];
+	long[] subtreeHashes = new long[INITIAL_CAPACITY];
+	String[] items = new String[INITIAL_CAPACITY];
+	private int itemCount = 0;
+
+	UISnapshotBuilder(String idKey) {
+		this.idKey = idKey;
+	}
+
+	UISnapshot build(Display display) {
+		for (Shell shell : display.getShells()) {
+			if (shell.getParent() == null) {
+				addShell(-1, 0, shell);
+			}
+		}
+		return new UISnapshot(this.size, Arrays.copyOf(this.classNames, this.classIndexMap.size()), this);
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	int itemCount() {
+		return this.itemCount;
+	}
+
+	private void addShell(int parent, int depth, Shell shell) {
+		int node = addControl(parent, depth, shell);
+
+		addMenu(node, depth + 1, shell.getMenuBar());
+		addChildren(node, depth + 1, shell);
+		// getShells() returns all descendant Shells; hence only descend into the direct ones
+		for (Shell childShell : shell.getShells()) {
+			if (childShell.getParent() == shell) {
+				addShell(node, depth + 1, childShell);
+			}
+		}
+		endNode(node);
+	}
+
+	private void addChildren(int parent, int depth, Composite composite) {
+		for (Control child : composite.getChildren()) {
+			int node = addControl(parent, depth, child);
+
+			if (child instanceof ToolBar) {
+				for (ToolItem toolItem : ((ToolBar) child).getItems()) {
+					endNode(addItem(node, depth + 1, toolItem, toolItem.getEnabled(), toolItem.getBounds()));
+				}
+			} else if (child instanceof Tree) {
+				addTreeItems(node, depth + 1, ((Tree) child).getItems());
+			}
+			if (child instanceof Composite) {
+				addChildren(node, depth + 1, (Composite) child);
+			}
+			endNode(node);
+		}
+	}
+
+	private void addMenu(int parent, int depth, @Nullable Menu menu) {
+		if (menu != null) {
+			for (MenuItem menuItem : menu.getItems()) {
+				int node = addItem(parent, depth, menuItem, menuItem.getEnabled(), null);
+
+				addMenu(node, depth + 1, menuItem.getMenu());
+				endNode(node);
+			}
+		}
+	}
+
+	private void addTreeItems(int parent, int depth, TreeItem[] treeItems) {
+		for (TreeItem treeItem : treeItems) {
+			int node = addItem(parent, depth, treeItem, true, treeItem.getBounds());
+
+			if (treeItem.getExpanded()) {
+				addTreeItems(node, depth + 1, treeItem.getItems());
+			}
+			endNode(node);
+		}
+	}
+
+	private int addControl(int parent, int depth, Control control) {
+		int node = addNode(parent, depth, control, controlText(control), control.getEnabled(), control.getVisible(),
+				control.getBounds());
+
+		addItemList(node, controlItems(control));
+		return node;
+	}
+
+	private int addItem(int parent, int depth, Item item, boolean enabled, @Nullable Rectangle itemBounds) {
+		int node = addNode(parent, depth, item, item.getText(), enabled, true, itemBounds);
+
+		addItemList(node, NO_ITEMS);
+		return node;
+	}
+
+	private int addNode(int parent, int depth, Widget widget, @Nullable String text, boolean enabled, boolean visible,
+			@Nullable Rectangle widgetBounds) {
+		int node = this.size;
+
+		ensureNodeCapacity(node + 1);
+		this.parents[node] = parent;
+		this.depths[node] = depth;
+		this.subtreeEnds[node] = node + 1;
+		this.classIndices[node] = classIndex(widget.getClass());
+		this.serials[node] = widgetSerial(widget);
+		this.flags[node] = (byte) ((enabled ? UISnapshot.FLAG_ENABLED : 0) | (visible ? UISnapshot.FLAG_VISIBLE : 0));
+		if (widgetBounds != null) {
+			int boundsIndex = node * 4;
+
+			this.bounds[boundsIndex] = widgetBounds.x;
+			this.bounds[boundsIndex + 1] = widgetBounds.y;
+			this.bounds[boundsIndex + 2] = widgetBounds.width;
+			this.bounds[boundsIndex + 3] = widgetBounds.height;
+		}
+		this.texts[node] = (text != null ? text : "");
+
+		Object id = widget.getData(this.idKey);
+
+		this.ids[node] = (id != null ? id.toString() : null);
+		this.size++;
+		return node;
+	}
+
+	private void endNode(int node) {
+		int end = this.size;
+		long nodeHash = nodeHash(node);
+		long subtreeHash = nodeHash;
+
+		for (int child = node + 1; child < end; child = this.subtreeEnds[child]) {
+			subtreeHash = mix(subtreeHash, this.serials[child]);
+			subtreeHash = mix(subtreeHash, this.subtreeHashes[child]);
+		}
+		this.subtreeEnds[node] = end;
+		this.nodeHashes[node] = nodeHash;
+		this.subtreeHashes[node] = subtreeHash;
+	}
+
+	private long nodeHash(int node) {
+		long hash = mix(this.classNames[this.classIndices[node]].hashCode(), this.flags[node]);
+		String id = this.ids[node];
+
+		hash = mix(hash, this.texts[node].hashCode());
+		hash = mix(hash, (id != null ? id.hashCode() : 0));
+		for (int itemIndex = this.itemOffsets[node]; itemIndex < this.itemOffsets[node + 1]; itemIndex++) {
+			hash = mix(hash, this.items[itemIndex].hashCode());
+		}
+		return mix(hash, this.itemOffsets[node + 1] - this.itemOffsets[node]);
+	}
+
+	private static int widgetSerial(Widget widget) {
+		synchronized (WIDGET_SERIALS) {
+			return WIDGET_SERIALS.computeIfAbsent(widget, key -> Integer.valueOf(nextWidgetSerial++)).intValue();
+		}
+	}
+
+	private static long mix(long hash, long value) {
+		long mixed = (hash ^ value) * 0x9e3779b97f4a7c15l;
+
+		return mixed ^ (mixed >>> 29);
+	}
+
+	private void addItemList(int node, String[] nodeItems) {
+		int itemStart = this.itemCount;
+		int itemEnd = itemStart + nodeItems.length;
+
+		if (itemEnd > this.items.length) {
+			this.items = Arrays.copyOf(this.items, Math.max(itemEnd, this.items.length * 2));
+		}
+		System.arraycopy(nodeItems, 0, this.items, itemStart, nodeItems.length);
+		this.itemCount = itemEnd;
+		this.itemOffsets[node] = itemStart;
+		this.itemOffsets[node + 1] = itemEnd;
+	}
+
+	private int classIndex(Class<?> widgetClass) {
+		Integer classIndex = this.classIndexMap.get(widgetClass);
+
+		if (classIndex == null) {
+			classIndex = this.classIndexMap.size();
+			if (classIndex >= this.classNames.length) {
+				this.classNames = Arrays.copyOf(this.classNames, this.classNames.length * 2);
+			}
+			this.classNames[classIndex] = widgetClass.getName();
+			this.classIndexMap.put(widgetClass, classIndex);
+		}
+		return classIndex.intValue();
+	}
+
+	private void ensureNodeCapacity(int capacity) {
+		if (capacity > this.parents.length) {
+			int newCapacity = Math.max(capacity, this.parents.length * 2);
+
+			this.parents = Arrays.copyOf(this.parents, newCapacity);
+			this.depths = Arrays.copyOf(this.depths, newCapacity);
+			this.subtreeEnds = Arrays.copyOf(this.subtreeEnds, newCapacity);
+			this.classIndices = Arrays.copyOf(this.classIndices, newCapacity);
+			this.serials = Arrays.copyOf(this.serials, newCapacity);
+			this.flags = Arrays.copyOf(this.flags, newCapacity);
+			this.bounds = Arrays.copyOf(this.bounds, newCapacity * 4);
+			this.texts = Arrays.copyOf(this.texts, newCapacity);
+			this.ids = Arrays.copyOf(this.ids, newCapacity);
+			this.itemOffsets = Arrays.copyOf(this.itemOffsets, newCapacity + 1);
+			this.nodeHashes = Arrays.copyOf(this.nodeHashes, newCapacity);
+			this.subtreeHashes = Arrays.copyOf(this.subtreeHashes, newCapacity);
+		}
+	}
+
+	@SuppressWarnings("squid:S3776")
+	private static @Nullable String controlText(Control control) {
+		String text;
+
+		if (control instanceof Decorations) {
+			text = ((Decorations) control).getText();
+		} else if (control instanceof Button) {
+			text = ((Button) control).getText();
+		} else if (control instanceof Label) {
+			text = ((Label) control).getText();
+		} else if (control instanceof Text) {
+			text = ((Text) control).getText();
+		} else if (control instanceof Combo) {
+			text = ((Combo) control).getText();
+		} else if (control instanceof Group) {
+			text = ((Group) control).getText();
+		} else if (control instanceof Link) {
+			text = ((Link) control).getText();
+		} else if (control instanceof StyledText) {
+			text = ((StyledText) control).getText();
+		} else if (control instanceof CLabel) {
+			text = ((CLabel) control).getText();
+		} else {
+			text = null;
+		}
+		return text;
+	}
+
+	private static String[] controlItems(Control control) {
+		String[] controlItems;
+
+		if (control instanceof List) {
+			controlItems = ((List) control).getItems();
+		} else if (control instanceof Combo) {
+			controlItems = ((Combo) control).getItems();
+		} else if (control instanceof Table) {
+			TableItem[] tableItems = ((Table) control).getItems();
+
+			controlItems = new String[tableItems.length];
+			for (int itemIndex = 0; itemIndex < tableItems.length; itemIndex++) {
+				controlItems[itemIndex] = tableItems[itemIndex].getText();
+			}
+		} else {
+			controlItems = NO_ITEMS;
+		}
+		return controlItems;
+	}
+
+}
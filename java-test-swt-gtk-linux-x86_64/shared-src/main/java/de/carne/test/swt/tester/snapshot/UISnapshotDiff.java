@@ -0,0 +1,333 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester.snapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.opentest4j.AssertionFailedError;
+
+/**
+ * Structural difference between two {@linkplain UISnapshot}s of the same UI.
+ * <p>
+ * Nodes of both snapshots are matched by their position in the hierarchy and the serial number of the captured widgets
+ * (see {@linkplain UISnapshot.Node#serial()}).
+ * Matched nodes with equal subtree hashes (see {@linkplain UISnapshot.Node#subtreeHash()}) are skipped as a whole.
+ * Therefore the cost of computing a difference is proportional to the number of changed nodes and not to the size of
+ * the UI.
+ * </p>
+ */
+public final class UISnapshotDiff {
+
+	/**
+	 * The kind of a {@linkplain Change}.
+	 */
+	public enum Kind {
+
+		/**
+		 * Widget (and all of its descendants) has been added.
+		 */
+		ADDED,
+
+		/**
+		 * Widget (and all of its descendants) has been removed.
+		 */
+		REMOVED,
+
+		/**
+		 * Widget state (text, enabled or visible state, data id or items) has been changed.
+		 */
+		CHANGED
+
+	}
+
+	private final UISnapshot before;
+	private final UISnapshot after;
+	private final List<Change> changes;
+
+	private UISnapshotDiff(UISnapshot before, UISnapshot after, List<Change> changes) {
+		this.before = before;
+		this.after = after;
+		this.changes = Collections.unmodifiableList(changes);
+	}
+
+	/**
+	 * Computes the difference between two {@linkplain UISnapshot}s.
+	 *
+	 * @param before the earlier snapshot.
+	 * @param after the later snapshot.
+	 * @return the computed difference.
+	 */
+	public static UISnapshotDiff compute(UISnapshot before, UISnapshot after) {
+		List<Change> changes = new ArrayList<>();
+
+		diffSiblings(changes, before.roots().collect(Collectors.toList()), after.roots().collect(Collectors.toList()));
+		return new UISnapshotDiff(before, after, changes);
+	}
+
+	private static void diffSiblings(List<Change> changes, List<UISnapshot.Node> beforeNodes,
+			List<UISnapshot.Node> afterNodes) {
+		Map<Integer, UISnapshot.Node> afterNodeMap = new HashMap<>(afterNodes.size() * 2);
+
+		for (UISnapshot.Node afterNode : afterNodes) {
+			afterNodeMap.put(matchKey(afterNode), afterNode);
+		}
+		for (UISnapshot.Node beforeNode : beforeNodes) {
+			UISnapshot.Node afterNode = afterNodeMap.remove(matchKey(beforeNode));
+
+			if (afterNode == null || !beforeNode.className().equals(afterNode.className())) {
+				changes.add(new Change(Kind.REMOVED, beforeNode, null));
+				if (afterNode != null) {
+					changes.add(new Change(Kind.ADDED, null, afterNode));
+				}
+			} else if (beforeNode.subtreeHash() != afterNode.subtreeHash()) {
+				if (beforeNode.nodeHash() != afterNode.nodeHash()) {
+					changes.add(new Change(Kind.CHANGED, beforeNode, afterNode));
+				}
+				diffSiblings(changes, beforeNode.children().collect(Collectors.toList()),
+						afterNode.children().collect(Collectors.toList()));
+			}
+		}
+		for (UISnapshot.Node afterNode : afterNodes) {
+			if (afterNodeMap.containsKey(matchKey(afterNode))) {
+				changes.add(new Change(Kind.ADDED, null, afterNode));
+			}
+		}
+	}
+
+	private static Integer matchKey(UISnapshot.Node node) {
+		return Integer.valueOf(node.serial());
+	}
+
+	/**
+	 * Gets the earlier snapshot of this difference.
+	 *
+	 * @return the earlier snapshot of this difference.
+	 */
+	public UISnapshot before() {
+		return this.before;
+	}
+
+	/**
+	 * Gets the later snapshot of this difference.
+	 *
+	 * @return the later snapshot of this difference.
+	 */
+	public UISnapshot after() {
+		return this.after;
+	}
+
+	/**
+	 * Checks whether this difference is empty (i.e. both snapshots are structurally equal).
+	 *
+	 * @return {@code true} if this difference is empty.
+	 */
+	public boolean isEmpty() {
+		return this.changes.isEmpty();
+	}
+
+	/**
+	 * Gets all changes.
+	 *
+	 * @return all changes.
+	 */
+	public List<Change> changes() {
+		return this.changes;
+	}
+
+	/**
+	 * Gets all changes of a specific kind.
+	 *
+	 * @param kind the kind of changes to get.
+	 * @return all changes of the requested kind.
+	 */
+	public Stream<Change> changes(Kind kind) {
+		return this.changes.stream().filter(change -> change.kind() == kind);
+	}
+
+	/**
+	 * Asserts that this difference is empty.
+	 * <p>
+	 * A test failure is signaled if any change has been detected.
+	 * </p>
+	 */
+	public void assertNoChanges() {
+		if (!isEmpty()) {
+			throw new AssertionFailedError("Unexpected UI changes:" + System.lineSeparator() + this);
+		}
+	}
+
+	/**
+	 * Asserts that at least one change matching the given {@linkplain Predicate} has been detected.
+	 * <p>
+	 * A test failure is signaled if no matching change exists.
+	 * </p>
+	 *
+	 * @param expected the match criteria to use.
+	 */
+	public void assertChanged(Predicate<Change> expected) {
+		if (this.changes.stream().noneMatch(expected)) {
+			throw new AssertionFailedError("Expected UI change not detected:" + System.lineSeparator() + this);
+		}
+	}
+
+	/**
+	 * Asserts that only changes matching the given {@linkplain Predicate} have been detected (i.e. nothing else has
+	 * changed).
+	 * <p>
+	 * A test failure is signaled if any change not matching the given {@linkplain Predicate} exists.
+	 * </p>
+	 *
+	 * @param expected the match criteria to use.
+	 */
+	public void assertOnlyChanged(Predicate<Change> expected) {
+		List<Change> unexpected = this.changes.stream().filter(expected.negate()).collect(Collectors.toList());
+
+		if (!unexpected.isEmpty()) {
+			throw new AssertionFailedError("Unexpected UI changes:" + System.lineSeparator() + report(unexpected));
+		}
+	}
+
+	/**
+	 * Creates a {@linkplain Predicate} for change matching.
+	 *
+	 * @param kind the kind of change to match.
+	 * @param nodePredicate the match criteria to apply to the changed node (the later node for added and changed
+	 * nodes, the earlier node for removed ones).
+	 * @return the created {@linkplain Predicate}.
+	 */
+	public static Predicate<Change> match(Kind kind, Predicate<UISnapshot.Node> nodePredicate) {
+		return change -> change.kind() == kind && nodePredicate.test(change.node());
+	}
+
+	@Override
+	public String toString() {
+		return report(this.changes);
+	}
+
+	private static String report(List<Change> reportChanges) {
+		StringBuilder buffer = new StringBuilder();
+
+		for (Change change : reportChanges) {
+			buffer.append(change).append(System.lineSeparator());
+		}
+		return buffer.toString();
+	}
+
+	/**
+	 * A single change detected between two {@linkplain UISnapshot}s.
+	 */
+	public static final class Change {
+
+		private final Kind kind;
+		private final @Nullable UISnapshot.Node beforeNode;
+		private final @Nullable UISnapshot.Node afterNode;
+
+		Change(Kind kind, @Nullable UISnapshot.Node beforeNode, @Nullable UISnapshot.Node afterNode) {
+			this.kind = kind;
+			this.beforeNode = beforeNode;
+			this.afterNode = afterNode;
+		}
+
+		/**
+		 * Gets the kind of this change.
+		 *
+		 * @return the kind of this change.
+		 */
+		public Kind kind() {
+			return this.kind;
+		}
+
+		/**
+		 * Gets the changed node (the later node for added and changed nodes, the earlier node for removed ones).
+		 *
+		 * @return the changed node.
+		 */
+		public UISnapshot.Node node() {
+			UISnapshot.Node node = (this.afterNode != null ? this.afterNode : this.beforeNode);
+
+			if (node == null) {
+				throw new IllegalStateException();
+			}
+			return node;
+		}
+
+		/**
+		 * Gets the earlier node.
+		 *
+		 * @return the earlier node (empty for added nodes).
+		 */
+		public Optional<UISnapshot.Node> beforeNode() {
+			return Optional.ofNullable(this.beforeNode);
+		}
+
+		/**
+		 * Gets the later node.
+		 *
+		 * @return the later node (empty for removed nodes).
+		 */
+		public Optional<UISnapshot.Node> afterNode() {
+			return Optional.ofNullable(this.afterNode);
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder buffer = new StringBuilder();
+			UISnapshot.Node node = node();
+
+			buffer.append(this.kind).append(' ').append(node.path());
+			if (this.kind != Kind.CHANGED) {
+				int subtreeSize = node.subtreeEnd() - node.index();
+
+				if (subtreeSize > 1) {
+					buffer.append(" (+").append(subtreeSize - 1).append(" descendants)");
+				}
+			} else if (this.beforeNode != null && this.afterNode != null) {
+				describeChange(buffer, this.beforeNode, this.afterNode);
+			}
+			return buffer.toString();
+		}
+
+		private static void describeChange(StringBuilder buffer, UISnapshot.Node before, UISnapshot.Node after) {
+			if (!before.text().equals(after.text())) {
+				buffer.append(" text: '").append(before.text()).append("' -> '").append(after.text()).append('\'');
+			}
+			if (before.isEnabled() != after.isEnabled()) {
+				buffer.append(" enabled: ").append(before.isEnabled()).append(" -> ").append(after.isEnabled());
+			}
+			if (before.isVisible() != after.isVisible()) {
+				buffer.append(" visible: ").append(before.isVisible()).append(" -> ").append(after.isVisible());
+			}
+			if (!String.valueOf(before.id()).equals(String.valueOf(after.id()))) {
+				buffer.append(" id: ").append(before.id()).append(" -> ").append(after.id());
+			}
+			if (!before.items().equals(after.items())) {
+				buffer.append(" items: ").append(before.items().size()).append(" -> ").append(after.items().size());
+			}
+		}
+
+	}
+
+}
@@ -16,7 +16,9 @@
  */
 package de.carne.test.swt.test.extension;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
@@ -34,16 +36,23 @@ import de.carne.test.swt.extension.SWTDisplayParameterResolver;
 @TestMethodOrder(MethodOrderer.MethodName.class)
 class SWTDisplayParameterResolverTest {
 
+	private static @Nullable Display firstDisplay = null;
+
 	@Test
 	void test1stAccess(Display display) {
 		Assertions.assertNotNull(display);
 		Assertions.assertFalse(display.isDisposed());
+
+		firstDisplay = display;
+		new Shell(display);
 	}
 
 	@Test
 	void test2ndAccess(Display display) {
 		Assertions.assertNotNull(display);
 		Assertions.assertFalse(display.isDisposed());
+		Assertions.assertSame(firstDisplay, display);
+		Assertions.assertEquals(0, display.getShells().length);
 	}
 
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.test.platform;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import de.carne.test.swt.platform.ProcessDaemon;
+import de.carne.test.swt.platform.ProcessRunner;
+
+/**
+ * Test {@linkplain ProcessDaemon} class.
+ */
+@EnabledOnOs({ OS.LINUX, OS.MAC })
+class ProcessDaemonTest {
+
+	private static final String ECHO_HELPER = "while read id len; do data=$(head -c \"$len\"); "
+			+ "if [ \"$data\" = exit ]; then exit 1; fi; if [ \"$data\" = ignore ]; then continue; fi; "
+			+ "if [ \"$data\" = invalid ]; then printf '%s -1\\n' \"$id\"; continue; fi; "
+			+ "printf '%s %s\\n%s' \"$id\" \"${#data}\" \"$data\"; done";
+
+	@Test
+	void testCall() throws IOException {
+		try (ProcessDaemon daemon = new ProcessRunner("sh", "-c", ECHO_HELPER).withTimeout(5000).toDaemon()) {
+			Assertions.assertEquals("first", daemon.call("first"));
+			Assertions.assertEquals("second", daemon.call("second"));
+			Assertions.assertEquals(0, daemon.restartCount());
+		}
+	}
+
+	@Test
+	void testConcurrentSend() {
+		try (ProcessDaemon daemon = new ProcessDaemon("sh", "-c", ECHO_HELPER).withTimeout(5000)) {
+			List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+
+			for (int requestIndex = 0; requestIndex < 16; requestIndex++) {
+				responses.add(daemon.send(("request" + requestIndex).getBytes(StandardCharsets.UTF_8)));
+			}
+			for (int responseIndex = 0; responseIndex < responses.size(); responseIndex++) {
+				Assertions.assertEquals("request" + responseIndex,
+						new String(responses.get(responseIndex).join(), StandardCharsets.UTF_8));
+			}
+		}
+	}
+
+	@Test
+	void testRestart() throws IOException {
+		try (ProcessDaemon daemon = new ProcessDaemon("sh", "-c", ECHO_HELPER).withTimeout(5000)) {
+			Assertions.assertEquals("first", daemon.call("first"));
+			Assertions.assertThrows(IOException.class, () -> daemon.call("exit"));
+			Assertions.assertEquals("second", daemon.call("second"));
+			Assertions.assertEquals(1, daemon.restartCount());
+		}
+	}
+
+	@Test
+	void testInvalidResponse() throws IOException {
+		try (ProcessDaemon daemon = new ProcessDaemon("sh", "-c", ECHO_HELPER).withTimeout(5000)) {
+			CompletableFuture<byte[]> response = daemon.send("invalid".getBytes(StandardCharsets.UTF_8));
+			ExecutionException responseException = Assertions.assertThrows(ExecutionException.class,
+					() -> response.get(5, TimeUnit.SECONDS));
+
+			Assertions.assertTrue(responseException.getCause() instanceof IOException);
+			Assertions.assertEquals("second", daemon.call("second"));
+			Assertions.assertEquals(1, daemon.restartCount());
+		}
+	}
+
+	@Test
+	void testRestartUnresponsive() throws IOException {
+		try (ProcessDaemon daemon = new ProcessDaemon("sh", "-c", ECHO_HELPER).withTimeout(500)) {
+			Assertions.assertEquals("first", daemon.call("first"));
+			Assertions.assertThrows(IOException.class, () -> daemon.call("ignore"));
+			Assertions.assertThrows(IOException.class, () -> daemon.call("ignore"));
+			Assertions.assertEquals("second", daemon.call("second"));
+			Assertions.assertEquals(0, daemon.restartCount());
+			Assertions.assertThrows(IOException.class, () -> daemon.call("ignore"));
+			Assertions.assertThrows(IOException.class, () -> daemon.call("ignore"));
+			Assertions.assertThrows(IOException.class, () -> daemon.call("ignore"));
+			Assertions.assertEquals("third", daemon.call("third"));
+			Assertions.assertEquals(1, daemon.restartCount());
+		}
+	}
+
+	@Test
+	void testClosed() {
+		ProcessDaemon daemon = new ProcessDaemon("sh", "-c", ECHO_HELPER);
+
+		daemon.close();
+		Assertions.assertThrows(IOException.class, () -> daemon.call("first"));
+	}
+
+}
@@ -17,10 +17,20 @@
 package de.carne.test.swt.test.platform;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 
+import de.carne.nio.file.FileUtil;
+import de.carne.test.swt.platform.ProcessResult;
 import de.carne.test.swt.platform.ProcessRunner;
 
 /**
@@ -72,4 +82,140 @@ class ProcessRunnerTest {
 		Assertions.assertThrows(IOException.class, runner::checkStatus);
 	}
 
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testRunCommandWithStreamedOutput() throws IOException {
+		Path spillFile = Files.createTempFile(FileUtil.workingDir(), getClass().getSimpleName(), ".log");
+
+		spillFile.toFile().deleteOnExit();
+
+		List<String> lines = new ArrayList<>();
+		ProcessRunner runner = new ProcessRunner("seq", "1", "10000").withTimeout(5000).withCaptureOutput(true)
+				.withOutputLimit(16).withOutputSpill(spillFile).withOutputLineConsumer(lines::add);
+		ProcessRunner.Status status = runner.run();
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_COMPLETED, status);
+		Assertions.assertEquals(10000, lines.size());
+		Assertions.assertEquals("10000", lines.get(lines.size() - 1));
+		Assertions.assertTrue(runner.isOutputTruncated());
+		Assertions.assertTrue(runner.output().endsWith("9999\n10000\n"));
+		Assertions.assertEquals(10000, Files.readAllLines(spillFile).size());
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testRunHangingCommandWithCapturedOutput() {
+		ProcessRunner runner = new ProcessRunner("sh", "-c", "echo started; sleep 10").withTimeout(1000)
+				.withCaptureOutput(true);
+		long start = System.currentTimeMillis();
+		ProcessRunner.Status status = runner.run();
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_TIMED_OUT, status);
+		Assertions.assertTrue(elapsed < 5000);
+		Assertions.assertEquals("started\n", runner.output());
+		Assertions.assertThrows(IOException.class, runner::checkStatus);
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testRunTimedoutCommandTree() {
+		ProcessRunner runner = new ProcessRunner("sh", "-c", "sleep 30 & echo $!; wait").withTimeout(1000)
+				.withCaptureOutput(true);
+		ProcessRunner.Status status = runner.run();
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_TIMED_OUT, status);
+
+		long grandchildPid = Long.parseLong(runner.output().trim());
+
+		Assertions.assertFalse(ProcessHandle.of(grandchildPid).map(ProcessHandle::isAlive).orElse(Boolean.FALSE));
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testRunCommandWithDescendantHoldingOutput() {
+		ProcessRunner runner = new ProcessRunner("sh", "-c", "sleep 30 & echo $!; sleep 1").withTimeout(2000)
+				.withCaptureOutput(true);
+		long start = System.currentTimeMillis();
+		ProcessRunner.Status status = runner.run();
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_TIMED_OUT, status);
+		Assertions.assertEquals(0, runner.exitValue());
+		Assertions.assertTrue(elapsed < 6000);
+
+		long grandchildPid = Long.parseLong(runner.output().trim());
+
+		Assertions.assertFalse(ProcessHandle.of(grandchildPid).map(ProcessHandle::isAlive).orElse(Boolean.FALSE));
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testRunCommandWithDetachedDescendantHoldingOutput() {
+		ProcessRunner runner = new ProcessRunner("sh", "-c", "(sleep 5 &); echo started; sleep 0.5")
+				.withTimeout(1000).withCaptureOutput(true);
+		long start = System.currentTimeMillis();
+		ProcessRunner.Status status = runner.run();
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_TIMED_OUT, status);
+		Assertions.assertTrue(elapsed < 4000);
+		Assertions.assertEquals("started\n", runner.output());
+	}
+
+	@Test
+	@EnabledOnOs(OS.LINUX)
+	void testRunCommandUsage() {
+		ProcessRunner runner = new ProcessRunner("sh", "-c", "i=0; while [ $i -lt 200000 ]; do i=$((i+1)); done")
+				.withTimeout(10000);
+		ProcessRunner.Status status = runner.run();
+		ProcessResult result = runner.result();
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_COMPLETED, status);
+		Assertions.assertTrue(result.wallTime().toMillis() > 0);
+		Assertions.assertTrue(result.cpuTime().isPresent());
+		Assertions.assertTrue(result.peakRss().orElse(0) > 0);
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testStartCommand() {
+		List<String> lines = new CopyOnWriteArrayList<>();
+		ProcessRunner runner = new ProcessRunner("sh", "-c", "echo first; echo second; exit 3").withTimeout(5000)
+				.withCaptureOutput(true).withOutputLineConsumer(lines::add);
+		ProcessResult result = runner.start().join();
+
+		Assertions.assertEquals(ProcessRunner.Status.RUN_COMPLETED, result.status());
+		Assertions.assertEquals(3, result.exitValue());
+		Assertions.assertEquals("first\nsecond\n", result.output());
+		Assertions.assertEquals(Arrays.asList("first", "second"), lines);
+		Assertions.assertThrows(IOException.class, result::checkStatus);
+		Assertions.assertEquals(ProcessRunner.Status.NOT_YET_RUN, runner.result().status());
+	}
+
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	void testStartAllCommands() {
+		List<ProcessRunner> runners = new ArrayList<>();
+
+		for (int runnerIndex = 0; runnerIndex < 8; runnerIndex++) {
+			runners.add(new ProcessRunner("sh", "-c", "sleep 0.5; echo " + runnerIndex).withTimeout(5000)
+					.withCaptureOutput(true));
+		}
+
+		long start = System.currentTimeMillis();
+		List<ProcessResult> results = ProcessRunner.startAll(runners, 4).join();
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assertions.assertEquals(runners.size(), results.size());
+		for (int resultIndex = 0; resultIndex < results.size(); resultIndex++) {
+			ProcessResult result = results.get(resultIndex);
+
+			Assertions.assertEquals(ProcessRunner.Status.RUN_COMPLETED, result.status());
+			Assertions.assertEquals(resultIndex + "\n", result.output());
+		}
+		Assertions.assertTrue(elapsed >= 1000);
+		Assertions.assertTrue(elapsed < 4000);
+	}
+
 }
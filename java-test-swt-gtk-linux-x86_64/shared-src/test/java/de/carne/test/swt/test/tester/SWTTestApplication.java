@@ -19,6 +19,7 @@ package de.carne.test.swt.test.tester;
 import java.util.Arrays;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
@@ -38,6 +39,7 @@ import org.eclipse.swt.widgets.CoolBar;
 import org.eclipse.swt.widgets.CoolItem;
 import org.eclipse.swt.widgets.DirectoryDialog;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.FontDialog;
 import org.eclipse.swt.widgets.Label;
@@ -49,6 +51,8 @@ import org.eclipse.swt.widgets.ProgressBar;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
 
 import de.carne.util.Check;
 import de.carne.util.Late;
@@ -75,6 +79,11 @@ class SWTTestApplication {
 	final static String BUTTON_RIGHT = "Right button";
 	final static String BUTTON_CLOSE = "Close";
 
+	final static String TREE_ITEM_ROOT = "Root";
+	final static String TREE_ITEM_GROUP = "Group";
+	final static String TREE_ITEM_LEAF = "Item";
+	final static int TREE_ITEM_COUNT = 3;
+
 	private final Shell root;
 	private final Late<List> messageListHolder = new Late<>();
 
@@ -162,6 +171,57 @@ class SWTTestApplication {
 
 		messageList.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
 		this.messageListHolder.set(messageList);
+
+		Tree lazyTree = new Tree(this.root, SWT.SINGLE | SWT.BORDER);
+
+		lazyTree.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+		setupLazyTree(lazyTree);
+
+		StyledText logText = new StyledText(this.root, SWT.MULTI | SWT.READ_ONLY | SWT.BORDER | SWT.V_SCROLL);
+
+		logText.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+	}
+
+	private void setupLazyTree(Tree lazyTree) {
+		TreeItem rootItem = new TreeItem(lazyTree, SWT.NONE);
+
+		rootItem.setText(TREE_ITEM_ROOT);
+		new TreeItem(rootItem, SWT.NONE);
+		lazyTree.addListener(SWT.Expand, this::onTreeItemExpand);
+		lazyTree.addSelectionListener(SelectionListener.widgetSelectedAdapter(this::onTreeItemSelected));
+	}
+
+	private void onTreeItemExpand(Event evt) {
+		TreeItem item = Check.isInstanceOf(evt.item, TreeItem.class);
+		TreeItem[] children = item.getItems();
+
+		if (children.length == 1 && children[0].getText().isEmpty()) {
+			TreeItem placeholder = children[0];
+
+			// Populate asynchronously to simulate lazy loading
+			item.getDisplay().asyncExec(() -> populateTreeItem(item, placeholder));
+		}
+	}
+
+	private void populateTreeItem(TreeItem item, TreeItem placeholder) {
+		boolean groupLevel = item.getParentItem() == null;
+
+		placeholder.dispose();
+		for (int childIndex = 1; childIndex <= TREE_ITEM_COUNT; childIndex++) {
+			TreeItem child = new TreeItem(item, SWT.NONE);
+
+			if (groupLevel) {
+				child.setText(TREE_ITEM_GROUP + " " + childIndex);
+				new TreeItem(child, SWT.NONE);
+			} else {
+				child.setText(TREE_ITEM_LEAF + " " + childIndex);
+			}
+		}
+		addMessage("TreeItem expanded: " + item.getText());
+	}
+
+	private void onTreeItemSelected(SelectionEvent evt) {
+		addMessage("TreeItem selected: " + Check.isInstanceOf(evt.item, TreeItem.class).getText());
 	}
 
 	private void setupMenuBar() {
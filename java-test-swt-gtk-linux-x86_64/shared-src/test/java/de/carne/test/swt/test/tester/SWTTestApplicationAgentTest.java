@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.test.tester;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.MessageBox;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.mockito.Mockito;
+
+import de.carne.test.swt.DisableIfThreadNotSWTCapable;
+import de.carne.test.swt.tester.SWTTest;
+
+/**
+ * Test {@linkplain SWTTest} class - Full application test using the agent based dialog interception.
+ */
+@DisableIfThreadNotSWTCapable
+class SWTTestApplicationAgentTest extends SWTTestApplicationTest {
+
+	private static final String PROPERTY_DIALOG_INTERCEPTOR = SWTTest.class.getPackage().getName()
+			+ ".DIALOG_INTERCEPTOR";
+
+	@BeforeAll
+	static void setDialogInterceptor() {
+		System.setProperty(PROPERTY_DIALOG_INTERCEPTOR, "agent");
+	}
+
+	@AfterAll
+	static void clearDialogInterceptor() {
+		System.clearProperty(PROPERTY_DIALOG_INTERCEPTOR);
+	}
+
+	@Override
+	protected void doTestMessage() {
+		super.doTestMessage();
+
+		mockMessageBox().offerResult(SWT.OK);
+
+		// The agent backend intercepts regularly constructed dialogs (whereas the Mockito backend constructs mocks)
+		MessageBox messageBox = new MessageBox(accessShell().get());
+
+		Assertions.assertFalse(Mockito.mockingDetails(messageBox).isMock());
+		Assertions.assertNotNull(messageBox.getMessage());
+	}
+
+}
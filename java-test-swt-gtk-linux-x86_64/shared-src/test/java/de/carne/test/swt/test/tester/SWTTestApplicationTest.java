@@ -16,10 +16,20 @@
  */
 package de.carne.test.swt.test.tester;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
 
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.printing.PrinterData;
 import org.eclipse.swt.widgets.Button;
@@ -27,18 +37,37 @@ import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.CoolBar;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.List;
+import org.eclipse.swt.widgets.MenuItem;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.ToolBar;
+import org.eclipse.swt.widgets.Tree;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import de.carne.nio.file.FileUtil;
 import de.carne.test.swt.DisableIfThreadNotSWTCapable;
+import de.carne.test.swt.tester.DialogAnswerSource;
+import de.carne.test.swt.tester.DialogInvocation;
 import de.carne.test.swt.tester.SWTTest;
+import de.carne.test.swt.tester.accessor.Accessor;
 import de.carne.test.swt.tester.accessor.ButtonAccessor;
 import de.carne.test.swt.tester.accessor.CompositeAccessor;
+import de.carne.test.swt.tester.accessor.ContentTail;
 import de.carne.test.swt.tester.accessor.ControlAccessor;
 import de.carne.test.swt.tester.accessor.CoolBarAccessor;
+import de.carne.test.swt.tester.accessor.ListAccessor;
+import de.carne.test.swt.tester.accessor.MenuItemAccessor;
+import de.carne.test.swt.tester.accessor.StyledTextAccessor;
 import de.carne.test.swt.tester.accessor.ToolBarAccessor;
+import de.carne.test.swt.tester.accessor.ToolItemAccessor;
+import de.carne.test.swt.tester.accessor.TreeAccessor;
+import de.carne.test.swt.tester.accessor.TreeItemAccessor;
+import de.carne.test.swt.tester.image.ImageComparator;
+import de.carne.test.swt.tester.image.ImageComparison;
+import de.carne.test.swt.tester.image.RasterImage;
+import de.carne.test.swt.tester.snapshot.UISnapshot;
+import de.carne.test.swt.tester.snapshot.UISnapshotDiff;
 
 /**
  * Test {@linkplain SWTTest} class - Full application test.
@@ -46,18 +75,32 @@ import de.carne.test.swt.tester.accessor.ToolBarAccessor;
 @DisableIfThreadNotSWTCapable
 class SWTTestApplicationTest extends SWTTest {
 
+	private final ContentTail messageTail = new ContentTail();
+	private final Path goldenImageFile = FileUtil.workingDir().resolve(getClass().getSimpleName() + "-toolbar.png");
+
 	@Test
 	void testApplication() {
 		Script script = script(SWTTestApplication::main);
 
 		script.add(this::doTestMessage);
+		script.add(this::doTestMessages);
 		script.add(this::doTestColorDialog);
 		script.add(this::doTestDirectoryDialog);
 		script.add(this::doTestFileDialog);
+		script.add(this::doTestFileDialogAnswers);
+		script.add(this::doTestFileDialogTruncatedAnswers);
 		script.add(this::doTestFontDialog);
 		script.add(this::doTestPrintDialog);
+		script.add(this::doTestLogTail);
 		script.add(this::doTestMiddleButton);
+		script.add(this::doRecordToolBarImage);
+		script.verifyImage(this::getToolBar, this.goldenImageFile);
 		script.add(this::doTestMiddleCoolButton);
+		script.add(this::doWaitLazyTreeItem, this::doSelectLazyTreeItem);
+		script.add(this::doWaitLazyTreeExpandedMessage, this::doCheckLazyTreeExpandedMessage);
+		script.snapshot(this::doCheckSnapshot);
+		script.add(this::doTestMiddleButton);
+		script.diff(this::doCheckMiddleButtonDiff);
 		script.add(this::doOpenProgressDialog, true);
 		script.add(this::doWaitProgressDialogClosable, this::doCloseProgressDialog);
 		script.add(this::doCloseRoot);
@@ -84,6 +127,38 @@ class SWTTestApplicationTest extends SWTTest {
 		Assertions.assertEquals("MessageBox: " + result, getLastMessage());
 	}
 
+	protected void doTestMessages() {
+		traceAction();
+
+		mockMessageBox().offerResults(SWT.YES, SWT.NO);
+
+		ToolItemAccessor messageItem = accessShell().accessChild(ToolBarAccessor::new, ToolBar.class, 0).accessItem(0);
+
+		messageItem.select();
+
+		Assertions.assertEquals("MessageBox: " + SWT.YES, getLastMessage());
+
+		messageItem.select();
+
+		Assertions.assertEquals("MessageBox: " + SWT.NO, getLastMessage());
+
+		messageItem.select();
+
+		Assertions.assertEquals("MessageBox: " + SWT.CANCEL, getLastMessage());
+
+		java.util.List<DialogInvocation> invocations = dialogTelemetry().invocations(MessageBox.class);
+
+		Assertions.assertEquals(4, invocations.size());
+		int style = SWT.ICON_INFORMATION | SWT.OK;
+
+		for (DialogInvocation invocation : invocations) {
+			Assertions.assertEquals(style, invocation.style() & style);
+			Assertions.assertEquals("Title", invocation.text());
+			Assertions.assertEquals("Message", invocation.message().orElse(null));
+		}
+		Assertions.assertTrue(invocations.get(3).actionLatency().isPresent());
+	}
+
 	protected void doTestColorDialog() {
 		traceAction();
 
@@ -101,13 +176,24 @@ class SWTTestApplicationTest extends SWTTest {
 		traceAction();
 
 		String directory = FileUtil.workingDir().toString();
+		Duration latency = Duration.ofMillis(200);
+		AtomicBoolean asyncExecuted = new AtomicBoolean();
 
-		mockDirectoryDialog().offerResult(directory);
+		mockDirectoryDialog().withLatency(latency).offerResult(directory);
+		Display.getCurrent().asyncExec(() -> asyncExecuted.set(true));
+
+		long start = System.nanoTime();
 
 		accessShell().accessChild(ToolBarAccessor::new, ToolBar.class, 0)
 				.accessItem(SWTTestApplication.TOOL_ITEM_DIRECTORY).select();
 
+		long elapsed = System.nanoTime() - start;
+
+		mockDirectoryDialog().withLatency(Duration.ZERO);
+
 		Assertions.assertEquals("DirectoryDialog: " + directory, getLastMessage());
+		Assertions.assertTrue(elapsed >= latency.toNanos());
+		Assertions.assertTrue(asyncExecuted.get());
 	}
 
 	protected void doTestFileDialog() {
@@ -123,6 +209,65 @@ class SWTTestApplicationTest extends SWTTest {
 		Assertions.assertEquals("FileDialog: " + file, getLastMessage());
 	}
 
+	protected void doTestFileDialogAnswers() {
+		traceAction();
+
+		Path answerFile = Assertions.assertDoesNotThrow(() -> Files.write(
+				Files.createTempFile(FileUtil.workingDir(), getClass().getSimpleName(), ".csv"),
+				Arrays.asList("# file,index", "\"first,file.txt\",1", "", "second.txt,2", "third.txt,3")));
+
+		answerFile.toFile().deleteOnExit();
+
+		DialogAnswerSource<String> answers = Assertions
+				.assertDoesNotThrow(() -> DialogAnswerSource.open(answerFile).column(0).shard(0, 2));
+
+		mockFileDialog().offerResults(answers);
+
+		ToolItemAccessor fileItem = accessShell().accessChild(ToolBarAccessor::new, ToolBar.class, 0)
+				.accessItem(SWTTestApplication.TOOL_ITEM_FILE);
+
+		fileItem.select();
+
+		Assertions.assertEquals("FileDialog: first,file.txt", getLastMessage());
+
+		fileItem.select();
+
+		Assertions.assertEquals("FileDialog: third.txt", getLastMessage());
+
+		fileItem.select();
+
+		Assertions.assertEquals("FileDialog: null", getLastMessage());
+	}
+
+	protected void doTestFileDialogTruncatedAnswers() {
+		traceAction();
+
+		Path answerFile = Assertions.assertDoesNotThrow(() -> Files.write(
+				Files.createTempFile(FileUtil.workingDir(), getClass().getSimpleName(), ".txt"),
+				Arrays.asList("first.txt", "second.txt", "third.txt")));
+
+		answerFile.toFile().deleteOnExit();
+
+		// Map the answer file before truncating it; opening it again must not re-use the outdated mapping
+		Assertions.assertDoesNotThrow(() -> DialogAnswerSource.open(answerFile));
+		Assertions.assertDoesNotThrow(() -> Files.write(answerFile, Arrays.asList("fourth.txt")));
+
+		DialogAnswerSource<String> answers = Assertions.assertDoesNotThrow(() -> DialogAnswerSource.open(answerFile));
+
+		mockFileDialog().offerResults(answers);
+
+		ToolItemAccessor fileItem = accessShell().accessChild(ToolBarAccessor::new, ToolBar.class, 0)
+				.accessItem(SWTTestApplication.TOOL_ITEM_FILE);
+
+		fileItem.select();
+
+		Assertions.assertEquals("FileDialog: fourth.txt", getLastMessage());
+
+		fileItem.select();
+
+		Assertions.assertEquals("FileDialog: null", getLastMessage());
+	}
+
 	protected void doTestFontDialog() {
 		traceAction();
 
@@ -149,6 +294,44 @@ class SWTTestApplicationTest extends SWTTest {
 		Assertions.assertEquals("PrintDialog: " + printer, getLastMessage());
 	}
 
+	protected void doTestLogTail() {
+		traceAction();
+
+		StyledTextAccessor log = accessShell().accessChild(StyledTextAccessor::new, StyledText.class, 6);
+		StyledText logText = log.get();
+		ContentTail logTail = new ContentTail();
+
+		logText.setText("first\nsecond\r\nthird");
+
+		Assertions.assertEquals(Arrays.asList("first", "second"), log.readTail(logTail));
+
+		// A trailing '\r' may still be followed by '\n'
+		logText.append("\r");
+
+		Assertions.assertEquals(Collections.emptyList(), log.readTail(logTail));
+
+		logText.append("\nfourth\rfifth\n");
+
+		Assertions.assertEquals(Arrays.asList("third", "fourth", "fifth"), log.readTail(logTail));
+
+		logText.append("sixth\nseventh\neighth\n");
+
+		Assertions.assertEquals("seventh", log.accessTail(logTail, line -> line.startsWith("seven")).get());
+		Assertions.assertEquals(Arrays.asList("eighth"), log.readTail(logTail));
+
+		logText.append("skipped\n");
+		log.skipTail(logTail);
+		logText.append("ninth\n");
+
+		Assertions.assertEquals(Arrays.asList("ninth"), log.readTail(logTail));
+
+		// Shrinking content restarts reading at the beginning
+		logText.setText("restart\n");
+
+		Assertions.assertEquals(Arrays.asList("restart"), log.readTail(logTail));
+		Assertions.assertEquals(Optional.empty(), log.accessTail(logTail, line -> true).getOptional());
+	}
+
 	protected void doTestMiddleButton() {
 		traceAction();
 
@@ -158,6 +341,30 @@ class SWTTestApplicationTest extends SWTTest {
 		Assertions.assertEquals("Button selected: " + SWTTestApplication.BUTTON_MIDDLE, getLastMessage());
 	}
 
+	protected void doRecordToolBarImage() {
+		traceAction();
+
+		RasterImage image = RasterImage.capture(getToolBar());
+
+		Assertions.assertDoesNotThrow(() -> image.save(this.goldenImageFile));
+		this.goldenImageFile.toFile().deleteOnExit();
+
+		ImageData modifiedImageData = image.toImageData();
+
+		modifiedImageData.setPixel(0, 0, image.rgb(0, 0) ^ 0xffffff);
+
+		RasterImage modifiedImage = RasterImage.of(modifiedImageData);
+		ImageComparison comparison = ImageComparator.exact().withParallelThreshold(0).compare(image, modifiedImage);
+
+		Assertions.assertFalse(comparison.matches());
+		Assertions.assertEquals(1, comparison.differentPixels());
+		Assertions.assertEquals(1, comparison.differentTiles());
+		Assertions.assertEquals(0xff0000, comparison.diffImage().rgb(0, 0));
+		ImageComparator tolerantComparator = ImageComparator.exact().withMaxDifferentPixels(1);
+
+		Assertions.assertTrue(tolerantComparator.compare(image, modifiedImage).matches());
+	}
+
 	protected void doTestMiddleCoolButton() {
 		traceAction();
 
@@ -167,10 +374,72 @@ class SWTTestApplicationTest extends SWTTest {
 		Assertions.assertEquals("CoolButton selected: " + SWTTestApplication.BUTTON_MIDDLE, getLastMessage());
 	}
 
+	protected TreeItemAccessor doWaitLazyTreeItem() {
+		traceAction();
+
+		return accessShell().accessChild(TreeAccessor::new, Tree.class, 5).accessItem(SWTTestApplication.TREE_ITEM_ROOT,
+				SWTTestApplication.TREE_ITEM_GROUP + " 2", SWTTestApplication.TREE_ITEM_LEAF + " 3");
+	}
+
+	protected void doSelectLazyTreeItem(TreeItemAccessor treeItem) {
+		traceAction();
+
+		treeItem.select();
+
+		Assertions.assertEquals("TreeItem selected: " + SWTTestApplication.TREE_ITEM_LEAF + " 3", getLastMessage());
+	}
+
+	protected Accessor<String> doWaitLazyTreeExpandedMessage() {
+		traceAction();
+
+		return accessMessages().accessTail(this.messageTail,
+				message -> message.startsWith("TreeItem expanded: " + SWTTestApplication.TREE_ITEM_GROUP));
+	}
+
+	protected void doCheckLazyTreeExpandedMessage(Accessor<String> message) {
+		traceAction();
+
+		Assertions.assertEquals("TreeItem expanded: " + SWTTestApplication.TREE_ITEM_GROUP + " 2", message.get());
+		Assertions.assertTrue(accessMessages().readTail(this.messageTail).contains(
+				"TreeItem selected: " + SWTTestApplication.TREE_ITEM_LEAF + " 3"));
+	}
+
+	protected void doCheckSnapshot(UISnapshot snapshot) {
+		traceAction();
+
+		UISnapshot.Node root = snapshot.findUnique(UISnapshot.matchClass(Shell.class));
+
+		Assertions.assertEquals(SWTTestApplication.ROOT_TITLE, root.text());
+		Assertions.assertEquals(1, snapshot.nodes().parallel().filter(UISnapshot.matchClass(MenuItem.class))
+				.filter(UISnapshot.matchText(SWTTestApplication.MENU_ITEM_QUIT)).count());
+		Assertions.assertTrue(snapshot.find(UISnapshot.matchClass(List.class)).anyMatch(
+				node -> node.items().contains("TreeItem selected: " + SWTTestApplication.TREE_ITEM_LEAF + " 3")));
+		// Every captured widget is identified uniquely
+		Assertions.assertEquals(snapshot.nodes().count(),
+				snapshot.nodes().mapToInt(UISnapshot.Node::serial).distinct().count());
+	}
+
+	protected void doCheckMiddleButtonDiff(UISnapshotDiff diff) {
+		traceAction();
+
+		Predicate<UISnapshotDiff.Change> messagesChanged = UISnapshotDiff.match(UISnapshotDiff.Kind.CHANGED,
+				UISnapshot.matchClass(List.class));
+
+		diff.assertChanged(messagesChanged);
+		diff.assertOnlyChanged(messagesChanged);
+	}
+
 	protected void doOpenProgressDialog() {
 		traceAction();
 
-		accessShell().accessMenuBar().accessItem(SWTTestApplication.MENU_ITEM_PROGRESS).select();
+		MenuItemAccessor progressItem = accessShell().accessMenuItem(SWTTestApplication.MENU_TEST,
+				SWTTestApplication.MENU_ITEM_PROGRESS);
+
+		Assertions.assertEquals(
+				accessShell().accessMenuBar().accessItem(SWTTestApplication.MENU_ITEM_PROGRESS).getOptional(),
+				progressItem.getOptional());
+
+		progressItem.select();
 	}
 
 	protected ButtonAccessor doWaitProgressDialogClosable() {
@@ -192,6 +461,14 @@ class SWTTestApplicationTest extends SWTTest {
 		accessShell().close();
 	}
 
+	private ListAccessor accessMessages() {
+		return accessShell().accessChild(ListAccessor::new, List.class, 4);
+	}
+
+	private ToolBar getToolBar() {
+		return accessShell().accessChild(ControlAccessor::new, ToolBar.class, 0).get();
+	}
+
 	private String getLastMessage() {
 		List messages = accessShell().accessChild(ControlAccessor::new, List.class, 4).get();
 
@@ -16,9 +16,18 @@
  */
 package de.carne.test.swt.test.tester;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import de.carne.nio.file.FileUtil;
 import de.carne.test.swt.DisableIfThreadNotSWTCapable;
 import de.carne.test.swt.tester.SWTTest;
 
@@ -29,15 +38,35 @@ import de.carne.test.swt.tester.SWTTest;
 class SWTTestFailureTest extends SWTTest {
 
 	@Test
-	void testFailure() {
+	void testFailure() throws IOException {
+		Path manifestFile = FileUtil.workingDir().resolve(getClass().getSimpleName() + ".manifest");
+		List<String> previousManifest = readManifest(manifestFile);
 		Script script = script(SWTTestApplication::main);
 
-		script.args(getClass().getSimpleName()).add(this::doFailure);
+		script.args(getClass().getSimpleName()).recordFrames(10, Duration.ofSeconds(2)).add(this::doFailure);
 		Assertions.assertThrows(AssertionError.class, () -> {
 			script.execute();
 		});
 
 		Assertions.assertFalse(script.passed());
+
+		// The recorded frames are dumped on failure
+		List<String> manifest = readManifest(manifestFile);
+		Path frameIndexFile = manifest.subList(previousManifest.size(), manifest.size()).stream()
+				.map(line -> manifestFile.resolveSibling(line.split("\t")[0]))
+				.filter(file -> file.getFileName().toString().endsWith(".txt")).findFirst()
+				.orElseThrow(() -> new AssertionError("No frame index stored"));
+		List<String> frameIndex = Files.readAllLines(frameIndexFile, StandardCharsets.UTF_8);
+
+		Assertions.assertFalse(frameIndex.isEmpty());
+		for (String frame : frameIndex) {
+			Assertions.assertTrue(Files.exists(manifestFile.resolveSibling(frame.split(" ")[0])));
+		}
+	}
+
+	private static List<String> readManifest(Path manifestFile) throws IOException {
+		return (Files.exists(manifestFile) ? Files.readAllLines(manifestFile, StandardCharsets.UTF_8)
+				: Collections.emptyList());
 	}
 
 	private void doFailure() {
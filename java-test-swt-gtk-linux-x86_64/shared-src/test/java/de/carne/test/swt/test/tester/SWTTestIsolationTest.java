@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.test.tester;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.List;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.ToolBar;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+import de.carne.test.swt.DisableIfThreadNotSWTCapable;
+import de.carne.test.swt.tester.SWTTest;
+import de.carne.test.swt.tester.accessor.ControlAccessor;
+import de.carne.test.swt.tester.accessor.ToolBarAccessor;
+
+/**
+ * Test {@linkplain SWTTest} class - Isolation of the dialog mocks of different test classes.
+ */
+@DisableIfThreadNotSWTCapable
+class SWTTestIsolationTest extends SWTTest {
+
+	private static final String PROPERTY_NESTED_RUN = "de.carne.test.swt.test.tester.SWTTestIsolationTest.NESTED_RUN";
+
+	@Test
+	void testIsolation() {
+		mockMessageBox().offerResult(SWT.YES);
+
+		// Run another test class to completion (including the closing of its resources) while our mock is active
+		runNested(NestedMockTest.class);
+
+		Script script = script(SWTTestApplication::main);
+
+		script.add(this::doTestMessage);
+		script.add(this::doCloseRoot);
+		script.execute();
+
+		Assertions.assertTrue(script.passed());
+		Assertions.assertEquals(1, dialogTelemetry().invocations(MessageBox.class).size());
+	}
+
+	private static void runNested(Class<?> testClass) {
+		Launcher launcher = LauncherFactory.create();
+		SummaryGeneratingListener listener = new SummaryGeneratingListener();
+
+		System.setProperty(PROPERTY_NESTED_RUN, Boolean.TRUE.toString());
+		try {
+			launcher.execute(LauncherDiscoveryRequestBuilder.request()
+					.selectors(DiscoverySelectors.selectClass(testClass)).build(), listener);
+		} finally {
+			System.clearProperty(PROPERTY_NESTED_RUN);
+		}
+
+		TestExecutionSummary summary = listener.getSummary();
+
+		for (TestExecutionSummary.Failure failure : summary.getFailures()) {
+			Assertions.fail("Nested test failed: " + failure.getTestIdentifier().getDisplayName(),
+					failure.getException());
+		}
+		Assertions.assertEquals(1, summary.getTestsSucceededCount());
+	}
+
+	private void doTestMessage() {
+		traceAction();
+
+		accessShell().accessChild(ToolBarAccessor::new, ToolBar.class, 0).accessItem(0).select();
+
+		List messages = accessShell().accessChild(ControlAccessor::new, List.class, 4).get();
+
+		// Our offered result must be used, neither the nested test's one nor the default one
+		Assertions.assertEquals("MessageBox: " + SWT.YES, messages.getItem(messages.getItemCount() - 1));
+	}
+
+	private void doCloseRoot() {
+		traceAction();
+
+		accessShell().close();
+	}
+
+	/**
+	 * Test class run by {@linkplain SWTTestIsolationTest} only.
+	 */
+	@EnabledIfSystemProperty(named = PROPERTY_NESTED_RUN, matches = "true")
+	static class NestedMockTest extends SWTTest {
+
+		@Test
+		void testNestedMock() {
+			mockMessageBox().offerResult(SWT.NO);
+		}
+
+	}
+
+}
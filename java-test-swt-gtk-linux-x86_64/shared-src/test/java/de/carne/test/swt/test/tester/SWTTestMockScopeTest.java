@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.test.tester;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Shell;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+import de.carne.test.swt.DisableIfThreadNotSWTCapable;
+import de.carne.test.swt.extension.SWTDisplayParameterResolver;
+import de.carne.test.swt.tester.SWTTest;
+
+/**
+ * Test {@linkplain SWTTest} class - Dialog interception limited to the dialog mock's scope.
+ */
+@DisableIfThreadNotSWTCapable
+@ExtendWith(SWTDisplayParameterResolver.class)
+class SWTTestMockScopeTest {
+
+	private static final String PROPERTY_NESTED_RUN = "de.carne.test.swt.test.tester.SWTTestMockScopeTest.NESTED_RUN";
+
+	@Test
+	void testNoInterceptionOutsideScope(Display display) {
+		Assertions.assertFalse(isIntercepted(display));
+
+		// The nested test class runs on the current thread and closes its dialog mocks (and thereby leaves the mock's
+		// scope) when it has finished. Its dialog interception is kept installed afterwards.
+		runNested(NestedMockTest.class);
+
+		Assertions.assertFalse(isIntercepted(display));
+	}
+
+	static boolean isIntercepted(Display display) {
+		Shell shell = new Shell(display);
+
+		try {
+			// Intercepted dialogs are not constructed regularly (hence their fields are not initialized)
+			return new MessageBox(shell).getMessage() == null;
+		} finally {
+			shell.dispose();
+		}
+	}
+
+	private static void runNested(Class<?> testClass) {
+		Launcher launcher = LauncherFactory.create();
+		SummaryGeneratingListener listener = new SummaryGeneratingListener();
+
+		System.setProperty(PROPERTY_NESTED_RUN, Boolean.TRUE.toString());
+		try {
+			launcher.execute(LauncherDiscoveryRequestBuilder.request()
+					.selectors(DiscoverySelectors.selectClass(testClass)).build(), listener);
+		} finally {
+			System.clearProperty(PROPERTY_NESTED_RUN);
+		}
+
+		TestExecutionSummary summary = listener.getSummary();
+
+		for (TestExecutionSummary.Failure failure : summary.getFailures()) {
+			Assertions.fail("Nested test failed: " + failure.getTestIdentifier().getDisplayName(),
+					failure.getException());
+		}
+		Assertions.assertEquals(1, summary.getTestsSucceededCount());
+	}
+
+	/**
+	 * Test class run by {@linkplain SWTTestMockScopeTest} only.
+	 */
+	@EnabledIfSystemProperty(named = PROPERTY_NESTED_RUN, matches = "true")
+	static class NestedMockTest extends SWTTest {
+
+		@Test
+		void testNestedMock() {
+			mockMessageBox().offerResult(SWT.YES);
+
+			Assertions.assertTrue(isIntercepted(display()));
+		}
+
+	}
+
+}
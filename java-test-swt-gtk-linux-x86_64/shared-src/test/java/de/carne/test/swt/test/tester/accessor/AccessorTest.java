@@ -18,6 +18,7 @@ package de.carne.test.swt.test.tester.accessor;
 
 import java.util.Optional;
 
+import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
@@ -25,27 +26,35 @@ import org.eclipse.swt.widgets.CoolBar;
 import org.eclipse.swt.widgets.CoolItem;
 import org.eclipse.swt.widgets.Decorations;
 import org.eclipse.swt.widgets.Item;
+import org.eclipse.swt.widgets.List;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.MenuItem;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
+import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.TreeItem;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import de.carne.test.swt.tester.accessor.Accessor;
 import de.carne.test.swt.tester.accessor.ButtonAccessor;
 import de.carne.test.swt.tester.accessor.CompositeAccessor;
+import de.carne.test.swt.tester.accessor.ContentTail;
 import de.carne.test.swt.tester.accessor.ControlAccessor;
 import de.carne.test.swt.tester.accessor.CoolBarAccessor;
 import de.carne.test.swt.tester.accessor.CoolItemAccessor;
 import de.carne.test.swt.tester.accessor.DecorationsAccessor;
 import de.carne.test.swt.tester.accessor.ItemAccessor;
+import de.carne.test.swt.tester.accessor.ListAccessor;
 import de.carne.test.swt.tester.accessor.MenuAccessor;
 import de.carne.test.swt.tester.accessor.MenuItemAccessor;
 import de.carne.test.swt.tester.accessor.ShellAccessor;
+import de.carne.test.swt.tester.accessor.StyledTextAccessor;
 import de.carne.test.swt.tester.accessor.ToolBarAccessor;
 import de.carne.test.swt.tester.accessor.ToolItemAccessor;
+import de.carne.test.swt.tester.accessor.TreeAccessor;
+import de.carne.test.swt.tester.accessor.TreeItemAccessor;
 
 /**
  * Test {@linkplain Accessor} class and derived ones.
@@ -123,6 +132,7 @@ class AccessorTest {
 		testAccessors(accessor1, accessor2, accessor3);
 
 		Assertions.assertEquals(Optional.empty(), accessor1.accessMenuBar().accessItem(item -> true).getOptional());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessMenuItem("Menu", "Item").getOptional());
 	}
 
 	@Test
@@ -155,6 +165,55 @@ class AccessorTest {
 		Assertions.assertEquals(Optional.empty(), accessor1.accessItem(0).getOptional());
 	}
 
+	@Test
+	void testListAccessor() {
+		List value = null;
+		Optional<List> optional = Optional.ofNullable(value);
+		ListAccessor accessor1 = new ListAccessor(value);
+		ListAccessor accessor2 = new ListAccessor(optional);
+		ListAccessor accessor3 = new ListAccessor(accessor1);
+
+		testAccessors(accessor1, accessor2, accessor3);
+
+		ContentTail tail = new ContentTail();
+
+		Assertions.assertEquals(0, accessor1.items().count());
+		Assertions.assertTrue(accessor1.readTail(tail).isEmpty());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessTail(tail, item -> true).getOptional());
+	}
+
+	@Test
+	void testStyledTextAccessor() {
+		StyledText value = null;
+		Optional<StyledText> optional = Optional.ofNullable(value);
+		StyledTextAccessor accessor1 = new StyledTextAccessor(value);
+		StyledTextAccessor accessor2 = new StyledTextAccessor(optional);
+		StyledTextAccessor accessor3 = new StyledTextAccessor(accessor1);
+
+		testAccessors(accessor1, accessor2, accessor3);
+
+		ContentTail tail = new ContentTail();
+
+		Assertions.assertTrue(accessor1.readTail(tail).isEmpty());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessTail(tail, line -> true).getOptional());
+	}
+
+	@Test
+	void testTreeAccessor() {
+		Tree value = null;
+		Optional<Tree> optional = Optional.ofNullable(value);
+		TreeAccessor accessor1 = new TreeAccessor(value);
+		TreeAccessor accessor2 = new TreeAccessor(optional);
+		TreeAccessor accessor3 = new TreeAccessor(accessor1);
+
+		testAccessors(accessor1, accessor2, accessor3);
+
+		Assertions.assertEquals(0, accessor1.items().count());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessItem(item -> true).getOptional());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessItem("Root", "Item").getOptional());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessItemPath("Root/Item").getOptional());
+	}
+
 	@Test
 	void testItemAccessor() {
 		Item value = null;
@@ -177,6 +236,20 @@ class AccessorTest {
 		testAccessors(accessor1, accessor2, accessor3);
 	}
 
+	@Test
+	void testTreeItemAccessor() {
+		TreeItem value = null;
+		Optional<TreeItem> optional = Optional.ofNullable(value);
+		TreeItemAccessor accessor1 = new TreeItemAccessor(value);
+		TreeItemAccessor accessor2 = new TreeItemAccessor(optional);
+		TreeItemAccessor accessor3 = new TreeItemAccessor(accessor1);
+
+		testAccessors(accessor1, accessor2, accessor3);
+
+		Assertions.assertEquals(0, accessor1.items().count());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessItem("Item").getOptional());
+	}
+
 	@Test
 	void testMenuItemAccessor() {
 		MenuItem value = null;
@@ -186,6 +259,8 @@ class AccessorTest {
 		MenuItemAccessor accessor3 = new MenuItemAccessor(accessor1);
 
 		testAccessors(accessor1, accessor2, accessor3);
+
+		Assertions.assertEquals(Optional.empty(), accessor1.accessMenu().getOptional());
 	}
 
 	@Test
@@ -210,6 +285,7 @@ class AccessorTest {
 		testAccessors(accessor1, accessor2, accessor3);
 
 		Assertions.assertEquals(0, accessor1.items().count());
+		Assertions.assertEquals(Optional.empty(), accessor1.accessItemPath("Menu", "Item").getOptional());
 	}
 
 	private <T> void testAccessors(Accessor<T> accessor1, Accessor<T> accessor2, Accessor<T> accessor3) {
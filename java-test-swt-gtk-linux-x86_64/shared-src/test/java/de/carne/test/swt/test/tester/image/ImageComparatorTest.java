@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.test.tester.image;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import de.carne.test.swt.tester.image.ImageComparator;
+import de.carne.test.swt.tester.image.ImageComparison;
+import de.carne.test.swt.tester.image.RasterImage;
+
+/**
+ * Test {@linkplain ImageComparator} class.
+ */
+class ImageComparatorTest {
+
+	private static final int WIDTH = 100;
+	private static final int HEIGHT = 70;
+
+	@Test
+	void testIdenticalImages() {
+		ImageComparison comparison = ImageComparator.exact().compare(image(0), image(0));
+
+		Assertions.assertTrue(comparison.sizeMatches());
+		Assertions.assertEquals(0, comparison.differentPixels());
+		Assertions.assertEquals(0, comparison.differentTiles());
+		Assertions.assertTrue(comparison.matches());
+	}
+
+	@Test
+	void testDifferentPixels() {
+		RasterImage expected = image(0);
+		RasterImage actual = image(3, 50, 40);
+		ImageComparison comparison = ImageComparator.exact().compare(expected, actual);
+
+		Assertions.assertTrue(comparison.sizeMatches());
+		Assertions.assertEquals(1, comparison.differentPixels());
+		Assertions.assertEquals(1, comparison.differentTiles());
+		Assertions.assertFalse(comparison.matches());
+		Assertions.assertTrue(ImageComparator.exact().withMaxDifferentPixels(1).compare(expected, actual).matches());
+
+		ImageComparison parallelComparison = ImageComparator.exact().withParallelThreshold(0).withTileSize(8)
+				.compare(expected, image(3, 0, 0, 99, 69, 8, 8, 9, 8));
+
+		Assertions.assertEquals(4, parallelComparison.differentPixels());
+		Assertions.assertEquals(3, parallelComparison.differentTiles());
+	}
+
+	@Test
+	void testTolerance() {
+		RasterImage expected = image(0);
+		RasterImage actual = image(3, 99, 69);
+
+		Assertions.assertTrue(ImageComparator.exact().withTolerance(3).compare(expected, actual).matches());
+		Assertions.assertFalse(ImageComparator.exact().withTolerance(2).compare(expected, actual).matches());
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ImageComparator.exact().withTolerance(-1));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> ImageComparator.exact().withTolerance(256));
+	}
+
+	@Test
+	void testSizeMismatch() {
+		ImageComparison comparison = ImageComparator.exact()
+				.compare(image(0), RasterImage.of(new ImageData(WIDTH, HEIGHT + 1, 24, rgbPalette())));
+
+		Assertions.assertFalse(comparison.sizeMatches());
+		Assertions.assertFalse(comparison.matches());
+	}
+
+	private static RasterImage image(int delta, int... points) {
+		ImageData imageData = new ImageData(WIDTH, HEIGHT, 24, rgbPalette());
+
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				imageData.setPixel(x, y, ((x * 2) << 16) | ((y * 3) << 8) | 0x80);
+			}
+		}
+		for (int pointIndex = 0; pointIndex + 1 < points.length; pointIndex += 2) {
+			int x = points[pointIndex];
+			int y = points[pointIndex + 1];
+
+			imageData.setPixel(x, y, imageData.getPixel(x, y) + ((delta << 16) | (delta << 8) | delta));
+		}
+		return RasterImage.of(imageData);
+	}
+
+	private static PaletteData rgbPalette() {
+		return new PaletteData(0xff0000, 0x00ff00, 0x0000ff);
+	}
+
+}
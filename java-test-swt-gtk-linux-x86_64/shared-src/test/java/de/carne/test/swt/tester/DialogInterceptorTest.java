@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Shell;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import de.carne.test.swt.DisableIfThreadNotSWTCapable;
+import de.carne.test.swt.extension.SWTDisplayParameterResolver;
+
+/**
+ * Test {@linkplain DialogInterceptor} class - Dialog mocks of concurrently running threads.
+ */
+@DisableIfThreadNotSWTCapable
+@ExtendWith(SWTDisplayParameterResolver.class)
+class DialogInterceptorTest {
+
+	@Test
+	void testMockOfOtherThreadIgnored(Display display) throws Exception {
+		DialogTelemetry telemetry = new DialogTelemetry();
+
+		// Install the interception for the current thread
+		try (MessageBoxMockInstance mock = new MessageBoxMockInstance(telemetry)) {
+			mock.get().offerResult(SWT.YES);
+
+			Assertions.assertTrue(isIntercepted(display));
+		}
+		Assertions.assertFalse(isIntercepted(display));
+
+		CountDownLatch activated = new CountDownLatch(1);
+		CountDownLatch checked = new CountDownLatch(1);
+		Thread otherThread = new Thread(() -> {
+			try (MessageBoxMockInstance mock = new MessageBoxMockInstance(telemetry)) {
+				mock.get().offerResult(SWT.NO);
+				activated.countDown();
+				checked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}, getClass().getSimpleName());
+
+		otherThread.start();
+		activated.await();
+		try {
+			Assertions.assertFalse(isIntercepted(display));
+		} finally {
+			checked.countDown();
+			otherThread.join();
+		}
+	}
+
+	private static boolean isIntercepted(Display display) {
+		Shell shell = new Shell(display);
+
+		try {
+			// Intercepted dialogs are not constructed regularly (hence their fields are not initialized)
+			return new MessageBox(shell).getMessage() == null;
+		} finally {
+			shell.dispose();
+		}
+	}
+
+}
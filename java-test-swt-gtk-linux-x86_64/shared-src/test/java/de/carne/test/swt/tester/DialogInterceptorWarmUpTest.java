@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.MessageBox;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@linkplain DialogInterceptor} class - Warm-up of the dialog interception.
+ */
+class DialogInterceptorWarmUpTest {
+
+	// Preparing the interception of a dialog type takes seconds, installing a prepared one only milliseconds
+	private static final long PREPARED_ACTIVATION_LIMIT = 500;
+
+	@Test
+	void testWarmUp() throws Exception {
+		// The backend property is not set; hence the default backend is prepared
+		DialogInterceptor.warmUp(MessageBox.class);
+
+		Assertions.assertTrue(DialogInterceptor.isPrepared(MessageBox.class));
+
+		long start = System.nanoTime();
+
+		try (MessageBoxMockInstance mock = new MessageBoxMockInstance(new DialogTelemetry())) {
+			long elapsed = (System.nanoTime() - start) / 1000000;
+
+			mock.get().offerResult(SWT.OK);
+
+			Assertions.assertTrue(elapsed < PREPARED_ACTIVATION_LIMIT,
+					() -> "First activation took " + elapsed + " ms");
+		}
+	}
+
+}
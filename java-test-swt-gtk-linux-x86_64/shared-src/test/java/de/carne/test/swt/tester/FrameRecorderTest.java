@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@linkplain FrameRecorder} class.
+ */
+class FrameRecorderTest {
+
+	private static final PaletteData PALETTE = new PaletteData(0xff0000, 0x00ff00, 0x0000ff);
+
+	@Test
+	void testDumpFullBuffer() throws IOException {
+		FrameRecorder recorder = new FrameRecorder(10, Duration.ofMillis(500));
+		Random random = new Random(42);
+		List<int[]> frames = new ArrayList<>();
+		int width = 100;
+		int height = 80;
+		int[] frame = randomFrame(random, width, height);
+
+		for (int frameNumber = 0; frameNumber < 12; frameNumber++) {
+			if (frameNumber == 3) {
+				// The size changes in the frames being dropped as well as in the dumped frames
+				width = 80;
+				height = 100;
+				frame = randomFrame(random, width, height);
+			} else if (frameNumber == 9) {
+				width = 120;
+				height = 60;
+				frame = randomFrame(random, width, height);
+			} else if (frameNumber > 0) {
+				frame = frame.clone();
+				changeRectangle(random, frame, width);
+			}
+			frames.add(frame);
+			recorder.store(imageData(frame, width, height), frameNumber);
+			// Repeated frames are not stored again
+			recorder.store(imageData(frame, width, height), frameNumber);
+		}
+
+		List<ImageData> dumpedFrames = new ArrayList<>();
+		List<String> index = new ArrayList<>();
+
+		recorder.dump((extension, content) -> {
+			if (extension.endsWith(".png")) {
+				dumpedFrames.add(new ImageLoader().load(new ByteArrayInputStream(content))[0]);
+			} else {
+				index.addAll(List.of(new String(content, StandardCharsets.UTF_8).split(System.lineSeparator())));
+			}
+			return Paths.get(extension);
+		});
+
+		Assertions.assertEquals(5, dumpedFrames.size());
+		Assertions.assertEquals(5, index.size());
+		for (int frameNumber = 0; frameNumber < 5; frameNumber++) {
+			ImageData dumpedFrame = dumpedFrames.get(frameNumber);
+
+			Assertions.assertEquals((frameNumber < 2 ? 80 : 120), dumpedFrame.width);
+			Assertions.assertArrayEquals(frames.get(7 + frameNumber), pixels(dumpedFrame));
+			Assertions.assertEquals("frame.png +" + frameNumber + " ms x2", index.get(frameNumber));
+		}
+	}
+
+	@Test
+	void testDumpSingleSlot() throws IOException {
+		FrameRecorder recorder = new FrameRecorder(1, Duration.ofMillis(500));
+		Random random = new Random(42);
+		int[] frame = randomFrame(random, 40, 30);
+
+		recorder.store(imageData(frame, 40, 30), 0);
+		frame = frame.clone();
+		changeRectangle(random, frame, 40);
+		recorder.store(imageData(frame, 40, 30), 1);
+
+		List<ImageData> dumpedFrames = new ArrayList<>();
+
+		recorder.dump((extension, content) -> {
+			if (extension.endsWith(".png")) {
+				dumpedFrames.add(new ImageLoader().load(new ByteArrayInputStream(content))[0]);
+			}
+			return Paths.get(extension);
+		});
+
+		Assertions.assertEquals(1, dumpedFrames.size());
+		Assertions.assertArrayEquals(frame, pixels(dumpedFrames.get(0)));
+	}
+
+	private static int[] randomFrame(Random random, int width, int height) {
+		int[] frame = new int[width * height];
+
+		for (int pixelIndex = 0; pixelIndex < frame.length; pixelIndex++) {
+			frame[pixelIndex] = random.nextInt(0x1000000);
+		}
+		return frame;
+	}
+
+	private static void changeRectangle(Random random, int[] frame, int width) {
+		int height = frame.length / width;
+		int x = random.nextInt(width - 10);
+		int y = random.nextInt(height - 10);
+		int changeWidth = 1 + random.nextInt(10);
+		int changeHeight = 1 + random.nextInt(10);
+
+		for (int changeY = y; changeY < y + changeHeight; changeY++) {
+			for (int changeX = x; changeX < x + changeWidth; changeX++) {
+				frame[changeY * width + changeX] ^= 0xffffff;
+			}
+		}
+	}
+
+	private static ImageData imageData(int[] frame, int width, int height) {
+		ImageData imageData = new ImageData(width, height, 24, PALETTE);
+
+		for (int y = 0; y < height; y++) {
+			imageData.setPixels(0, y, width, frame, y * width);
+		}
+		return imageData;
+	}
+
+	private static int[] pixels(ImageData imageData) {
+		int[] pixels = new int[imageData.width * imageData.height];
+
+		for (int y = 0; y < imageData.height; y++) {
+			for (int x = 0; x < imageData.width; x++) {
+				RGB rgb = imageData.palette.getRGB(imageData.getPixel(x, y));
+
+				pixels[y * imageData.width + x] = (rgb.red << 16) | (rgb.green << 8) | rgb.blue;
+			}
+		}
+		return pixels;
+	}
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.tester;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test {@linkplain ScreenshotStore} class.
+ */
+class ScreenshotStoreTest {
+
+	private static final byte[] CONTENT1 = "content1".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] CONTENT2 = "content2".getBytes(StandardCharsets.UTF_8);
+
+	@Test
+	void testSequenceSeeding(@TempDir Path dir) throws IOException {
+		Files.write(dir.resolve("OtherTest0007.png"), CONTENT1);
+		Files.write(dir.resolve("OtherTest.manifest"),
+				List.of("OtherTest0007.png\thash7\tstored", "Foo20001.png\thash1\tduplicate"));
+		// Files not owned by the store are not considered
+		Files.write(dir.resolve(".hidden0042.png"), CONTENT1);
+		Files.write(dir.resolve("Foo20001.png"), CONTENT1);
+		Files.write(dir.resolve("2147483647.png"), CONTENT1);
+		Files.write(dir.resolve("OtherTest1234567890123.png"), CONTENT1);
+
+		ScreenshotStore store = ScreenshotStore.open(dir);
+
+		Assertions.assertSame(store, ScreenshotStore.open(dir));
+		Assertions.assertEquals(dir.resolve("Test0008.png"), store.store("Test", "png", CONTENT2));
+		Assertions.assertEquals(dir.resolve("Test0009.txt"), store.store("Test", "txt", CONTENT2));
+	}
+
+	@Test
+	void testDeduplication(@TempDir Path dir) throws IOException {
+		ScreenshotStore store = ScreenshotStore.open(dir);
+		Path storedFile1 = store.store("Test", "png", CONTENT1);
+		Path storedFile2 = store.store("Test", "png", CONTENT1);
+		Path storedFile3 = store.store("Test", "png", CONTENT2);
+
+		Assertions.assertEquals(storedFile1, storedFile2);
+		Assertions.assertNotEquals(storedFile1, storedFile3);
+		Assertions.assertArrayEquals(CONTENT1, Files.readAllBytes(storedFile1));
+		Assertions.assertArrayEquals(CONTENT2, Files.readAllBytes(storedFile3));
+		Assertions.assertEquals(3, listFiles(dir));
+
+		// Deleted files are stored again
+		Files.delete(storedFile3);
+
+		Path storedFile4 = store.store("Test", "png", CONTENT2);
+
+		Assertions.assertNotEquals(storedFile3, storedFile4);
+		Assertions.assertArrayEquals(CONTENT2, Files.readAllBytes(storedFile4));
+	}
+
+	@Test
+	void testManifest(@TempDir Path dir) throws IOException {
+		Path storeDir = Files.createDirectory(dir.resolve("store"));
+		Path storedFile1 = ScreenshotStore.open(storeDir).store("Test", "png", CONTENT1);
+
+		ScreenshotStore.open(storeDir).store("Test", "png", CONTENT1);
+
+		List<String> manifest = Files.readAllLines(storeDir.resolve("Test.manifest"), StandardCharsets.UTF_8);
+
+		Assertions.assertEquals(2, manifest.size());
+		Assertions.assertTrue(manifest.get(0).startsWith(storedFile1.getFileName() + "\t"));
+		Assertions.assertTrue(manifest.get(0).endsWith("\tstored"));
+		Assertions.assertTrue(manifest.get(1).startsWith(storedFile1.getFileName() + "\t"));
+		Assertions.assertTrue(manifest.get(1).endsWith("\tduplicate"));
+
+		// A store opened for a copy of the directory (like in a later VM) re-uses the content listed in the manifest
+		Path copyDir = Files.createDirectory(dir.resolve("copy"));
+
+		Files.copy(storedFile1, copyDir.resolve(storedFile1.getFileName()));
+		Files.copy(storeDir.resolve("Test.manifest"), copyDir.resolve("Test.manifest"));
+
+		ScreenshotStore copyStore = ScreenshotStore.open(copyDir);
+
+		Assertions.assertEquals(copyDir.resolve(storedFile1.getFileName()), copyStore.store("Other", "png", CONTENT1));
+		Assertions.assertEquals(copyDir.resolve("Other0002.png"), copyStore.store("Other", "png", CONTENT2));
+	}
+
+	@Test
+	void testCollision(@TempDir Path dir) throws IOException {
+		ScreenshotStore store = ScreenshotStore.open(dir);
+
+		// Simulate files created by a concurrently running VM after the store has been opened
+		Files.write(dir.resolve("Test0001.png"), CONTENT1);
+		Files.write(dir.resolve("Test0002.png"), CONTENT1);
+
+		Path storedFile = store.store("Test", "png", CONTENT2);
+
+		Assertions.assertEquals(dir.resolve("Test0003.png"), storedFile);
+		Assertions.assertArrayEquals(CONTENT1, Files.readAllBytes(dir.resolve("Test0001.png")));
+		Assertions.assertArrayEquals(CONTENT2, Files.readAllBytes(storedFile));
+		Assertions.assertEquals(4, listFiles(dir));
+	}
+
+	private static long listFiles(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.count();
+		}
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.internal.gtk.GTK;
+import org.eclipse.swt.internal.gtk.OS;
+import org.eclipse.swt.internal.gtk3.GTK3;
+import org.eclipse.swt.internal.gtk4.GTK4;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+import org.eclipse.swt.widgets.Shell;
+
+import de.carne.util.logging.Log;
+
+/**
+ * Tracks the native dialogs of a single {@linkplain Display}.
+ * <p>
+ * Native dialogs are run by SWT via an external event loop, which is announced via the
+ * {@linkplain SWT#PreExternalEventDispatch} and {@linkplain SWT#PostExternalEventDispatch} events. As long as no
+ * external event loop is running, no native dialog can be open and checking for one is a plain field read. While an
+ * external event loop is running (which may also be caused by a {@linkplain org.eclipse.swt.widgets.Tracker} or a
+ * drag detection), the native dialog is identified by walking the current toplevel windows once. Only modal windows
+ * not belonging to an SWT shell are considered. The toplevel windows of the SWT shells are tracked via
+ * {@linkplain SWT#Show} and {@linkplain SWT#Dispose} filters.
+ * </p>
+ */
+final class GtkNativeDialogTracker {
+
+	private static final Log LOG = new Log();
+
+	private final Display display;
+	private final HandleSet shellToplevels = new HandleSet();
+	// Only modified by the display thread, but read by any thread
+	private volatile int externalEventLoops = 0;
+	private long nativeDialog = 0;
+
+	private GtkNativeDialogTracker(Display display) {
+		this.display = display;
+	}
+
+	/**
+	 * Installs a new tracker for a {@linkplain Display}.
+	 * <p>
+	 * This function must be invoked on the display thread.
+	 * </p>
+	 *
+	 * @param display the {@linkplain Display} to track.
+	 * @return the installed tracker.
+	 */
+	static GtkNativeDialogTracker install(Display display) {
+		GtkNativeDialogTracker tracker = new GtkNativeDialogTracker(display);
+		Listener shellListener = tracker::onShellEvent;
+		Listener externalEventLoopListener = tracker::onExternalEventLoopEvent;
+
+		display.addFilter(SWT.Show, shellListener);
+		display.addFilter(SWT.Dispose, shellListener);
+		// The external event loop events are only sent to listeners (not to filters)
+		display.addListener(SWT.PreExternalEventDispatch, externalEventLoopListener);
+		display.addListener(SWT.PostExternalEventDispatch, externalEventLoopListener);
+		tracker.trackShells();
+
+		LOG.debug("Native dialog tracking installed (tracking {0} shells)", tracker.shellToplevels.size());
+
+		return tracker;
+	}
+
+	private void trackShells() {
+		for (Shell shell : this.display.getShells()) {
+			long shellToplevel = shellToplevel(shell);
+
+			if (shellToplevel != 0) {
+				this.shellToplevels.add(shellToplevel);
+			}
+		}
+	}
+
+	private void onShellEvent(Event event) {
+		if (event.widget instanceof Shell) {
+			long shellToplevel = shellToplevel((Shell) event.widget);
+
+			if (shellToplevel != 0) {
+				if (event.type == SWT.Show) {
+					this.shellToplevels.add(shellToplevel);
+				} else {
+					this.shellToplevels.remove(shellToplevel);
+				}
+			}
+		}
+	}
+
+	private void onExternalEventLoopEvent(Event event) {
+		if (event.type == SWT.PreExternalEventDispatch) {
+			this.externalEventLoops++;
+		} else if (this.externalEventLoops > 0) {
+			this.externalEventLoops--;
+		}
+		// A nested or finished event loop may have changed the open dialogs
+		this.nativeDialog = 0;
+	}
+
+	private static long shellToplevel(Shell shell) {
+		return (GTK.GTK4 ? GTK4.gtk_widget_get_native(shell.handle) : GTK3.gtk_widget_get_toplevel(shell.handle));
+	}
+
+	/**
+	 * Checks whether an external event loop is currently running.
+	 * <p>
+	 * This function may be invoked by any thread. If no external event loop is running, no native dialog is open.
+	 * </p>
+	 *
+	 * @return {@code true} if an external event loop is currently running.
+	 */
+	boolean inExternalEventLoop() {
+		return this.externalEventLoops > 0;
+	}
+
+	/**
+	 * Finds the toplevel window of the currently open native dialog.
+	 * <p>
+	 * This function must be invoked on the display thread.
+	 * </p>
+	 *
+	 * @return the toplevel window of the currently open native dialog or {@code 0} if none has been found.
+	 */
+	long findNativeDialog() {
+		if (this.nativeDialog == 0 && this.externalEventLoops > 0) {
+			long untrackedModalToplevel = findUntrackedModalToplevel();
+
+			if (untrackedModalToplevel != 0) {
+				// Shells which have not been shown yet are not tracked; hence re-examine the shells before reporting
+				trackShells();
+				untrackedModalToplevel = findUntrackedModalToplevel();
+			}
+			this.nativeDialog = untrackedModalToplevel;
+
+			LOG.debug("Find native dialog result: 0x{0}", Long.toHexString(untrackedModalToplevel));
+		}
+		return this.nativeDialog;
+	}
+
+	/**
+	 * Closes the currently open native dialog.
+	 * <p>
+	 * This function must be invoked on the display thread.
+	 * </p>
+	 *
+	 * @return {@code true} if a native dialog has been closed.
+	 */
+	boolean closeNativeDialog() {
+		long checkedNativeDialog = findNativeDialog();
+
+		if (checkedNativeDialog != 0) {
+			LOG.debug("Destroying native dialog: 0x{0}", Long.toHexString(checkedNativeDialog));
+
+			this.nativeDialog = 0;
+			if (GTK.GTK4) {
+				GTK4.gtk_window_destroy(checkedNativeDialog);
+			} else {
+				GTK3.gtk_widget_destroy(checkedNativeDialog);
+			}
+		}
+		return checkedNativeDialog != 0;
+	}
+
+	private long findUntrackedModalToplevel() {
+		long untrackedModalToplevel = 0;
+		long toplevels = GTK.gtk_window_list_toplevels();
+
+		try {
+			long toplevel = toplevels;
+
+			while (toplevel != 0) {
+				long window = OS.g_list_data(toplevel);
+
+				if (window != 0 && !this.shellToplevels.contains(window) && GTK.gtk_window_get_modal(window)) {
+					untrackedModalToplevel = window;
+					break;
+				}
+				toplevel = OS.g_list_next(toplevel);
+			}
+		} finally {
+			OS.g_list_free(toplevels);
+		}
+		return untrackedModalToplevel;
+	}
+
+}
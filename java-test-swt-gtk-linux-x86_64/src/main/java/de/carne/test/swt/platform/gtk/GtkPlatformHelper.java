@@ -17,44 +17,124 @@
 package de.carne.test.swt.platform.gtk;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.Set;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
-import org.eclipse.swt.internal.gtk.GTK;
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.swt.internal.gtk.OS;
-import org.eclipse.swt.internal.gtk3.GTK3;
-import org.eclipse.swt.internal.gtk4.GTK4;
 import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.Shell;
 
 import de.carne.nio.file.attribute.FileAttributes;
 import de.carne.test.swt.platform.PlatformHelper;
 import de.carne.test.swt.platform.ProcessRunner;
+import de.carne.test.swt.platform.SWTCapability;
+import de.carne.util.Lazy;
 import de.carne.util.Strings;
 import de.carne.util.logging.Log;
 
 /**
  * GTK platform helper.
+ * <p>
+ * Native dialogs are tracked per {@linkplain Display} (see {@linkplain GtkNativeDialogTracker}). Tracking is installed
+ * on first use; afterwards the display thread is only involved in checking for an open native dialog while an external
+ * event loop (e.g. the one of a native dialog) is running.
+ * </p>
+ * <p>
+ * If no display is set, a display is provisioned via an Xvfb server (see {@linkplain XvfbDisplayPool}) and accessed
+ * via the server's authority file. Otherwise the
+ * X11 server of the set display is probed once (see {@linkplain X11Probe}), so an unreachable server is detected
+ * before any {@linkplain Display} creation is attempted.
+ * </p>
  */
 public class GtkPlatformHelper extends PlatformHelper {
 
 	private static final Log LOG = new Log();
 
+	private static final int PROBE_TIMEOUT = 1000;
+
+	private static final Lazy<Optional<XvfbDisplayPool.Lease>> PROVISIONED_DISPLAY_HOLDER = new Lazy<>(
+			GtkPlatformHelper::provisionDisplay);
+
+	private static final Lazy<SWTCapability> SWT_CAPABILITY_HOLDER = new Lazy<>(GtkPlatformHelper::probeSWTCapability);
+
+	private final Map<Display, GtkNativeDialogTracker> nativeDialogTrackers = new ConcurrentHashMap<>();
+
+	private static Optional<XvfbDisplayPool.Lease> provisionDisplay() {
+		Optional<XvfbDisplayPool.Lease> provisionedDisplay = XvfbDisplayPool.lease();
+
+		provisionedDisplay.ifPresent(display -> {
+			// The VM's environment is immutable; set the variables natively for GTK's display initialization
+			OS.setenv(cString("DISPLAY"), cString(display.displayName()), 1);
+			OS.setenv(cString("XAUTHORITY"), cString(display.authFile().toString()), 1);
+
+			LOG.info("Using provisioned display ''{0}''", display.displayName());
+		});
+		return provisionedDisplay;
+	}
+
+	private static byte[] cString(String string) {
+		return (string + "\0").getBytes(StandardCharsets.US_ASCII);
+	}
+
+	private static SWTCapability probeSWTCapability() {
+		long start = System.nanoTime();
+		String display = System.getenv("DISPLAY");
+		boolean capable;
+		String reason;
+
+		if (display == null || display.isEmpty()) {
+			Optional<XvfbDisplayPool.Lease> provisionedDisplay = PROVISIONED_DISPLAY_HOLDER.get();
+
+			capable = provisionedDisplay.isPresent();
+			reason = (capable ? "Using provisioned display '" + provisionedDisplay.get().displayName() + "'"
+					: "DISPLAY not set and no display provisioned");
+		} else {
+			Optional<String> failure = X11Probe.check(display, PROBE_TIMEOUT);
+
+			capable = !failure.isPresent();
+			reason = failure.orElse("X11 server for display '" + display + "' reachable");
+		}
+
+		SWTCapability capability = new SWTCapability(capable, reason, Duration.ofNanos(System.nanoTime() - start));
+
+		LOG.info("{0}", capability);
+
+		return capability;
+	}
+
 	@Override
 	protected boolean internalIsCurrentThreadSWTCapable() {
-		return !Strings.isEmpty(System.getenv("DISPLAY"));
+		return SWT_CAPABILITY_HOLDER.get().isCapable();
+	}
+
+	@Override
+	protected SWTCapability internalProbeCurrentThreadSWTCapability() {
+		return SWT_CAPABILITY_HOLDER.get();
+	}
+
+	@Override
+	protected void internalWarmUp() {
+		super.internalWarmUp();
+		// Probing includes the provisioning of an Xvfb server (if needed). The toolkit itself is bound to the thread
+		// creating the first Display; hence it is left to the test's UI thread to initialize it.
+		SWT_CAPABILITY_HOLDER.get();
 	}
 
 	@Override
 	protected boolean internalInNativeDialog(Display display) {
 		AtomicBoolean resultHolder = new AtomicBoolean();
+		GtkNativeDialogTracker tracker = nativeDialogTracker(display);
 
-		if (!display.isDisposed()) {
+		if (tracker != null && tracker.inExternalEventLoop() && !display.isDisposed()) {
 			if (Thread.currentThread().equals(display.getThread())) {
-				resultHolder.set(findNativeDialog(display) != 0);
+				resultHolder.set(tracker.findNativeDialog() != 0);
 			} else {
 				display.syncExec(() -> resultHolder.set(internalInNativeDialog(display)));
 			}
@@ -68,18 +148,9 @@ public class GtkPlatformHelper extends PlatformHelper {
 
 		if (!display.isDisposed()) {
 			if (Thread.currentThread().equals(display.getThread())) {
-				long nativeDialog = findNativeDialog(display);
-
-				if (nativeDialog != 0) {
-					LOG.debug("Destroying native dialog: 0x{0}", Long.toHexString(nativeDialog));
-
-					if (GTK.GTK4) {
-						GTK4.gtk_window_destroy(nativeDialog);
-					} else {
-						GTK3.gtk_widget_destroy(nativeDialog);
-					}
-					resultHolder.set(true);
-				}
+				GtkNativeDialogTracker tracker = nativeDialogTracker(display);
+
+				resultHolder.set(tracker != null && tracker.closeNativeDialog());
 			} else {
 				display.syncExec(() -> resultHolder.set(internalCloseNativeDialogs(display)));
 			}
@@ -87,40 +158,38 @@ public class GtkPlatformHelper extends PlatformHelper {
 		return resultHolder.get();
 	}
 
-	private long findNativeDialog(Display display) {
-		Set<Long> shellToplevels = new HashSet<>();
+	private @Nullable GtkNativeDialogTracker nativeDialogTracker(Display display) {
+		AtomicReference<@Nullable GtkNativeDialogTracker> trackerHolder = new AtomicReference<>(
+				this.nativeDialogTrackers.get(display));
 
-		for (Shell shell : display.getShells()) {
-			if (GTK.GTK4) {
-				shellToplevels.add(GTK4.gtk_widget_get_native(shell.handle));
+		if (trackerHolder.get() == null && !display.isDisposed()) {
+			if (Thread.currentThread().equals(display.getThread())) {
+				trackerHolder.set(this.nativeDialogTrackers.computeIfAbsent(display, this::installNativeDialogTracker));
 			} else {
-				shellToplevels.add(GTK3.gtk_widget_get_toplevel(shell.handle));
-			}
-		}
-
-		long nativeDialog = 0;
-		long toplevels = GTK.gtk_window_list_toplevels();
-
-		while (toplevels != 0) {
-			long toplevel = OS.g_list_data(toplevels);
-
-			if (!shellToplevels.contains(toplevel) && GTK.gtk_window_get_modal(toplevel)) {
-				nativeDialog = toplevel;
-				break;
+				display.syncExec(() -> trackerHolder.set(nativeDialogTracker(display)));
 			}
-			toplevels = OS.g_list_next(toplevels);
 		}
-		OS.g_list_free(toplevels);
+		return trackerHolder.get();
+	}
 
-		LOG.debug("Find native dialog result: 0x{0}", Long.toHexString(nativeDialog));
+	private GtkNativeDialogTracker installNativeDialogTracker(Display display) {
+		GtkNativeDialogTracker tracker = GtkNativeDialogTracker.install(display);
 
-		return nativeDialog;
+		display.disposeExec(() -> this.nativeDialogTrackers.remove(display));
+		return tracker;
 	}
 
 	@Override
 	protected Path internalGrabScreen(Path dir) throws IOException {
 		Path tmpFile = Files.createTempFile(dir, null, ".png", FileAttributes.userFileDefault(dir)).toAbsolutePath();
-		ProcessRunner processRunner = new ProcessRunner("import", "-window", "root", tmpFile.toString());
+		Optional<XvfbDisplayPool.Lease> provisionedDisplay = (Strings.isEmpty(System.getenv("DISPLAY"))
+				? PROVISIONED_DISPLAY_HOLDER.get()
+				: Optional.empty());
+		String tmpFileName = tmpFile.toString();
+		ProcessRunner processRunner = (provisionedDisplay.isPresent()
+				? new ProcessRunner("import", "-display", provisionedDisplay.get().displayName(), "-window", "root",
+						tmpFileName).withEnvironment("XAUTHORITY", provisionedDisplay.get().authFile().toString())
+				: new ProcessRunner("import", "-window", "root", tmpFileName));
 
 		processRunner.run();
 		processRunner.checkStatus();
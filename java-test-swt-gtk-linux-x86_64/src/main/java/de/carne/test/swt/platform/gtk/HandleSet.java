@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open addressing hash set for native handles.
+ * <p>
+ * As native handles are never {@code 0}, the value {@code 0} is used to mark empty slots. Hence adding or checking
+ * the value {@code 0} is not supported. Instances of this class are not thread-safe.
+ * </p>
+ */
+final class HandleSet {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private long[] slots = new long[INITIAL_CAPACITY];
+	private int size = 0;
+
+	/**
+	 * Adds a handle to this set.
+	 *
+	 * @param handle the handle to add.
+	 * @return {@code true} if the handle has been added (was not yet contained in this set).
+	 */
+	public boolean add(long handle) {
+		checkHandle(handle);
+
+		int slot = findSlot(this.slots, handle);
+		boolean added = this.slots[slot] == 0;
+
+		if (added) {
+			this.slots[slot] = handle;
+			this.size++;
+			if (this.size * 2 > this.slots.length) {
+				rehash(this.slots.length * 2);
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Removes a handle from this set.
+	 *
+	 * @param handle the handle to remove.
+	 * @return {@code true} if the handle has been removed (was contained in this set).
+	 */
+	public boolean remove(long handle) {
+		checkHandle(handle);
+
+		int slot = findSlot(this.slots, handle);
+		boolean removed = this.slots[slot] != 0;
+
+		if (removed) {
+			this.slots[slot] = 0;
+			this.size--;
+			closeGap(slot);
+		}
+		return removed;
+	}
+
+	/**
+	 * Checks whether a handle is contained in this set.
+	 *
+	 * @param handle the handle to check.
+	 * @return {@code true} if the handle is contained in this set.
+	 */
+	public boolean contains(long handle) {
+		checkHandle(handle);
+		return this.slots[findSlot(this.slots, handle)] != 0;
+	}
+
+	/**
+	 * Gets the number of handles contained in this set.
+	 *
+	 * @return the number of handles contained in this set.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Removes all handles from this set.
+	 */
+	public void clear() {
+		Arrays.fill(this.slots, 0);
+		this.size = 0;
+	}
+
+	private static void checkHandle(long handle) {
+		if (handle == 0) {
+			throw new IllegalArgumentException("Invalid handle: 0");
+		}
+	}
+
+	private static int findSlot(long[] slots, long handle) {
+		int mask = slots.length - 1;
+		int slot = hash(handle) & mask;
+
+		while (slots[slot] != 0 && slots[slot] != handle) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(long handle) {
+		long mixed = handle * 0x9e3779b97f4a7c15l;
+
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	private void closeGap(int gapSlot) {
+		// Backward shift deletion; keeps the probe sequences intact without the need for tombstones
+		int mask = this.slots.length - 1;
+		int gap = gapSlot;
+		int slot = (gap + 1) & mask;
+
+		while (this.slots[slot] != 0) {
+			int home = hash(this.slots[slot]) & mask;
+
+			if (((slot - home) & mask) >= ((slot - gap) & mask)) {
+				this.slots[gap] = this.slots[slot];
+				this.slots[slot] = 0;
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldSlots = this.slots;
+		long[] newSlots = new long[capacity];
+
+		for (long handle : oldSlots) {
+			if (handle != 0) {
+				newSlots[findSlot(newSlots, handle)] = handle;
+			}
+		}
+		this.slots = newSlots;
+	}
+
+}
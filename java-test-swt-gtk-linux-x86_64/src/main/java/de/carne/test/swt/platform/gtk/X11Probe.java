@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import de.carne.util.logging.Log;
+
+/**
+ * Health check for X11 servers.
+ * <p>
+ * Servers listening on TCP are checked by performing the X11 connection setup. As Java 11 does not support Unix domain
+ * sockets, local servers not listening on TCP are checked via their socket and lock file.
+ * </p>
+ */
+final class X11Probe {
+
+	private static final Log LOG = new Log();
+
+	private static final int X11_TCP_PORT_BASE = 6000;
+
+	// Connection setup request: little endian, protocol version 11.0, no authorization
+	private static final byte[] SETUP_REQUEST = new byte[] { 0x6c, 0, 11, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+
+	private static final Pattern DISPLAY_NAME_PATTERN = Pattern.compile("([^:]*):(\\d+)(\\.\\d+)?");
+
+	private X11Probe() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * Checks whether a local X11 server process is serving the given display number.
+	 * <p>
+	 * The server process must be alive, the display's socket must exist and the display's lock file must record the
+	 * server process.
+	 * </p>
+	 *
+	 * @param displayNumber the display number to check.
+	 * @param server the server process expected to serve the display number.
+	 * @return {@code true} if the X11 server is up and accepting connections.
+	 */
+	static boolean probeLocal(int displayNumber, ProcessHandle server) {
+		return server.isAlive() && Files.exists(serverSocket(displayNumber))
+				&& readServerLock(displayNumber).map(pid -> pid.longValue() == server.pid()).orElse(Boolean.FALSE)
+						.booleanValue();
+	}
+
+	/**
+	 * Checks whether the X11 server for a display name (as used in the {@code DISPLAY} environment variable) is
+	 * reachable.
+	 * <p>
+	 * For remote displays (and local displays listening on TCP) the X11 connection setup is performed. A server
+	 * answering the setup request (even if it requests authorization) is considered reachable. For local displays not
+	 * listening on TCP, the server's socket and lock file are checked and the process recorded in the lock file must be
+	 * alive.
+	 * </p>
+	 *
+	 * @param displayName the display name to check.
+	 * @param timeoutMillis the connect and read timeout (in milliseconds) to use.
+	 * @return the failure reason or {@linkplain Optional#empty()} if the server is reachable.
+	 */
+	static Optional<String> check(String displayName, int timeoutMillis) {
+		Matcher displayNameMatcher = DISPLAY_NAME_PATTERN.matcher(displayName);
+		Optional<String> failure = Optional.empty();
+
+		if (displayNameMatcher.matches()) {
+			String host = displayNameMatcher.group(1);
+			int displayNumber = Integer.parseInt(displayNameMatcher.group(2));
+			boolean local = host.isEmpty() || "unix".equals(host);
+			int status = setup((local ? InetAddress.getLoopbackAddress().getHostAddress() : host), displayNumber,
+					timeoutMillis);
+
+			if (status < 0) {
+				if (!local) {
+					failure = Optional.of("X11 server '" + displayName + "' not reachable");
+				} else if (!Files.exists(serverSocket(displayNumber))) {
+					failure = Optional.of("No X11 server socket for display '" + displayName + "'");
+				} else {
+					failure = checkServerProcess(displayName, displayNumber);
+				}
+			}
+		} else {
+			failure = Optional.of("Unsupported display name '" + displayName + "'");
+		}
+		return failure;
+	}
+
+	private static Optional<String> checkServerProcess(String displayName, int displayNumber) {
+		Optional<Long> serverPid = readServerLock(displayNumber);
+		Optional<String> failure = Optional.empty();
+
+		if (serverPid.isPresent() && !ProcessHandle.of(serverPid.get().longValue()).map(ProcessHandle::isAlive)
+				.orElse(Boolean.FALSE).booleanValue()) {
+			failure = Optional
+					.of("X11 server process " + serverPid.get() + " for display '" + displayName + "' is dead");
+		}
+		return failure;
+	}
+
+	private static Optional<Long> readServerLock(int displayNumber) {
+		Path serverLock = serverLock(displayNumber);
+		Optional<Long> serverPid = Optional.empty();
+
+		if (Files.isReadable(serverLock)) {
+			try {
+				serverPid = Optional
+						.of(Long.valueOf(new String(Files.readAllBytes(serverLock), StandardCharsets.US_ASCII).trim()));
+			} catch (IOException | NumberFormatException e) {
+				LOG.debug(e, "Ignoring unreadable X11 server lock ''{0}''", serverLock);
+			}
+		}
+		return serverPid;
+	}
+
+	private static int setup(String host, int displayNumber, int timeoutMillis) {
+		int status = -1;
+
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(host, X11_TCP_PORT_BASE + displayNumber), timeoutMillis);
+			socket.setSoTimeout(timeoutMillis);
+
+			OutputStream output = socket.getOutputStream();
+			InputStream input = socket.getInputStream();
+
+			output.write(SETUP_REQUEST);
+			output.flush();
+			status = input.read();
+		} catch (IOException e) {
+			LOG.debug(e, "X11 server {0}:{1} not reachable", host, displayNumber);
+		}
+		return status;
+	}
+
+	/**
+	 * Checks whether a display number is occupied by any (possibly not reachable) X11 server.
+	 *
+	 * @param displayNumber the display number to check.
+	 * @return {@code true} if the display number is occupied.
+	 */
+	static boolean isOccupied(int displayNumber) {
+		return Files.exists(serverLock(displayNumber)) || Files.exists(serverSocket(displayNumber));
+	}
+
+	private static Path serverLock(int displayNumber) {
+		return Paths.get("/tmp", ".X" + displayNumber + "-lock");
+	}
+
+	private static Path serverSocket(int displayNumber) {
+		return Paths.get("/tmp", ".X11-unix", "X" + displayNumber);
+	}
+
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+import de.carne.nio.file.attribute.FileAttributes;
+import de.carne.util.SystemProperties;
+import de.carne.util.logging.Log;
+
+/**
+ * Pool of on-demand provisioned Xvfb servers.
+ * <p>
+ * The pool is shared by all VMs using the same pool directory. Each display number of the pool is leased by at most
+ * one VM at a time (by locking the display number's lock file in the pool directory). The server's process id is
+ * recorded in the pool directory, so a server left running by a previous lease holder is re-used (after a successful
+ * health check, see {@linkplain X11Probe}) instead of being restarted. A leased display is held until VM shutdown.
+ * Afterwards the server is either terminated or kept running for subsequent VMs (see {@value #PROPERTY_XVFB_KEEP}).
+ * </p>
+ * <p>
+ * The servers do not listen on TCP and only accept clients presenting the MIT-MAGIC-COOKIE-1 recorded in the display
+ * number's authority file in the pool directory (see {@linkplain Lease#authFile()}).
+ * </p>
+ * <p>
+ * The following system properties control the pool:
+ * </p>
+ * <ul>
+ * <li>{@value #PROPERTY_XVFB}: {@code auto} (default) to provision a display if none is set, {@code off} to
+ * disable provisioning.</li>
+ * <li>{@value #PROPERTY_XVFB_POOL_DIR}: the pool directory (defaults to a user specific directory in the temporary
+ * directory).</li>
+ * <li>{@value #PROPERTY_XVFB_KEEP}: whether to keep the leased server running on VM shutdown (defaults to
+ * {@code false}). The server must then be terminated by the build (e.g. by destroying the processes recorded in the
+ * {@code *.pid} files of the pool directory).</li>
+ * <li>{@value #PROPERTY_XVFB_DISPLAY_BASE} and {@value #PROPERTY_XVFB_POOL_SIZE}: the range of display numbers to
+ * use (defaults to {@code 90} and {@code 8}).</li>
+ * <li>{@value #PROPERTY_XVFB_SCREEN}: the screen geometry to use (defaults to {@code 1280x1024x24}).</li>
+ * </ul>
+ */
+final class XvfbDisplayPool {
+
+	private static final Log LOG = new Log();
+
+	static final String PROPERTY_XVFB = XvfbDisplayPool.class.getPackage().getName() + ".XVFB";
+
+	static final String PROPERTY_XVFB_POOL_DIR = XvfbDisplayPool.class.getPackage().getName() + ".XVFB_POOL_DIR";
+
+	static final String PROPERTY_XVFB_KEEP = XvfbDisplayPool.class.getPackage().getName() + ".XVFB_KEEP";
+
+	static final String PROPERTY_XVFB_DISPLAY_BASE = XvfbDisplayPool.class.getPackage().getName()
+			+ ".XVFB_DISPLAY_BASE";
+
+	static final String PROPERTY_XVFB_POOL_SIZE = XvfbDisplayPool.class.getPackage().getName() + ".XVFB_POOL_SIZE";
+
+	static final String PROPERTY_XVFB_SCREEN = XvfbDisplayPool.class.getPackage().getName() + ".XVFB_SCREEN";
+
+	private static final String XVFB_COMMAND = "Xvfb";
+
+	private static final String AUTH_PROTOCOL = "MIT-MAGIC-COOKIE-1";
+
+	private static final int AUTH_COOKIE_LENGTH = 16;
+
+	private static final int AUTH_FAMILY_WILD = 0xffff;
+
+	private static final SecureRandom AUTH_COOKIE_RANDOM = new SecureRandom();
+
+	private static final long START_TIMEOUT = 10000;
+
+	private static final long START_POLL_INTERVAL = 50;
+
+	private static final long STOP_TIMEOUT = 2000;
+
+	private XvfbDisplayPool() {
+		// Prevent instantiation
+	}
+
+	/**
+	 * Leases a display from the pool.
+	 * <p>
+	 * If necessary a new Xvfb server is started. The leased display is held until VM shutdown.
+	 * </p>
+	 *
+	 * @return the leased display or {@linkplain Optional#empty()} if no display could be provisioned.
+	 */
+	static Optional<Lease> lease() {
+		Optional<Lease> leasedDisplay = Optional.empty();
+
+		if ("off".equals(System.getProperty(PROPERTY_XVFB, "auto"))) {
+			LOG.debug("Xvfb provisioning disabled");
+		} else if (!isXvfbAvailable(System.getenv("PATH"))) {
+			LOG.info("Xvfb provisioning not possible (command ''{0}'' not found)", XVFB_COMMAND);
+		} else {
+			Path poolDir = poolDir();
+			int displayBase = SystemProperties.intValue(PROPERTY_XVFB_DISPLAY_BASE, 90);
+			int poolSize = SystemProperties.intValue(PROPERTY_XVFB_POOL_SIZE, 8);
+
+			try {
+				Files.createDirectories(poolDir);
+				for (int displayNumber = displayBase; displayNumber < displayBase + poolSize; displayNumber++) {
+					Lease lease = tryLease(poolDir, displayNumber);
+
+					if (lease != null) {
+						Runtime.getRuntime().addShutdownHook(new Thread(lease::release, "Xvfb :" + displayNumber));
+						leasedDisplay = Optional.of(lease);
+						break;
+					}
+				}
+				if (!leasedDisplay.isPresent()) {
+					LOG.warning("No Xvfb display available in pool ''{0}''", poolDir);
+				}
+			} catch (IOException e) {
+				LOG.warning(e, "Failed to access Xvfb pool ''{0}''", poolDir);
+			}
+		}
+		return leasedDisplay;
+	}
+
+	static boolean isXvfbAvailable(@Nullable String path) {
+		boolean available = false;
+
+		if (path != null) {
+			for (String pathElement : path.split(File.pathSeparator)) {
+				if (!pathElement.isEmpty() && Files.isExecutable(Paths.get(pathElement, XVFB_COMMAND))) {
+					available = true;
+					break;
+				}
+			}
+		}
+		return available;
+	}
+
+	private static Path poolDir() {
+		String poolDirProperty = System.getProperty(PROPERTY_XVFB_POOL_DIR);
+
+		return (poolDirProperty != null ? Paths.get(poolDirProperty)
+				: Paths.get(System.getProperty("java.io.tmpdir"),
+						XvfbDisplayPool.class.getName() + "-" + System.getProperty("user.name")))
+				.toAbsolutePath();
+	}
+
+	@Nullable
+	private static Lease tryLease(Path poolDir, int displayNumber) throws IOException {
+		FileChannel lockChannel = FileChannel.open(poolDir.resolve(displayNumber + ".lock"), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE);
+		Lease lease = null;
+
+		try {
+			FileLock lock = lockChannel.tryLock();
+
+			if (lock != null) {
+				Path pidFile = poolDir.resolve(displayNumber + ".pid");
+				Path authFile = poolDir.resolve(displayNumber + ".auth");
+				ProcessHandle server = warmServer(pidFile, authFile, displayNumber);
+
+				if (server == null && !X11Probe.isOccupied(displayNumber)) {
+					server = startServer(poolDir, pidFile, authFile, displayNumber);
+				}
+				if (server != null) {
+					lease = new Lease(displayNumber, lockChannel, lock, server, pidFile, authFile);
+				}
+			}
+		} catch (IOException e) {
+			LOG.warning(e, "Failed to provision Xvfb display :{0}", displayNumber);
+		} finally {
+			if (lease == null) {
+				lockChannel.close();
+			}
+		}
+		return lease;
+	}
+
+	@Nullable
+	private static ProcessHandle warmServer(Path pidFile, Path authFile, int displayNumber) throws IOException {
+		ProcessHandle server = null;
+
+		if (Files.exists(pidFile)) {
+			Optional<ProcessHandle> recordedServer = readPidFile(pidFile).flatMap(ProcessHandle::of)
+					.filter(XvfbDisplayPool::isXvfbProcess);
+
+			if (recordedServer.isPresent()) {
+				// A server without authority file has been started unauthenticated (or by someone else)
+				if (Files.exists(authFile) && X11Probe.probeLocal(displayNumber, recordedServer.get())) {
+					server = recordedServer.get();
+
+					LOG.info("Re-using warm Xvfb server :{0} (pid {1})", displayNumber, server.pid());
+				} else {
+					LOG.warning("Terminating unhealthy Xvfb server :{0} (pid {1})", displayNumber,
+							recordedServer.get().pid());
+
+					terminate(recordedServer.get());
+				}
+			}
+			if (server == null) {
+				Files.delete(pidFile);
+				Files.deleteIfExists(authFile);
+			}
+		}
+		return server;
+	}
+
+	private static ProcessHandle startServer(Path poolDir, Path pidFile, Path authFile, int displayNumber)
+			throws IOException {
+		writeAuthFile(poolDir, authFile, displayNumber);
+
+		String screen = System.getProperty(PROPERTY_XVFB_SCREEN, "1280x1024x24");
+		ProcessBuilder builder = new ProcessBuilder(XVFB_COMMAND, ":" + displayNumber, "-screen", "0", screen,
+				"-nolisten", "tcp", "-auth", authFile.toString());
+
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(ProcessBuilder.Redirect.appendTo(poolDir.resolve(displayNumber + ".log").toFile()));
+
+		long start = System.nanoTime();
+		Process process = builder.start();
+		ProcessHandle server = process.toHandle();
+
+		Files.write(pidFile, Long.toString(server.pid()).getBytes(StandardCharsets.US_ASCII));
+		try {
+			long deadline = start + TimeUnit.MILLISECONDS.toNanos(START_TIMEOUT);
+
+			while (!X11Probe.probeLocal(displayNumber, server)) {
+				if (!process.isAlive()) {
+					throw new IOException(
+							"Xvfb server :" + displayNumber + " exited with status " + process.exitValue());
+				}
+				if (System.nanoTime() > deadline) {
+					throw new IOException("Timeout while waiting for Xvfb server :" + displayNumber);
+				}
+				Thread.sleep(START_POLL_INTERVAL);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			terminate(server);
+			Files.deleteIfExists(pidFile);
+			Files.deleteIfExists(authFile);
+			throw new IOException("Interrupted while waiting for Xvfb server :" + displayNumber, e);
+		} catch (IOException e) {
+			terminate(server);
+			Files.deleteIfExists(pidFile);
+			Files.deleteIfExists(authFile);
+			throw e;
+		}
+
+		long elapsed = System.nanoTime() - start;
+
+		LOG.info("Started Xvfb server :{0} (pid {1}; took {2} ms)", displayNumber, server.pid(), elapsed / 1000000);
+
+		return server;
+	}
+
+	private static void writeAuthFile(Path poolDir, Path authFile, int displayNumber) throws IOException {
+		byte[] cookie = new byte[AUTH_COOKIE_LENGTH];
+
+		AUTH_COOKIE_RANDOM.nextBytes(cookie);
+
+		ByteArrayOutputStream authBytes = new ByteArrayOutputStream();
+
+		// Xauthority entry matching any address of the display number
+		try (DataOutputStream authData = new DataOutputStream(authBytes)) {
+			authData.writeShort(AUTH_FAMILY_WILD);
+			writeAuthField(authData, new byte[0]);
+			writeAuthField(authData, Integer.toString(displayNumber).getBytes(StandardCharsets.US_ASCII));
+			writeAuthField(authData, AUTH_PROTOCOL.getBytes(StandardCharsets.US_ASCII));
+			writeAuthField(authData, cookie);
+		}
+		Files.deleteIfExists(authFile);
+		Files.write(Files.createFile(authFile, FileAttributes.userFileDefault(poolDir)), authBytes.toByteArray());
+	}
+
+	private static void writeAuthField(DataOutputStream authData, byte[] field) throws IOException {
+		authData.writeShort(field.length);
+		authData.write(field);
+	}
+
+	private static Optional<Long> readPidFile(Path pidFile) throws IOException {
+		Optional<Long> pid;
+
+		try {
+			pid = Optional.of(Long.valueOf(new String(Files.readAllBytes(pidFile), StandardCharsets.US_ASCII).trim()));
+		} catch (NumberFormatException e) {
+			LOG.warning(e, "Ignoring invalid pid file ''{0}''", pidFile);
+			pid = Optional.empty();
+		}
+		return pid;
+	}
+
+	private static boolean isXvfbProcess(ProcessHandle process) {
+		return process.isAlive() && process.info().command()
+				.map(command -> Paths.get(command).getFileName().toString().equals(XVFB_COMMAND)).orElse(Boolean.TRUE)
+				.booleanValue();
+	}
+
+	private static void terminate(ProcessHandle process) {
+		process.destroy();
+		try {
+			process.onExit().get(STOP_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			LOG.warning(e, "Forcibly terminating Xvfb server (pid {0})", process.pid());
+
+			process.destroyForcibly();
+		}
+	}
+
+	/**
+	 * Leased display.
+	 */
+	static final class Lease {
+
+		private final int displayNumber;
+		private final FileChannel lockChannel;
+		private final FileLock lock;
+		private final ProcessHandle server;
+		private final Path pidFile;
+		private final Path authFile;
+
+		Lease(int displayNumber, FileChannel lockChannel, FileLock lock, ProcessHandle server, Path pidFile,
+				Path authFile) {
+			this.displayNumber = displayNumber;
+			this.lockChannel = lockChannel;
+			this.lock = lock;
+			this.server = server;
+			this.pidFile = pidFile;
+			this.authFile = authFile;
+		}
+
+		/**
+		 * Gets the name of the leased display.
+		 *
+		 * @return the name of the leased display (e.g. {@code :90}).
+		 */
+		String displayName() {
+			return ":" + this.displayNumber;
+		}
+
+		/**
+		 * Gets the authority file (to be used via {@code XAUTHORITY}) granting access to the leased display.
+		 *
+		 * @return the authority file granting access to the leased display.
+		 */
+		Path authFile() {
+			return this.authFile;
+		}
+
+		void release() {
+			try {
+				if (Boolean.getBoolean(PROPERTY_XVFB_KEEP)) {
+					LOG.info("Keeping Xvfb server :{0} (pid {1})", this.displayNumber, this.server.pid());
+				} else {
+					LOG.info("Terminating Xvfb server :{0} (pid {1})", this.displayNumber, this.server.pid());
+
+					terminate(this.server);
+					Files.deleteIfExists(this.pidFile);
+					Files.deleteIfExists(this.authFile);
+				}
+				this.lock.release();
+				this.lockChannel.close();
+			} catch (IOException e) {
+				LOG.warning(e, "Failed to release Xvfb display :{0}", this.displayNumber);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@linkplain HandleSet} class.
+ */
+class HandleSetTest {
+
+	@Test
+	void testAddRemove() {
+		HandleSet handles = new HandleSet();
+
+		Assertions.assertTrue(handles.add(0x1000l));
+		Assertions.assertFalse(handles.add(0x1000l));
+		Assertions.assertTrue(handles.add(-0x1000l));
+		Assertions.assertEquals(2, handles.size());
+		Assertions.assertTrue(handles.contains(0x1000l));
+		Assertions.assertTrue(handles.contains(-0x1000l));
+		Assertions.assertFalse(handles.contains(0x2000l));
+		Assertions.assertTrue(handles.remove(0x1000l));
+		Assertions.assertFalse(handles.remove(0x1000l));
+		Assertions.assertFalse(handles.contains(0x1000l));
+		Assertions.assertEquals(1, handles.size());
+
+		handles.clear();
+
+		Assertions.assertEquals(0, handles.size());
+		Assertions.assertFalse(handles.contains(-0x1000l));
+	}
+
+	@Test
+	void testInvalidHandle() {
+		HandleSet handles = new HandleSet();
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> handles.add(0));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> handles.remove(0));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> handles.contains(0));
+	}
+
+	@Test
+	void testRehash() {
+		HandleSet handles = new HandleSet();
+
+		// Native handles are aligned pointers
+		for (long handle = 0x10l; handle <= 0x10000l; handle += 0x10l) {
+			Assertions.assertTrue(handles.add(handle));
+		}
+		Assertions.assertEquals(0x1000, handles.size());
+		for (long handle = 0x10l; handle <= 0x10000l; handle += 0x10l) {
+			Assertions.assertTrue(handles.contains(handle));
+		}
+		Assertions.assertFalse(handles.contains(0x10010l));
+	}
+
+	@Test
+	void testRemoveKeepsProbeSequences() {
+		HandleSet handles = new HandleSet();
+		Set<Long> expectedHandles = new HashSet<>();
+		List<Long> handlePool = new ArrayList<>();
+		Random random = new Random(42);
+
+		// Few distinct handles and many operations result in long collision chains being shifted on removal
+		for (int handleIndex = 1; handleIndex <= 64; handleIndex++) {
+			handlePool.add(Long.valueOf(handleIndex * 0x1000l));
+		}
+		for (int operation = 0; operation < 100000; operation++) {
+			Long handle = handlePool.get(random.nextInt(handlePool.size()));
+
+			if (random.nextBoolean()) {
+				Assertions.assertEquals(expectedHandles.add(handle), handles.add(handle.longValue()));
+			} else {
+				Assertions.assertEquals(expectedHandles.remove(handle), handles.remove(handle.longValue()));
+			}
+			Assertions.assertEquals(expectedHandles.size(), handles.size());
+		}
+		for (Long handle : handlePool) {
+			Assertions.assertEquals(expectedHandles.contains(handle), handles.contains(handle.longValue()));
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@linkplain X11Probe} class.
+ */
+class X11ProbeTest {
+
+	// Neither a server socket nor a TCP listener is expected for this display number
+	private static final int UNUSED_DISPLAY_NUMBER = 9999;
+
+	private static final int TIMEOUT = 1000;
+
+	@Test
+	void testCheckUnsupportedDisplayName() {
+		assertUnsupported("");
+		assertUnsupported("localhost");
+		assertUnsupported(":");
+		assertUnsupported(":x");
+		assertUnsupported(":0.");
+		assertUnsupported("localhost:0:1");
+	}
+
+	@Test
+	void testCheckLocalDisplayName() {
+		assertFailure(":" + UNUSED_DISPLAY_NUMBER, "No X11 server socket");
+		assertFailure(":" + UNUSED_DISPLAY_NUMBER + ".0", "No X11 server socket");
+		assertFailure("unix:" + UNUSED_DISPLAY_NUMBER, "No X11 server socket");
+	}
+
+	@Test
+	void testCheckRemoteDisplayName() {
+		String displayName = "127.0.0.1:" + UNUSED_DISPLAY_NUMBER;
+
+		assertFailure(displayName, "X11 server '" + displayName + "' not reachable");
+	}
+
+	@Test
+	void testProbeLocal() {
+		Assertions.assertFalse(X11Probe.probeLocal(UNUSED_DISPLAY_NUMBER, ProcessHandle.current()));
+	}
+
+	private static void assertUnsupported(String displayName) {
+		assertFailure(displayName, "Unsupported display name '" + displayName + "'");
+	}
+
+	private static void assertFailure(String displayName, String expectedFailure) {
+		Optional<String> failure = X11Probe.check(displayName, TIMEOUT);
+
+		Assertions.assertTrue(failure.isPresent());
+		Assertions.assertTrue(failure.get().startsWith(expectedFailure), failure.get());
+	}
+
+}
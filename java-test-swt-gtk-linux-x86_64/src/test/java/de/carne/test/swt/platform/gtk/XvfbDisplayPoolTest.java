@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017-2022 Holger de Carne and contributors, All Rights Reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.carne.test.swt.platform.gtk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Test {@linkplain XvfbDisplayPool} class.
+ */
+class XvfbDisplayPoolTest {
+
+	@Test
+	void testLeaseDisabled() {
+		String xvfb = System.getProperty(XvfbDisplayPool.PROPERTY_XVFB);
+
+		System.setProperty(XvfbDisplayPool.PROPERTY_XVFB, "off");
+		try {
+			Assertions.assertFalse(XvfbDisplayPool.lease().isPresent());
+		} finally {
+			if (xvfb != null) {
+				System.setProperty(XvfbDisplayPool.PROPERTY_XVFB, xvfb);
+			} else {
+				System.clearProperty(XvfbDisplayPool.PROPERTY_XVFB);
+			}
+		}
+	}
+
+	@Test
+	void testXvfbAvailable(@TempDir Path tmpDir) throws IOException {
+		Path binDir = Files.createDirectory(tmpDir.resolve("bin"));
+		Path emptyDir = Files.createDirectory(tmpDir.resolve("empty"));
+		String path = emptyDir + File.pathSeparator + binDir;
+
+		Assertions.assertFalse(XvfbDisplayPool.isXvfbAvailable(null));
+		Assertions.assertFalse(XvfbDisplayPool.isXvfbAvailable(""));
+		Assertions.assertFalse(XvfbDisplayPool.isXvfbAvailable(path));
+
+		Path xvfb = Files.createFile(binDir.resolve("Xvfb"));
+
+		Assertions.assertFalse(XvfbDisplayPool.isXvfbAvailable(path));
+		Assertions.assertTrue(xvfb.toFile().setExecutable(true));
+		Assertions.assertTrue(XvfbDisplayPool.isXvfbAvailable(path));
+	}
+
+}
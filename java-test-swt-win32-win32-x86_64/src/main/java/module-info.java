@@ -6,7 +6,11 @@ module de.carne.test.swt {
 	requires transitive org.eclipse.jdt.annotation;
 	requires transitive de.carne.test;
 
+	requires java.instrument;
 	requires org.mockito;
+	requires net.bytebuddy;
+	requires net.bytebuddy.agent;
+	requires org.junit.platform.launcher;
 	requires de.carne;
 
 	exports de.carne.test.swt;
@@ -14,4 +18,11 @@ module de.carne.test.swt {
 	exports de.carne.test.swt.extension;
 	exports de.carne.test.swt.tester;
 	exports de.carne.test.swt.tester.accessor;
+	exports de.carne.test.swt.tester.image;
+	exports de.carne.test.swt.tester.snapshot;
+
+	provides org.junit.platform.launcher.LauncherSessionListener
+			with de.carne.test.swt.extension.SWTWarmUpListener;
+	provides org.junit.platform.launcher.TestExecutionListener
+			with de.carne.test.swt.extension.SWTWarmUpListener;
 }